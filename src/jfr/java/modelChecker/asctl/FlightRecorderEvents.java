@@ -0,0 +1,225 @@
+package modelChecker.asctl;
+
+import formula.stateFormula.StateFormula;
+import jdk.jfr.*;
+
+import java.util.BitSet;
+
+/**
+ * The JDK Flight Recorder events of {@link CheckerEvents}, which loads this class by name if it is on the class path.
+ */
+final class FlightRecorderEvents implements CheckerEvents.Recorder {
+
+    private static final String CATEGORY = "Model Checker";
+
+    //******** EVENTS ********//
+
+    /**
+     * The events of the phases, which are only begun if they are enabled
+     */
+    abstract static class Phase extends Event {
+        boolean start() {
+            if (!isEnabled())
+                return false;
+            begin();
+            return true;
+        }
+    }
+
+    @Name("modelChecker.LoadModel")
+    @Label("Load Model")
+    @Category(CATEGORY)
+    @Description("Reading a model from its JSON form with ModelLoader")
+    public static final class LoadModel extends Phase implements CheckerEvents.LoadModel {
+        @Label("Source")
+        public String source;
+        @Label("States")
+        public int states;
+        @Label("Transitions")
+        public int transitions;
+    }
+
+    @Name("modelChecker.IndexModel")
+    @Label("Index Model")
+    @Category(CATEGORY)
+    @Description("Building the compact form and the forward and reverse indices of a model")
+    public static final class IndexModel extends Phase implements CheckerEvents.IndexModel {
+        @Label("States")
+        public int states;
+        @Label("Transitions")
+        public int transitions;
+        @Label("Label Sets")
+        public int labelSets;
+        @Label("Action Sets")
+        public int actionSets;
+    }
+
+    @Name("modelChecker.Normalize")
+    @Label("Normalize Formula")
+    @Category(CATEGORY)
+    @Description("Rewriting a formula into the normal form marked by the model checkers")
+    public static final class Normalize extends Phase implements CheckerEvents.Normalize {
+        @Label("Formula")
+        public String formula;
+        @Label("Normalized")
+        public String normalized;
+    }
+
+    @Name("modelChecker.Mark")
+    @Label("Mark Subformula")
+    @Category(CATEGORY)
+    @Description("Marking the states satisfying one subformula, once its own subformulae are marked")
+    public static final class Mark extends Phase implements CheckerEvents.Mark {
+        @Label("Formula")
+        public String formula;
+        @Label("Operator")
+        public String operator;
+        @Label("Satisfying States")
+        public int satisfying;
+        @Label("States")
+        public int states;
+        @Label("Transitions")
+        public int transitions;
+        @Label("Cached")
+        public boolean cached;
+    }
+
+    @Name("modelChecker.Counterexample")
+    @Label("Build Counterexample")
+    @Category(CATEGORY)
+    @Description("Searching for a counterexample to a query which does not hold")
+    public static final class Counterexample extends Phase implements CheckerEvents.Counterexample {
+        @Label("Query")
+        public String query;
+        @Label("Length")
+        public int length;
+    }
+
+    @Name("modelChecker.Check")
+    @Label("Check Query")
+    @Category(CATEGORY)
+    @Description("Checking a query under a constraint, including its counterexample")
+    public static final class Check extends Phase implements CheckerEvents.Check {
+        @Label("Query")
+        public String query;
+        @Label("Constraint")
+        public String constraint;
+        @Label("States")
+        public int states;
+        @Label("Transitions")
+        public int transitions;
+        @Label("Holds")
+        public boolean holds;
+    }
+
+    //******** BEGIN ********//
+
+    @Override
+    public LoadModel beginLoadModel() {
+        LoadModel event = new LoadModel();
+        return event.start() ? event : null;
+    }
+
+    @Override
+    public IndexModel beginIndexModel() {
+        IndexModel event = new IndexModel();
+        return event.start() ? event : null;
+    }
+
+    @Override
+    public Normalize beginNormalize() {
+        Normalize event = new Normalize();
+        return event.start() ? event : null;
+    }
+
+    @Override
+    public Mark beginMark() {
+        Mark event = new Mark();
+        return event.start() ? event : null;
+    }
+
+    @Override
+    public Counterexample beginCounterexample() {
+        Counterexample event = new Counterexample();
+        return event.start() ? event : null;
+    }
+
+    @Override
+    public Check beginCheck() {
+        Check event = new Check();
+        return event.start() ? event : null;
+    }
+
+    //******** COMMIT ********//
+
+    @Override
+    public void commit(CheckerEvents.LoadModel begun, String source, int states, int transitions) {
+        LoadModel event = (LoadModel) begun;
+        if (!event.shouldCommit())
+            return;
+        event.source = source;
+        event.states = states;
+        event.transitions = transitions;
+        event.commit();
+    }
+
+    @Override
+    public void commit(CheckerEvents.IndexModel begun, ModelWrapper model) {
+        IndexModel event = (IndexModel) begun;
+        if (!event.shouldCommit())
+            return;
+        event.states = model.getStateCount();
+        event.transitions = model.getTransitionCount();
+        event.labelSets = model.getLabelSetCount();
+        event.actionSets = model.getActionSetCount();
+        event.commit();
+    }
+
+    @Override
+    public void commit(CheckerEvents.Normalize begun, StateFormula formula, StateFormula normalized) {
+        Normalize event = (Normalize) begun;
+        if (!event.shouldCommit())
+            return;
+        event.formula = formula.toString();
+        event.normalized = normalized.toString();
+        event.commit();
+    }
+
+    @Override
+    public void commit(CheckerEvents.Mark begun, StateFormula f, BitSet satisfying, ModelWrapper model, boolean cached) {
+        Mark event = (Mark) begun;
+        if (!event.shouldCommit())
+            return;
+        event.formula = f.toString();
+        event.operator = OperatorStats.operatorOf(f);
+        event.satisfying = satisfying.cardinality();
+        event.states = model.getStateCount();
+        event.transitions = model.getTransitionCount();
+        event.cached = cached;
+        event.commit();
+    }
+
+    @Override
+    public void commit(CheckerEvents.Counterexample begun, StateFormula query, int length) {
+        Counterexample event = (Counterexample) begun;
+        if (!event.shouldCommit())
+            return;
+        event.query = query.toString();
+        event.length = length;
+        event.commit();
+    }
+
+    @Override
+    public void commit(CheckerEvents.Check begun, StateFormula constraint, StateFormula query, ModelWrapper model,
+                       boolean holds) {
+        Check event = (Check) begun;
+        if (!event.shouldCommit())
+            return;
+        event.query = query.toString();
+        event.constraint = constraint.toString();
+        event.states = model.getStateCount();
+        event.transitions = model.getTransitionCount();
+        event.holds = holds;
+        event.commit();
+    }
+}
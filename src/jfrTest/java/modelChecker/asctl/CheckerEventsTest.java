@@ -0,0 +1,70 @@
+package modelChecker.asctl;
+
+import formula.FormulaParser;
+import formula.stateFormula.BoolProp;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import model.Model;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CheckerEventsTest {
+
+    private static final String MODEL = "src/test/resources/customComplex/complexModel.json";
+
+    @Test
+    public void recordsPhasesOfCheck() throws IOException {
+        Path file = Files.createTempFile("checker", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String event : new String[]{"LoadModel", "IndexModel", "Normalize", "Mark", "Counterexample", "Check"})
+                recording.enable("modelChecker." + event);
+            recording.start();
+            ModelWrapper model = new ModelWrapper(Model.parseModel(MODEL));
+            ModelLoader.load(MODEL);
+            ASCTLModelChecker checker = new ASCTLModelChecker();
+            assertFalse(checker.check(model, new BoolProp(true), FormulaParser.parseRawFormulaString("AG !crit1")));
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+        Map<String, Integer> counts = new HashMap<>();
+        for (RecordedEvent event : events) {
+            counts.merge(event.getEventType().getName(), 1, Integer::sum);
+            switch (event.getEventType().getName()) {
+                case "modelChecker.LoadModel":
+                    assertEquals(8, event.getInt("states"));
+                    break;
+                case "modelChecker.IndexModel":
+                    assertEquals(8, event.getInt("states"));
+                    break;
+                case "modelChecker.Mark":
+                    assertTrue(event.getInt("satisfying") <= event.getInt("states"));
+                    assertNotNull(event.getString("operator"));
+                    break;
+                case "modelChecker.Counterexample":
+                    assertTrue(event.getInt("length") > 1);
+                    break;
+                case "modelChecker.Check":
+                    assertFalse(event.getBoolean("holds"));
+                    assertTrue(event.getString("query").contains("crit1"));
+                    break;
+            }
+        }
+        assertEquals(1, (int) counts.get("modelChecker.LoadModel"));
+        assertEquals(2, (int) counts.get("modelChecker.IndexModel"));
+        assertEquals(1, (int) counts.get("modelChecker.Check"));
+        assertEquals(1, (int) counts.get("modelChecker.Counterexample"));
+        assertTrue(counts.get("modelChecker.Normalize") >= 2);
+        assertTrue(counts.get("modelChecker.Mark") >= 4);
+    }
+}
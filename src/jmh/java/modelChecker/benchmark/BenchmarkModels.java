@@ -0,0 +1,117 @@
+package modelChecker.benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * The models the benchmarks run on, written in the JSON form read by Model.parseModel and ModelLoader.
+ *
+ * Every model has states s0 .. s(size - 1), with s0 initial. A state is labelled "p" unless its id is a multiple of
+ * 3, "q" if its id is a multiple of 7, and "bad" if it is the last state. Transitions alternate between the actions
+ * "a" and "b", in the order in which they are generated.
+ */
+public final class BenchmarkModels {
+
+    private BenchmarkModels() {
+    }
+
+    /**
+     * The shapes of the transition relation
+     */
+    public enum Shape {
+        /** s(i) to s(i + 1), with a loop on the last state */
+        CHAIN,
+        /** s(i) to s(i + 1), and the last state back to s0 */
+        RING,
+        /** rows of about sqrt(size) states, each state stepping right (around its row) and down (around the model) */
+        GRID,
+        /** three successors per state, chosen with a fixed seed */
+        RANDOM
+    }
+
+    /**
+     * Write a model to a file.
+     */
+    public static void write(Shape shape, int size, Path file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            write(shape, size, out);
+        }
+    }
+
+    public static void write(Shape shape, int size, Writer out) throws IOException {
+        out.write("{\"states\": [");
+        for (int s = 0; s < size; s++) {
+            out.write(s > 0 ? ",\n" : "\n");
+            out.write("{\"name\": \"s" + s + "\", \"init\": " + (s == 0) + ", \"label\": [");
+            String separator = "";
+            if (s % 3 != 0) {
+                out.write("\"p\"");
+                separator = ", ";
+            }
+            if (s % 7 == 0) {
+                out.write(separator + "\"q\"");
+                separator = ", ";
+            }
+            if (s == size - 1)
+                out.write(separator + "\"bad\"");
+            out.write("]}");
+        }
+        out.write("],\n\"transitions\": [");
+        int[] count = {0};
+        Random random = new Random(42);
+        int side = (int) Math.ceil(Math.sqrt(size));
+        for (int s = 0; s < size; s++) {
+            switch (shape) {
+                case CHAIN:
+                    transition(out, s, Math.min(s + 1, size - 1), count);
+                    break;
+                case RING:
+                    transition(out, s, (s + 1) % size, count);
+                    break;
+                case GRID:
+                    int right = s / side * side + (s % side + 1) % side;
+                    transition(out, s, right < size ? right : s / side * side, count);
+                    transition(out, s, (s + side) % size, count);
+                    break;
+                case RANDOM:
+                    for (int i = 0; i < 3; i++)
+                        transition(out, s, random.nextInt(size), count);
+                    break;
+            }
+        }
+        out.write("]}\n");
+    }
+
+    private static void transition(Writer out, int source, int target, int[] count) throws IOException {
+        out.write(count[0] > 0 ? ",\n" : "\n");
+        out.write("{\"source\": \"s" + source + "\", \"target\": \"s" + target + "\", \"actions\": [\""
+                + (count[0] % 2 == 0 ? "a" : "b") + "\"]}");
+        count[0]++;
+    }
+
+    /**
+     * Delete a directory the models and formulae were written to, with everything in it.
+     */
+    public static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator)
+                Files.delete(path);
+        }
+    }
+
+    /**
+     * Write a formula file, with the action sets "a" = {a} and "b" = {b}.
+     */
+    public static Path writeFormula(String formula, Path directory) throws IOException {
+        Path file = Files.createTempFile(directory, "formula", ".json");
+        Files.write(file, ("{\"formula\": \"" + formula + "\", \"a\": [\"a\"], \"b\": [\"b\"]}")
+                .getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
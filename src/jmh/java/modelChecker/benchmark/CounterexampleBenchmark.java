@@ -0,0 +1,63 @@
+package modelChecker.benchmark;
+
+import formula.FormulaParser;
+import formula.stateFormula.BoolProp;
+import formula.stateFormula.StateFormula;
+import modelChecker.asctl.CounterexampleGenerator;
+import modelChecker.asctl.ModelLoader;
+import modelChecker.asctl.ModelMarker;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the counterexample of a failed query from an already marked model.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CounterexampleBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"CHAIN", "RING", "GRID", "RANDOM"})
+    public BenchmarkModels.Shape shape;
+
+    /**
+     * The failing query: AG !bad gives a path to the last state, and since no state is labelled both q and bad, the
+     * others give a lasso
+     */
+    @Param({"AG !bad", "AF (q && bad)", "!EG !(q && bad)"})
+    public String query;
+
+    private StateFormula formula;
+
+    private StateFormula constraint;
+
+    private ModelMarker marker;
+
+    @Setup
+    public void setup() throws IOException {
+        // the model is only read here, so it is written to memory rather than to a file
+        StringWriter json = new StringWriter();
+        BenchmarkModels.write(shape, size, json);
+        marker = new ModelMarker(ModelLoader.load(new StringReader(json.toString())));
+        formula = FormulaParser.parseRawFormulaString(query);
+        constraint = new BoolProp(true);
+        if (marker.isModelSatisfied(formula, constraint))
+            throw new IllegalStateException(query + " holds on the " + shape + " model, so it has no counterexample");
+    }
+
+    @Benchmark
+    public List<String> makeCounterexample() {
+        return new CounterexampleGenerator(marker).makeCounterexample(formula, constraint);
+    }
+}
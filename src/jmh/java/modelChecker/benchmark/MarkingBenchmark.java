@@ -0,0 +1,93 @@
+package modelChecker.benchmark;
+
+import formula.FormulaParser;
+import formula.stateFormula.BoolProp;
+import formula.stateFormula.StateFormula;
+import modelChecker.asctl.ModelLoader;
+import modelChecker.asctl.ModelMarker;
+import modelChecker.asctl.ModelWrapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marks one temporal operator over a whole model, with a fresh marker per invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MarkingBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"CHAIN", "RING", "GRID", "RANDOM"})
+    public BenchmarkModels.Shape shape;
+
+    @Param({"EX", "EU", "AU", "EG"})
+    public String operator;
+
+    /**
+     * Whether the operator restricts its steps to action sets
+     */
+    @Param({"false", "true"})
+    public boolean actions;
+
+    /**
+     * Whether the paths are restricted by the constraint !q
+     */
+    @Param({"false", "true"})
+    public boolean constrained;
+
+    /**
+     * The directory the model and formula files are written to, deleted after the trial
+     */
+    private Path directory;
+
+    private ModelWrapper model;
+
+    private StateFormula query;
+
+    private StateFormula constraint;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("marking");
+        Path modelFile = directory.resolve("model.json");
+        BenchmarkModels.write(shape, size, modelFile);
+        model = ModelLoader.load(modelFile.toString());
+        query = new FormulaParser(BenchmarkModels.writeFormula(formula(), directory).toString()).parse();
+        constraint = constrained ? FormulaParser.parseRawFormulaString("!q") : new BoolProp(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkModels.delete(directory);
+    }
+
+    private String formula() {
+        switch (operator) {
+            case "EX":
+                return actions ? "EaX p" : "EX p";
+            case "EU":
+                return actions ? "E (p aUb q)" : "E (p U q)";
+            case "AU":
+                return actions ? "A (p aUb q)" : "A (p U q)";
+            case "EG":
+                return actions ? "EaG p" : "EG p";
+            default:
+                throw new IllegalArgumentException("unknown operator: " + operator);
+        }
+    }
+
+    @Benchmark
+    public boolean isModelSatisfied() {
+        return new ModelMarker(model).isModelSatisfied(query, constraint);
+    }
+}
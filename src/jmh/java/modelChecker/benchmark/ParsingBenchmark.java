@@ -0,0 +1,86 @@
+package modelChecker.benchmark;
+
+import formula.FormulaParser;
+import formula.stateFormula.StateFormula;
+import model.Model;
+import modelChecker.asctl.ModelLoader;
+import modelChecker.asctl.ModelMarker;
+import modelChecker.asctl.ModelWrapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads models and formulae, and normalizes formulae.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParsingBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"CHAIN", "RANDOM"})
+    public BenchmarkModels.Shape shape;
+
+    /**
+     * A formula exercising every operator, with and without action sets
+     */
+    private static final String FORMULA = "(AG (!p || EaX q) && (A (p aUb q) || !EbG (p && !bad))) || EF (AF q && E (p U bad))";
+
+    /**
+     * The directory the model and formula files are written to, deleted after the trial
+     */
+    private Path directory;
+
+    private String modelFile;
+
+    private String formulaFile;
+
+    private StateFormula formula;
+
+    private ModelMarker marker;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("parsing");
+        Path file = directory.resolve("model.json");
+        BenchmarkModels.write(shape, size, file);
+        modelFile = file.toString();
+        formulaFile = BenchmarkModels.writeFormula(FORMULA, directory).toString();
+        formula = new FormulaParser(formulaFile).parse();
+        marker = new ModelMarker(ModelLoader.load(modelFile));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkModels.delete(directory);
+    }
+
+    @Benchmark
+    public Model parseModel() throws IOException {
+        return Model.parseModel(modelFile);
+    }
+
+    @Benchmark
+    public ModelWrapper loadModel() throws IOException {
+        return ModelLoader.load(modelFile);
+    }
+
+    @Benchmark
+    public StateFormula parseFormula() throws IOException {
+        return new FormulaParser(formulaFile).parse();
+    }
+
+    @Benchmark
+    public StateFormula normalize() {
+        return marker.normalize(formula);
+    }
+}
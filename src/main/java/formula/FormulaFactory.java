@@ -0,0 +1,103 @@
+package formula;
+
+import java.util.*;
+
+import formula.pathFormula.*;
+import formula.stateFormula.*;
+
+/**
+ * Builds hash-consed formulae: every formula returned is the canonical instance for its structure, so structurally
+ * equal subformulae are shared as one node of a DAG, carry a cached hash code, and compare equal by identity. Action
+ * sets are copied into unmodifiable sets, as they are shared by every use of the node.
+ */
+public class FormulaFactory {
+
+    private FormulaFactory() {
+    }
+
+    public static BoolProp bool(boolean value) {
+        return (BoolProp) new BoolProp(value).intern();
+    }
+
+    public static AtomicProp atomic(String label) {
+        return (AtomicProp) new AtomicProp(label).intern();
+    }
+
+    public static Not not(StateFormula stateFormula) {
+        return (Not) new Not(stateFormula).intern();
+    }
+
+    public static And and(StateFormula left, StateFormula right) {
+        return (And) new And(left, right).intern();
+    }
+
+    public static Or or(StateFormula left, StateFormula right) {
+        return (Or) new Or(left, right).intern();
+    }
+
+    public static ThereExists thereExists(PathFormula pathFormula) {
+        return (ThereExists) new ThereExists(pathFormula).intern();
+    }
+
+    public static ForAll forAll(PathFormula pathFormula) {
+        return (ForAll) new ForAll(pathFormula).intern();
+    }
+
+    public static Next next(StateFormula stateFormula, String actionSetIdentifier, Set<String> actions) {
+        return (Next) new Next(stateFormula, actionSetIdentifier, actionSet(actions)).intern();
+    }
+
+    public static Always always(StateFormula stateFormula, String actionSetIdentifier1, Set<String> actionSet1, String actionSetIdentifier2, Set<String> actionSet2) {
+        return (Always) new Always(stateFormula, actionSetIdentifier1, actionSet(actionSet1), actionSetIdentifier2, actionSet(actionSet2)).intern();
+    }
+
+    public static Always always(StateFormula stateFormula, String actionSetIdentifier1, Set<String> actionSet1) {
+        return always(stateFormula, actionSetIdentifier1, actionSet1, null, new HashSet<>());
+    }
+
+    public static Eventually eventually(StateFormula stateFormula, String leftActionsIdentifier, Set<String> leftActions, String rightActionsIdentifier, Set<String> rightActions) {
+        return (Eventually) new Eventually(stateFormula, leftActionsIdentifier, actionSet(leftActions), rightActionsIdentifier, actionSet(rightActions)).intern();
+    }
+
+    public static Until until(StateFormula left, StateFormula right, String leftActionsIdentifier, Set<String> leftActions, String rightActionsIdentifier, Set<String> rightActions) {
+        return (Until) new Until(left, right, leftActionsIdentifier, actionSet(leftActions), rightActionsIdentifier, actionSet(rightActions)).intern();
+    }
+
+    /**
+     * Get the canonical instance of a formula which may have been built without this factory, interning each of its
+     * subformulae bottom-up.
+     * @param f the formula to intern
+     * @return the canonical instance structurally equal to f
+     */
+    public static StateFormula intern(StateFormula f) {
+        if (f instanceof Not) return not(intern(((Not) f).stateFormula));
+        else if (f instanceof And) return and(intern(((And) f).left), intern(((And) f).right));
+        else if (f instanceof Or) return or(intern(((Or) f).left), intern(((Or) f).right));
+        else if (f instanceof ThereExists) return thereExists(intern(((ThereExists) f).pathFormula));
+        else if (f instanceof ForAll) return forAll(intern(((ForAll) f).pathFormula));
+        return f.intern();
+    }
+
+    private static PathFormula intern(PathFormula f) {
+        if (f instanceof Next) {
+            Next n = (Next) f;
+            return next(intern(n.stateFormula), n.getActionSetIdentifier(), n.getActions());
+        } else if (f instanceof Always) {
+            Always a = (Always) f;
+            return always(intern(a.stateFormula), a.getActionSetIdentifier1(), a.getActionSet1(), a.getActionSetIdentifier2(), a.getActionSet2());
+        } else if (f instanceof Eventually) {
+            Eventually e = (Eventually) f;
+            return eventually(intern(e.stateFormula), e.getLeftActionsIdentifier(), e.getLeftActions(), e.getRightActionsIdentifier(), e.getRightActions());
+        } else if (f instanceof Until) {
+            Until u = (Until) f;
+            return until(intern(u.left), intern(u.right), u.getLeftActionsIdentifier(), u.getLeftActions(), u.getRightActionsIdentifier(), u.getRightActions());
+        }
+        return f.intern();
+    }
+
+    private static Set<String> actionSet(Set<String> actions) {
+        if (actions == null)
+            return null;
+        return Collections.unmodifiableSet(new HashSet<>(actions));
+    }
+}
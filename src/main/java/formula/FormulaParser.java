@@ -34,13 +34,18 @@ public class FormulaParser {
     public static final char ALWAYS_TOKEn = 'G';
     public static final char THEREEXISTS_TOKEN = 'E';
     public static final char FORALL_TOKEN = 'A';
+    private static final char[] TRUE_TOKEN_REST = "RUE".toCharArray();
+    private static final char[] FALSE_TOKEN_REST = "ALSE".toCharArray();
     private Reader reader;
     Gson gson = new Gson();
     private JsonObject jsonFormula;
 
     public FormulaParser(String filePath) throws IOException {
         JsonParser parser = new JsonParser();
-        JsonElement jsonElement = parser.parse(new FileReader(filePath));
+        JsonElement jsonElement;
+        try (FileReader fileReader = new FileReader(filePath)) {
+            jsonElement = parser.parse(fileReader);
+        }
         jsonFormula = jsonElement.getAsJsonObject();
         String formula = jsonFormula.get(JSON_FORMULA_FIELD).getAsString();
         reader = new Reader(formula);
@@ -94,13 +99,13 @@ public class FormulaParser {
         case OR_TOKEN: {
             validateNextChars(OR_TOKEN);
             StateFormula subformula2 = recursiveParseStateFormula();
-            stateFormula = new Or(subformula, subformula2);
+            stateFormula = FormulaFactory.or(subformula, subformula2);
         }
             break;
         case AND_TOKEN: {
             validateNextChars(AND_TOKEN);
             StateFormula subformula2 = recursiveParseStateFormula();
-            stateFormula = new And(subformula, subformula2);
+            stateFormula = FormulaFactory.and(subformula, subformula2);
         }
             break;
         default:
@@ -113,23 +118,23 @@ public class FormulaParser {
     private StateFormula parseStateFormula(char nextChar) throws IOException {
         switch (nextChar) {
         case NOT_TOKEN:
-            return new Not(recursiveParseStateFormula());
+            return FormulaFactory.not(recursiveParseStateFormula());
         case FORALL_TOKEN:
-            return new ForAll(parsePathFormula());
+            return FormulaFactory.forAll(parsePathFormula());
         case THEREEXISTS_TOKEN:
-            return new ThereExists(parsePathFormula());
+            return FormulaFactory.thereExists(parsePathFormula());
         case TRUE_TOKEN_PREFIX:
-            validateNextChars("RUE".toCharArray());
-            return new BoolProp(true);
+            validateNextChars(TRUE_TOKEN_REST);
+            return FormulaFactory.bool(true);
         case FALSE_TOKEN_PREFIX:
-            validateNextChars("ALSE".toCharArray());
-            return new BoolProp(false);
+            validateNextChars(FALSE_TOKEN_REST);
+            return FormulaFactory.bool(false);
         default:
             if (isLowerCase(nextChar)) {
                 reader.unread(nextChar);
                 String ident = parseOptionalIdentifier(true);
                 if (ident != null) {
-                    return new AtomicProp(ident);
+                    return FormulaFactory.atomic(ident);
                 }
             }
             throw new IOException("Expected state formula at this position.");
@@ -142,13 +147,13 @@ public class FormulaParser {
         char nextChar = reader.nextChar();
         switch (nextChar) {
         case ALWAYS_TOKEn:
-            return new Always(recursiveParseStateFormula(), actionSet1Identifier, actionSet1);
+            return FormulaFactory.always(recursiveParseStateFormula(), actionSet1Identifier, actionSet1);
         case NEXT_TOKEN:
-            return new Next(recursiveParseStateFormula(), actionSet1Identifier, actionSet1);
+            return FormulaFactory.next(recursiveParseStateFormula(), actionSet1Identifier, actionSet1);
         case EVENTUALLY_TOKEN:
             String actionSet2Identifier = parseOptionalIdentifier(false);
             Set<String> actionSet2 = getActions(actionSet2Identifier);
-            return new Eventually(recursiveParseStateFormula(), actionSet1Identifier, actionSet1, actionSet2Identifier, actionSet2);
+            return FormulaFactory.eventually(recursiveParseStateFormula(), actionSet1Identifier, actionSet1, actionSet2Identifier, actionSet2);
         case LEFT_BRACKET_TOKEN:
             Until until = parseUntil();
             validateNextChars(RIGHT_BRACKET_TOKEN);
@@ -166,16 +171,19 @@ public class FormulaParser {
         StateFormula rightFormula = recursiveParseStateFormula();
         Set<String> actionSet1 = getActions(actionSet1Identifier);
         Set<String> actionSet2 = getActions(actionSet2Identifier);
-        return new Until(leftFormula, rightFormula, actionSet1Identifier, actionSet1, actionSet2Identifier, actionSet2);
+        return FormulaFactory.until(leftFormula, rightFormula, actionSet1Identifier, actionSet1, actionSet2Identifier, actionSet2);
     }
 
     private void validateNextChars(char... chars) throws IOException {
-        for (char charIn : chars) {
-            char nextChar = reader.nextChar();
-            if (nextChar != charIn) {
-                reader.unread(nextChar);
-                throw new IOException("expected '" + charIn + "' but found '" + nextChar + "'");
-            }
+        for (char charIn : chars)
+            validateNextChars(charIn);
+    }
+
+    private void validateNextChars(char charIn) throws IOException {
+        char nextChar = reader.nextChar();
+        if (nextChar != charIn) {
+            reader.unread(nextChar);
+            throw new IOException("expected '" + charIn + "' but found '" + nextChar + "'");
         }
     }
 
@@ -188,32 +196,7 @@ public class FormulaParser {
      * @throws IOException
      */
     public String parseOptionalIdentifier(boolean allowWhitespacePrefix) throws IOException {
-        char nextChar;
-        if (allowWhitespacePrefix) {
-            nextChar = reader.nextChar();
-        } else {
-            nextChar = reader.rawRead();
-        }
-        if (isLowerCase(nextChar) || isNumericDigit(nextChar)) {
-            StringBuilder buffer = new StringBuilder(nextChar + "");
-            while (reader.ready()) {
-                nextChar = reader.rawRead();
-                if (isLowerCase(nextChar) || isNumericDigit(nextChar)) {
-                    buffer.append(nextChar + "");
-                } else {
-                    reader.unread(nextChar);
-                    break;
-                }
-            }
-            return buffer.toString();
-        } else {
-            reader.unread(nextChar);
-            return null;
-        }
-    }
-
-    private boolean isNumericDigit(char nextChar) {
-        return nextChar >= '0' && nextChar <= '9';
+        return reader.readIdentifier(allowWhitespacePrefix);
     }
 
     public boolean isLowerCase(char charIn) {
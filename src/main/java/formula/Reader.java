@@ -1,56 +1,168 @@
 package formula;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.PushbackReader;
 
+/**
+ * Reads the characters of a formula, skipping whitespace between tokens.
+ *
+ * The formula is read in place from its character sequence, by offset, so reading a character allocates nothing and
+ * an identifier costs only its string. Reading past the end returns {@link #EOF} (and can be unread like any other
+ * character), or fails with an IOException where a token is required. The position reported is that of the last
+ * character read, so an error raised after reading an unexpected character points at it.
+ */
 public class Reader {
-    private PushbackReader reader;
 
-    private int position = 1;
+    /**
+     * The character returned by {@link #rawRead()} past the end of the formula
+     */
+    public static final char EOF = '\uffff';
 
-    public Reader(InputStream inputStream) {
-        reader = new PushbackReader(new InputStreamReader(inputStream));
+    private final CharSequence formula;
+
+    private final int end;
+
+    /**
+     * The offset from which positions are counted
+     */
+    private final int base;
+
+    /**
+     * The offset of the next character to read
+     */
+    private int offset;
+
+    /**
+     * The offset of the last character read, or of the end if that was reached
+     */
+    private int last;
+
+    public Reader(CharSequence formula) {
+        this(formula, 0, formula.length());
     }
 
-    public Reader(String formula) {
-        this(new ByteArrayInputStream(formula.getBytes()));
+    /**
+     * Read the characters of a formula from start (inclusive) to end (exclusive), reporting positions from start.
+     */
+    public Reader(CharSequence formula, int start, int end) {
+        if (start < 0 || end > formula.length() || start > end)
+            throw new IndexOutOfBoundsException("range " + start + ".." + end + " of " + formula.length() + " characters");
+        this.formula = formula;
+        this.end = end;
+        offset = start;
+        last = start;
+        base = start;
+    }
+
+    /**
+     * Read the whole stream as a formula.
+     */
+    public Reader(InputStream inputStream) throws IOException {
+        this(readAll(inputStream));
+    }
+
+    private static String readAll(InputStream inputStream) throws IOException {
+        StringBuilder formula = new StringBuilder();
+        try (InputStreamReader reader = new InputStreamReader(inputStream)) {
+            char[] buffer = new char[1024];
+            for (int count; (count = reader.read(buffer)) >= 0; )
+                formula.append(buffer, 0, count);
+        }
+        return formula.toString();
     }
 
+    /**
+     * @return the next character which is not whitespace
+     * @throws IOException if the end of the formula is reached first
+     */
     public char nextChar() throws IOException {
-        while (reader.ready()) {
-            char nextChar = rawRead();
+        while (offset < end) {
+            char nextChar = formula.charAt(offset);
+            last = offset++;
             switch (nextChar) {
             case ' ':
             case '\n':
+            case '\r':
             case '\t':
                 continue;
             default:
                 return nextChar;
             }
         }
+        last = end;
         throw new IOException("Unexpected EOF.");
     }
 
-    public void unread(char charIn) throws IOException {
-        reader.unread(charIn);
-        position--;
+    /**
+     * Step back over the last character read, which is given for compatibility and not checked.
+     */
+    public void unread(char charIn) {
+        offset--;
     }
 
-    public char rawRead() throws IOException {
-        char nextChar = (char) reader.read();
-        position++;
-        return nextChar;
+    /**
+     * @return the next character, even if it is whitespace, or {@link #EOF} past the end
+     */
+    public char rawRead() {
+        int read = offset++;
+        if (read >= end) {
+            last = end;
+            return EOF;
+        }
+        last = read;
+        return formula.charAt(read);
+    }
+
+    /**
+     * @return true if there are characters left to read
+     */
+    public boolean ready() {
+        return offset < end;
+    }
+
+    /**
+     * Read an identifier: a sequence of lower case letters and digits, starting at the next character (or at the next
+     * one which is not whitespace).
+     * @return the identifier, or null (having read nothing) if there is none at that position
+     */
+    public String readIdentifier(boolean allowWhitespacePrefix) throws IOException {
+        int start = offset;
+        if (allowWhitespacePrefix) {
+            if (!skipWhitespace())
+                throw new IOException("Unexpected EOF.");
+            start = offset;
+        }
+        while (offset < end && isIdentifierChar(formula.charAt(offset)))
+            offset++;
+        if (offset == start)
+            return null;
+        last = offset - 1;
+        return formula.subSequence(start, offset).toString();
+    }
+
+    /**
+     * @return false if the end is reached
+     */
+    private boolean skipWhitespace() {
+        for (; offset < end; offset++) {
+            char c = formula.charAt(offset);
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t')
+                return true;
+        }
+        last = end;
+        return false;
     }
 
-    public boolean ready() throws IOException {
-        return reader.ready();
+    private static boolean isIdentifierChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
     }
 
+    /**
+     * @return the position, from 1, of the last character read, or one past the end if the end was reached
+     */
     public int getPosition() {
-        return position;
+        return last - base + 1;
     }
 
 }
@@ -78,4 +78,17 @@ public class Always extends PathFormula {
     public String getActionSetIdentifier2() {
         return actionSetIdentifier2;
     }
+
+    @Override
+    protected int structuralHashCode() {
+        return Objects.hash(Always.class, stateFormula, actionSetIdentifier1, actionSet1, actionSetIdentifier2, actionSet2);
+    }
+
+    @Override
+    protected boolean structurallyEquals(PathFormula other) {
+        Always f = (Always) other;
+        return stateFormula.equals(f.stateFormula)
+                && Objects.equals(actionSetIdentifier1, f.actionSetIdentifier1) && Objects.equals(actionSet1, f.actionSet1)
+                && Objects.equals(actionSetIdentifier2, f.actionSetIdentifier2) && Objects.equals(actionSet2, f.actionSet2);
+    }
 }
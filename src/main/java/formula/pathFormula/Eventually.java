@@ -45,4 +45,17 @@ public class Eventually extends PathFormula {
     public String getRightActionsIdentifier() {
         return rightActionsIdentifier;
     }
+
+    @Override
+    protected int structuralHashCode() {
+        return Objects.hash(Eventually.class, stateFormula, leftActionsIdentifier, leftActions, rightActionsIdentifier, rightActions);
+    }
+
+    @Override
+    protected boolean structurallyEquals(PathFormula other) {
+        Eventually f = (Eventually) other;
+        return stateFormula.equals(f.stateFormula)
+                && Objects.equals(leftActionsIdentifier, f.leftActionsIdentifier) && Objects.equals(leftActions, f.leftActions)
+                && Objects.equals(rightActionsIdentifier, f.rightActionsIdentifier) && Objects.equals(rightActions, f.rightActions);
+    }
 }
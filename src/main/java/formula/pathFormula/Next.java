@@ -2,6 +2,7 @@ package formula.pathFormula;
 
 import formula.FormulaParser;
 import formula.stateFormula.*;
+import java.util.Objects;
 import java.util.Set;
 
 public class Next extends PathFormula {
@@ -30,4 +31,16 @@ public class Next extends PathFormula {
     public String getActionSetIdentifier() {
         return actionSetIdentifier;
     }
+
+    @Override
+    protected int structuralHashCode() {
+        return Objects.hash(Next.class, stateFormula, actionSetIdentifier, actions);
+    }
+
+    @Override
+    protected boolean structurallyEquals(PathFormula other) {
+        Next f = (Next) other;
+        return stateFormula.equals(f.stateFormula)
+                && Objects.equals(actionSetIdentifier, f.actionSetIdentifier) && Objects.equals(actions, f.actions);
+    }
 }
@@ -1,17 +1,78 @@
 package formula.pathFormula;
 
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
 public abstract class PathFormula {
+    /**
+     * Canonical instances of every interned path formula, weakly held so that unused formulae can still be collected.
+     */
+    private static final Map<PathFormula, WeakReference<PathFormula>> canonical = new WeakHashMap<>();
+
+    private int hash;
+
+    private boolean interned;
+
     public abstract void writeToBuffer(StringBuilder buffer);
 
+    /**
+     * @return a hash over the structure of this formula, computed from the (cached) hash codes of its subformulae
+     */
+    protected abstract int structuralHashCode();
+
+    /**
+     * @param other a formula of the same class as this one
+     * @return true if this formula and the other have equal subformulae and action sets
+     */
+    protected abstract boolean structurallyEquals(PathFormula other);
+
+    /**
+     * Get the canonical instance of this formula, so that structurally equal formulae share one instance. The
+     * subformulae should already be canonical (as they are when built through {@link formula.FormulaFactory}).
+     * @return the canonical instance structurally equal to this formula
+     */
+    public PathFormula intern() {
+        if (interned)
+            return this;
+        synchronized (canonical) {
+            WeakReference<PathFormula> reference = canonical.get(this);
+            PathFormula existing = reference == null ? null : reference.get();
+            if (existing != null)
+                return existing;
+            interned = true;
+            canonical.put(this, new WeakReference<>(this));
+            return this;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buffer = new StringBuilder();
+        writeToBuffer(buffer);
+        return buffer.toString();
+    }
+
     @Override
     public int hashCode() {
-        StringBuilder sb = new StringBuilder();
-        writeToBuffer(sb);
-        return sb.toString().hashCode();
+        int h = hash;
+        if (h == 0) {
+            h = structuralHashCode();
+            hash = h;
+        }
+        return h;
     }
 
     @Override
     public boolean equals(Object other) {
-        return other == this || other instanceof PathFormula && hashCode() == other.hashCode();
+        if (other == this)
+            return true;
+        if (other == null || other.getClass() != getClass())
+            return false;
+        PathFormula f = (PathFormula) other;
+        // two distinct canonical instances are never structurally equal
+        if (interned && f.interned)
+            return false;
+        return hashCode() == f.hashCode() && structurallyEquals(f);
     }
 }
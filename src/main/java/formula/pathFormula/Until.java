@@ -2,6 +2,7 @@ package formula.pathFormula;
 
 import formula.*;
 import formula.stateFormula.*;
+import java.util.Objects;
 import java.util.Set;
 
 public class Until extends PathFormula {
@@ -52,4 +53,17 @@ public class Until extends PathFormula {
     public String getRightActionsIdentifier() {
         return rightActionsIdentifier;
     }
+
+    @Override
+    protected int structuralHashCode() {
+        return Objects.hash(Until.class, left, right, leftActionsIdentifier, leftActions, rightActionsIdentifier, rightActions);
+    }
+
+    @Override
+    protected boolean structurallyEquals(PathFormula other) {
+        Until f = (Until) other;
+        return left.equals(f.left) && right.equals(f.right)
+                && Objects.equals(leftActionsIdentifier, f.leftActionsIdentifier) && Objects.equals(leftActions, f.leftActions)
+                && Objects.equals(rightActionsIdentifier, f.rightActionsIdentifier) && Objects.equals(rightActions, f.rightActions);
+    }
 }
@@ -1,5 +1,7 @@
 package formula.stateFormula;
 
+import java.util.Objects;
+
 public class And extends StateFormula {
     public final StateFormula left;
     public final StateFormula right;
@@ -17,4 +19,15 @@ public class And extends StateFormula {
         right.writeToBuffer(buffer);
         buffer.append(")");
     }
-}
\ No newline at end of file
+
+    @Override
+    protected int structuralHashCode() {
+        return Objects.hash(And.class, left, right);
+    }
+
+    @Override
+    protected boolean structurallyEquals(StateFormula other) {
+        And f = (And) other;
+        return left.equals(f.left) && right.equals(f.right);
+    }
+}
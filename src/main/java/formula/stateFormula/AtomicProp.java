@@ -1,5 +1,7 @@
 package formula.stateFormula;
 
+import java.util.Objects;
+
 public class AtomicProp extends StateFormula {
     public final String label;
 
@@ -11,4 +13,14 @@ public class AtomicProp extends StateFormula {
     public void writeToBuffer(StringBuilder buffer) {
         buffer.append(" " + label + " ");
     }
+
+    @Override
+    protected int structuralHashCode() {
+        return Objects.hash(AtomicProp.class, label);
+    }
+
+    @Override
+    protected boolean structurallyEquals(StateFormula other) {
+        return label.equals(((AtomicProp) other).label);
+    }
 }
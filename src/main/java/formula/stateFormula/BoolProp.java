@@ -1,5 +1,7 @@
 package formula.stateFormula;
 
+import java.util.Objects;
+
 public class BoolProp extends StateFormula {
     public final boolean value;
 
@@ -12,4 +14,14 @@ public class BoolProp extends StateFormula {
         String stringValue = (value) ? "True" : "False";
         buffer.append(" " + stringValue + " ");
     }
+
+    @Override
+    protected int structuralHashCode() {
+        return Objects.hash(BoolProp.class, value);
+    }
+
+    @Override
+    protected boolean structurallyEquals(StateFormula other) {
+        return value == ((BoolProp) other).value;
+    }
 }
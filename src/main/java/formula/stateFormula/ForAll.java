@@ -2,6 +2,7 @@ package formula.stateFormula;
 
 import formula.*;
 import formula.pathFormula.PathFormula;
+import java.util.Objects;
 
 public class ForAll extends StateFormula {
     public final PathFormula pathFormula;
@@ -17,4 +18,14 @@ public class ForAll extends StateFormula {
         pathFormula.writeToBuffer(buffer);
         buffer.append(")");
     }
+
+    @Override
+    protected int structuralHashCode() {
+        return Objects.hash(ForAll.class, pathFormula);
+    }
+
+    @Override
+    protected boolean structurallyEquals(StateFormula other) {
+        return pathFormula.equals(((ForAll) other).pathFormula);
+    }
 }
@@ -1,6 +1,7 @@
 package formula.stateFormula;
 
 import formula.FormulaParser;
+import java.util.Objects;
 
 public class Not extends StateFormula {
     public final StateFormula stateFormula;
@@ -16,4 +17,14 @@ public class Not extends StateFormula {
         stateFormula.writeToBuffer(buffer);
         buffer.append(")");
     }
+
+    @Override
+    protected int structuralHashCode() {
+        return Objects.hash(Not.class, stateFormula);
+    }
+
+    @Override
+    protected boolean structurallyEquals(StateFormula other) {
+        return stateFormula.equals(((Not) other).stateFormula);
+    }
 }
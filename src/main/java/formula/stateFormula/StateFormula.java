@@ -1,8 +1,51 @@
 package formula.stateFormula;
 
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
 public abstract class StateFormula {
+    /**
+     * Canonical instances of every interned state formula, weakly held so that unused formulae can still be collected.
+     */
+    private static final Map<StateFormula, WeakReference<StateFormula>> canonical = new WeakHashMap<>();
+
+    private int hash;
+
+    private boolean interned;
+
     public abstract void writeToBuffer(StringBuilder buffer);
 
+    /**
+     * @return a hash over the structure of this formula, computed from the (cached) hash codes of its subformulae
+     */
+    protected abstract int structuralHashCode();
+
+    /**
+     * @param other a formula of the same class as this one
+     * @return true if this formula and the other have equal subformulae and parameters
+     */
+    protected abstract boolean structurallyEquals(StateFormula other);
+
+    /**
+     * Get the canonical instance of this formula, so that structurally equal formulae share one instance. The
+     * subformulae should already be canonical (as they are when built through {@link formula.FormulaFactory}).
+     * @return the canonical instance structurally equal to this formula
+     */
+    public StateFormula intern() {
+        if (interned)
+            return this;
+        synchronized (canonical) {
+            WeakReference<StateFormula> reference = canonical.get(this);
+            StateFormula existing = reference == null ? null : reference.get();
+            if (existing != null)
+                return existing;
+            interned = true;
+            canonical.put(this, new WeakReference<>(this));
+            return this;
+        }
+    }
+
     @Override
     public String toString() {
         StringBuilder buffer = new StringBuilder();
@@ -12,13 +55,24 @@ public abstract class StateFormula {
 
     @Override
     public int hashCode() {
-        StringBuilder sb = new StringBuilder();
-        writeToBuffer(sb);
-        return sb.toString().hashCode();
+        int h = hash;
+        if (h == 0) {
+            h = structuralHashCode();
+            hash = h;
+        }
+        return h;
     }
 
     @Override
     public boolean equals(Object other) {
-        return other == this || other instanceof StateFormula && hashCode() == other.hashCode();
+        if (other == this)
+            return true;
+        if (other == null || other.getClass() != getClass())
+            return false;
+        StateFormula f = (StateFormula) other;
+        // two distinct canonical instances are never structurally equal
+        if (interned && f.interned)
+            return false;
+        return hashCode() == f.hashCode() && structurallyEquals(f);
     }
 }
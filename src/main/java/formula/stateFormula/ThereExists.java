@@ -2,6 +2,7 @@ package formula.stateFormula;
 
 import formula.FormulaParser;
 import formula.pathFormula.PathFormula;
+import java.util.Objects;
 
 public class ThereExists extends StateFormula {
     public final PathFormula pathFormula;
@@ -17,4 +18,14 @@ public class ThereExists extends StateFormula {
         pathFormula.writeToBuffer(buffer);
         buffer.append(")");
     }
+
+    @Override
+    protected int structuralHashCode() {
+        return Objects.hash(ThereExists.class, pathFormula);
+    }
+
+    @Override
+    protected boolean structurallyEquals(StateFormula other) {
+        return pathFormula.equals(((ThereExists) other).pathFormula);
+    }
 }
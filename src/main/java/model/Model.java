@@ -12,6 +12,14 @@ public class Model {
     State[] states;
     Transition[] transitions;
 
+    private Model() {
+    }
+
+    public Model(State[] states, Transition[] transitions) {
+        this.states = states;
+        this.transitions = transitions;
+    }
+
     public static Model parseModel(String filePath) throws IOException {
         Gson gson = new Gson();
         Model model = gson.fromJson(new FileReader(filePath), Model.class);
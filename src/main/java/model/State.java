@@ -15,13 +15,21 @@ public class State {
     private String name;
     private String [] label;
 
+    private State() {
+    }
+
+    public State(String name, boolean init, String[] label) {
+        this.name = name;
+        this.init = init;
+        this.label = label;
+    }
+
     public Set<State> directPredecessors(ModelWrapper m) {
         HashSet<State> predecessors = new HashSet<>();
         // add all states for which this state is the target
-        for (Transition t : m.getTransitions()) {
-            if (t.getTarget().equals(name))
-                predecessors.add(m.getState(t.getSource()));
-        }
+        int id = m.getStateId(name);
+        for (int i = 0; i < m.getInDegree(id); i++)
+            predecessors.add(m.getState(m.getSource(m.getIncoming(id, i))));
         return predecessors;
     }
 
@@ -10,6 +10,15 @@ public class  Transition {
     private String source;
     private String target;
     private String [] actions;
+
+    private Transition() {
+    }
+
+    public Transition(String source, String target, String[] actions) {
+	this.source = source;
+	this.target = target;
+	this.actions = actions;
+    }
 	
     /**
      * Returns the source state of a transition.
@@ -0,0 +1,71 @@
+package model.generator;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a generated model in the JSON form read by Model.parseModel and ModelLoader, as it is generated, with the
+ * states before the transitions.
+ */
+public class JsonModelWriter implements ModelSink, Closeable {
+
+    private final JsonWriter json;
+
+    private boolean inTransitions;
+
+    /**
+     * @param out the writer to write to, which is closed with this one
+     */
+    public JsonModelWriter(Writer out) throws IOException {
+        json = new JsonWriter(out);
+        json.beginObject();
+        json.name("states").beginArray();
+    }
+
+    @Override
+    public void state(String name, boolean init, String[] labels) throws IOException {
+        if (inTransitions)
+            throw new IllegalStateException("state after transitions: " + name);
+        json.beginObject();
+        json.name("name").value(name);
+        json.name("init").value(init);
+        strings("label", labels);
+        json.endObject();
+    }
+
+    @Override
+    public void transition(String source, String target, String[] actions) throws IOException {
+        if (!inTransitions) {
+            json.endArray();
+            json.name("transitions").beginArray();
+            inTransitions = true;
+        }
+        json.beginObject();
+        json.name("source").value(source);
+        json.name("target").value(target);
+        strings("actions", actions);
+        json.endObject();
+    }
+
+    private void strings(String name, String[] values) throws IOException {
+        json.name(name).beginArray();
+        for (String value : values)
+            json.value(value);
+        json.endArray();
+    }
+
+    /**
+     * Finish the document and close the underlying writer.
+     */
+    @Override
+    public void close() throws IOException {
+        json.endArray();
+        if (!inTransitions)
+            json.name("transitions").beginArray().endArray();
+        json.endObject();
+        json.close();
+    }
+}
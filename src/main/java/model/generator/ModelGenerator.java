@@ -0,0 +1,388 @@
+package model.generator;
+
+import model.Model;
+import model.State;
+import model.Transition;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates models of parameterised families, at any size, for benchmarks and stress tests.
+ *
+ * A generator streams its states, all of them first, and then its transitions to a {@link ModelSink}, which either
+ * builds a {@link Model} ({@link #toModel()}) or writes the JSON form of the model ({@link #write(Writer)}). Models of
+ * millions of states are best written to a file and read back with ModelLoader, which never holds them as objects.
+ *
+ * The structural families (chains, rings, grids and random graphs) name their states s0 .. s(n - 1), with s0 the only
+ * initial state. The protocol families (dining philosophers and mutual exclusion) are the reachable states of n
+ * processes, each cycling through three phases, from the state in which every process is in its first phase. A state
+ * is named by the initial letter of the phase of each process, and labelled with the phase of each process, as
+ * "eating2"; the step of process i carries the action i (modulo its size) of the action alphabet.
+ *
+ * Every state is also given each label of the label alphabet with the label probability, and each transition of a
+ * structural family one action of the action alphabet. These choices are drawn from the seed, so a generator with the
+ * same parameters always gives the same model.
+ */
+public abstract class ModelGenerator {
+
+    private String[] labels = {"p", "q"};
+
+    private double labelProbability = 0.5;
+
+    /**
+     * The action alphabet, as the arrays of one action given to transitions
+     */
+    private String[][] actions = {{"a"}, {"b"}};
+
+    private long seed = 42;
+
+    ModelGenerator() {
+    }
+
+    //******** FAMILIES ********//
+
+    /**
+     * @return s0 -> s1 -> ... -> s(n - 1), with a loop on the last state
+     */
+    public static ModelGenerator chain(int states) {
+        return new Structural(states) {
+            @Override
+            void transitions(int s, ModelSink sink, Random random) throws IOException {
+                transition(sink, s, Math.min(s + 1, size - 1), random);
+            }
+        };
+    }
+
+    /**
+     * @return s0 -> s1 -> ... -> s(n - 1) -> s0
+     */
+    public static ModelGenerator ring(int states) {
+        return new Structural(states) {
+            @Override
+            void transitions(int s, ModelSink sink, Random random) throws IOException {
+                transition(sink, s, (s + 1) % size, random);
+            }
+        };
+    }
+
+    /**
+     * @return the states of a grid, row by row, each with a transition to the next state in its row and in its
+     * column, and a loop on the last state
+     */
+    public static ModelGenerator grid(int rows, int columns) {
+        if (rows <= 0 || columns <= 0)
+            throw new IllegalArgumentException("grid must have rows and columns: " + rows + "x" + columns);
+        return new Structural(checkedSize((long) rows * columns)) {
+            @Override
+            void transitions(int s, ModelSink sink, Random random) throws IOException {
+                if (s % columns + 1 < columns)
+                    transition(sink, s, s + 1, random);
+                if (s + columns < size)
+                    transition(sink, s, s + columns, random);
+                if (s == size - 1)
+                    transition(sink, s, s, random);
+            }
+        };
+    }
+
+    /**
+     * @return a graph in which each state has between the minimum and the maximum number of successors (uniformly),
+     * each chosen uniformly among all states
+     */
+    public static ModelGenerator random(int states, int minDegree, int maxDegree) {
+        if (minDegree < 0 || maxDegree < minDegree)
+            throw new IllegalArgumentException("invalid degree range: " + minDegree + ".." + maxDegree);
+        return new Structural(states) {
+            @Override
+            void transitions(int s, ModelSink sink, Random random) throws IOException {
+                int degree = minDegree + random.nextInt(maxDegree - minDegree + 1);
+                for (int i = 0; i < degree; i++)
+                    transition(sink, s, random.nextInt(size), random);
+            }
+        };
+    }
+
+    /**
+     * Philosopher i thinks, takes fork i on its left when it is free and is then hungry, takes fork i + 1 (mod n) on
+     * its right when it is free and eats, and then puts both down. The state in which every philosopher holds its
+     * left fork is a deadlock.
+     * @return the reachable states of n philosophers around a table, labelled "thinking", "hungry" and "eating"
+     */
+    public static ModelGenerator diningPhilosophers(int philosophers) {
+        if (philosophers < 2)
+            throw new IllegalArgumentException("expected at least two philosophers: " + philosophers);
+        return new Protocol(philosophers, "thinking", "hungry", "eating") {
+            @Override
+            boolean enabled(int[] phases, int i) {
+                int n = phases.length;
+                if (phases[i] == 0)
+                    // the left neighbour holds fork i while it eats
+                    return phases[(i + n - 1) % n] != 2;
+                if (phases[i] == 1)
+                    // the right neighbour holds fork i + 1 from when it is hungry
+                    return phases[(i + 1) % n] == 0;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Process i is idle, then waits, then enters its critical section if no other process is in its own, and then
+     * leaves it.
+     * @return the reachable states of n processes, labelled "idle", "wait" and "crit"
+     */
+    public static ModelGenerator mutex(int processes) {
+        return new Protocol(processes, "idle", "wait", "crit") {
+            @Override
+            boolean enabled(int[] phases, int i) {
+                if (phases[i] != 1)
+                    return true;
+                for (int phase : phases)
+                    if (phase == 2)
+                        return false;
+                return true;
+            }
+        };
+    }
+
+    //******** PARAMETERS ********//
+
+    /**
+     * @param labels the label alphabet, from which each state is given random labels
+     */
+    public ModelGenerator labels(String... labels) {
+        this.labels = labels.clone();
+        return this;
+    }
+
+    /**
+     * @param probability the probability with which a state is given each label of the alphabet
+     */
+    public ModelGenerator labelProbability(double probability) {
+        if (!(probability >= 0 && probability <= 1))
+            throw new IllegalArgumentException("probability must be between 0 and 1: " + probability);
+        labelProbability = probability;
+        return this;
+    }
+
+    /**
+     * @param actions the action alphabet, from which each transition is given one action, or none if it is empty
+     */
+    public ModelGenerator actions(String... actions) {
+        this.actions = new String[actions.length][];
+        for (int i = 0; i < actions.length; i++)
+            this.actions[i] = new String[]{actions[i]};
+        return this;
+    }
+
+    public ModelGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    //******** OUTPUT ********//
+
+    /**
+     * Stream the model to the sink, its states first.
+     */
+    public void generate(ModelSink sink) throws IOException {
+        generate(sink, new Random(seed));
+    }
+
+    abstract void generate(ModelSink sink, Random random) throws IOException;
+
+    public Model toModel() {
+        List<State> states = new ArrayList<>();
+        List<Transition> transitions = new ArrayList<>();
+        try {
+            generate(new ModelSink() {
+                @Override
+                public void state(String name, boolean init, String[] labels) {
+                    states.add(new State(name, init, labels));
+                }
+
+                @Override
+                public void transition(String source, String target, String[] actions) {
+                    transitions.add(new Transition(source, target, actions));
+                }
+            });
+        } catch (IOException e) {
+            // the sink does not do any I/O
+            throw new UncheckedIOException(e);
+        }
+        return new Model(states.toArray(new State[states.size()]), transitions.toArray(new Transition[transitions.size()]));
+    }
+
+    /**
+     * Write the model in JSON form, closing the writer.
+     */
+    public void write(Writer out) throws IOException {
+        try (JsonModelWriter json = new JsonModelWriter(out)) {
+            generate(json);
+        }
+    }
+
+    public void write(Path file) throws IOException {
+        write(new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @return the random labels of a state, after the given ones
+     */
+    String[] labels(Random random, String... fixed) {
+        String[] stateLabels = Arrays.copyOf(fixed, fixed.length + labels.length);
+        int count = fixed.length;
+        for (String label : labels)
+            if (random.nextDouble() < labelProbability)
+                stateLabels[count++] = label;
+        return count == stateLabels.length ? stateLabels : Arrays.copyOf(stateLabels, count);
+    }
+
+    /**
+     * @return the actions of a transition: the i-th action (mod the size of the alphabet), or a random one if i < 0
+     */
+    String[] actions(Random random, int i) {
+        if (actions.length == 0)
+            return new String[0];
+        return actions[(i < 0 ? random.nextInt(actions.length) : i) % actions.length];
+    }
+
+    private static int checkedSize(long states) {
+        if (states <= 0 || states > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("number of states out of range: " + states);
+        return (int) states;
+    }
+
+    /**
+     * A family with states s0 .. s(n - 1), listed in order, and then the transitions from each in order.
+     */
+    private abstract static class Structural extends ModelGenerator {
+
+        final int size;
+
+        Structural(int size) {
+            this.size = checkedSize(size);
+        }
+
+        @Override
+        void generate(ModelSink sink, Random random) throws IOException {
+            for (int s = 0; s < size; s++)
+                sink.state("s" + s, s == 0, labels(random));
+            for (int s = 0; s < size; s++)
+                transitions(s, sink, random);
+        }
+
+        abstract void transitions(int s, ModelSink sink, Random random) throws IOException;
+
+        void transition(ModelSink sink, int source, int target, Random random) throws IOException {
+            sink.transition("s" + source, "s" + target, actions(random, -1));
+        }
+    }
+
+    /**
+     * A family of processes, each moving from one phase to the next (and from the last to the first) when its step is
+     * enabled. A global state is encoded as the number whose base 3 digits are the phases of the processes, and the
+     * reachable ones are found by a breadth-first search.
+     */
+    private abstract static class Protocol extends ModelGenerator {
+
+        /**
+         * 3^19 is the largest power of 3 that is an int
+         */
+        private static final int MAX_PROCESSES = 19;
+
+        private final int processes;
+
+        private final String[] phaseNames;
+
+        Protocol(int processes, String... phaseNames) {
+            if (processes <= 0 || processes > MAX_PROCESSES)
+                throw new IllegalArgumentException("number of processes out of range: " + processes);
+            this.processes = processes;
+            this.phaseNames = phaseNames;
+        }
+
+        /**
+         * @return whether process i may move on to its next phase
+         */
+        abstract boolean enabled(int[] phases, int i);
+
+        @Override
+        void generate(ModelSink sink, Random random) throws IOException {
+            int[] powers = new int[processes];
+            powers[0] = 1;
+            for (int i = 1; i < processes; i++)
+                powers[i] = powers[i - 1] * 3;
+            int[] phases = new int[processes];
+            // every state, in the order in which it was reached
+            int[] order = new int[1024];
+            int count = 1;
+            BitSet reached = new BitSet();
+            reached.set(0);
+            for (int head = 0; head < count; head++) {
+                int code = order[head];
+                decode(code, phases);
+                sink.state(name(phases), code == 0, labels(random, phaseLabels(phases)));
+                for (int i = 0; i < processes; i++) {
+                    int next = successor(code, phases, i, powers);
+                    if (next < 0 || reached.get(next))
+                        continue;
+                    reached.set(next);
+                    if (count == order.length)
+                        order = Arrays.copyOf(order, order.length * 2);
+                    order[count++] = next;
+                }
+            }
+            for (int head = 0; head < count; head++) {
+                decode(order[head], phases);
+                String name = name(phases);
+                for (int i = 0; i < processes; i++) {
+                    int next = successor(order[head], phases, i, powers);
+                    if (next < 0)
+                        continue;
+                    phases[i] = (phases[i] + 1) % 3;
+                    sink.transition(name, name(phases), actions(random, i));
+                    phases[i] = (phases[i] + 2) % 3;
+                }
+            }
+        }
+
+        /**
+         * @return the code of the state after the step of process i, or -1 if it is not enabled
+         */
+        private int successor(int code, int[] phases, int i, int[] powers) {
+            if (!enabled(phases, i))
+                return -1;
+            return phases[i] == 2 ? code - 2 * powers[i] : code + powers[i];
+        }
+
+        private void decode(int code, int[] phases) {
+            for (int i = 0; i < processes; i++) {
+                phases[i] = code % 3;
+                code /= 3;
+            }
+        }
+
+        private String name(int[] phases) {
+            char[] name = new char[processes];
+            for (int i = 0; i < processes; i++)
+                name[i] = phaseNames[phases[i]].charAt(0);
+            return new String(name);
+        }
+
+        private String[] phaseLabels(int[] phases) {
+            String[] labels = new String[processes];
+            for (int i = 0; i < processes; i++)
+                labels[i] = phaseNames[phases[i]] + i;
+            return labels;
+        }
+    }
+}
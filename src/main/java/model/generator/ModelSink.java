@@ -0,0 +1,13 @@
+package model.generator;
+
+import java.io.IOException;
+
+/**
+ * Receives the states of a generated model, all of them before any transition.
+ */
+public interface ModelSink {
+
+    void state(String name, boolean init, String[] labels) throws IOException;
+
+    void transition(String source, String target, String[] actions) throws IOException;
+}
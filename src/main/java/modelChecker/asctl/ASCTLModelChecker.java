@@ -4,22 +4,154 @@ import formula.stateFormula.*;
 import model.Model;
 import modelChecker.ModelChecker;
 
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 public class ASCTLModelChecker implements ModelChecker {
 
     private List<String> counterexamplePath;
 
+    private ForkJoinPool pool;
+
+    private int parallelThreshold = ModelMarker.DEFAULT_PARALLEL_THRESHOLD;
+
+    private SubformulaCache cache;
+
+    private MarkingListener listener;
+
+    private boolean local;
+
+    private ProgramCache programs;
+
+    public ASCTLModelChecker() {
+    }
+
+    /**
+     * @param pool the pool on which independent subformulae are marked in parallel
+     */
+    public ASCTLModelChecker(ForkJoinPool pool) {
+        this(pool, ModelMarker.DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * @param pool the pool on which independent subformulae, and the states of large models, are marked in parallel
+     * @param parallelThreshold the number of states from which the marking of each subformula is partitioned over
+     *                          the pool
+     */
+    public ASCTLModelChecker(ForkJoinPool pool, int parallelThreshold) {
+        this.pool = pool;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * @param cache a cache of satisfaction sets to share between checks, or null to mark every query from scratch
+     */
+    public void setCache(SubformulaCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @param listener the listener to tell the cost of each subformula marked and counterexample built, or null
+     * @see MarkingReport
+     */
+    public void setListener(MarkingListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param local true to decide queries with a {@link LocalMarker}, searching only the states on which the value of
+     *              each subformula is needed; the pool, cache and listener are then only used to mark the model again
+     *              for the counterexample of a query which does not hold
+     */
+    public void setLocal(boolean local) {
+        this.local = local;
+    }
+
+    /**
+     * @param programs a cache of compiled programs to share between checks, or null to mark each query with a
+     *                 {@link ModelMarker}; programs run on the calling thread, without the pool, the subformula cache or
+     *                 the listener, and a query checked locally is not compiled
+     */
+    public void setProgramCache(ProgramCache programs) {
+        this.programs = programs;
+    }
+
     @Override
     public boolean check(Model model, StateFormula constraint, StateFormula query) {
-        ModelWrapper m = new ModelWrapper(model);
-        ModelMarker marker = new ModelMarker(m);
-        if (!marker.isModelSatisfied(query, constraint)) {
-            CounterexampleGenerator generator = new CounterexampleGenerator(marker);
-            counterexamplePath = generator.makeCounterexample(query, constraint);
-            return false;
+        return check(new ModelWrapper(model), constraint, query);
+    }
+
+    /**
+     * Check an already indexed model, such as one read by {@link ModelLoader}.
+     */
+    public boolean check(ModelWrapper m, StateFormula constraint, StateFormula query) {
+        CheckResult result = evaluate(m, constraint, query);
+        if (!result.holds())
+            counterexamplePath = result.getTrace();
+        return result.holds();
+    }
+
+    /**
+     * Check a query without keeping anything in the checker. Once the checker is configured, this may be called from
+     * any number of threads at once, on the same or different models; unlike {@link #check} and {@link #getTrace}, it
+     * does not share a trace between calls.
+     * @return the verdict, with its counterexample if the query does not hold
+     */
+    public CheckResult evaluate(ModelWrapper m, StateFormula constraint, StateFormula query) {
+        CheckerEvents.Check event = CheckerEvents.beginCheck();
+        long start = System.nanoTime();
+        ModelMarker marker = null;
+        boolean holds;
+        if (local) {
+            holds = new LocalMarker(m).isModelSatisfied(query, constraint);
+        } else if (programs != null) {
+            FormulaProgram program = programs.get(constraint, query);
+            BitSet[] registers = program.run(m);
+            holds = program.holds(m, registers);
+            if (!holds)
+                marker = program.toMarker(m, registers);
+        } else {
+            marker = newMarker(m);
+            holds = marker.isModelSatisfied(query, constraint);
         }
-        return true;
+        List<String> trace = null;
+        if (!holds) {
+            if (marker == null) {
+                // mark the whole model, so the counterexample is the one the global check would give
+                marker = newMarker(m);
+                marker.isModelSatisfied(query, constraint);
+            }
+            trace = new CounterexampleGenerator(marker).makeCounterexample(query, constraint);
+        }
+        CheckResult result = new CheckResult(constraint, query, holds, trace, System.nanoTime() - start);
+        CheckerEvents.commit(event, constraint, query, m, holds);
+        return result;
+    }
+
+    /**
+     * Check a query on the common pool, such as to fan a query out over many models.
+     */
+    public CompletableFuture<CheckResult> evaluateAsync(ModelWrapper m, StateFormula constraint, StateFormula query) {
+        return CompletableFuture.supplyAsync(() -> evaluate(m, constraint, query));
+    }
+
+    /**
+     * Check a query on the given executor.
+     */
+    public CompletableFuture<CheckResult> evaluateAsync(ModelWrapper m, StateFormula constraint, StateFormula query,
+                                                       Executor executor) {
+        return CompletableFuture.supplyAsync(() -> evaluate(m, constraint, query), executor);
+    }
+
+    private ModelMarker newMarker(ModelWrapper m) {
+        ModelMarker marker = new ModelMarker(m, pool);
+        marker.setParallelThreshold(parallelThreshold);
+        marker.setCache(cache);
+        marker.setListener(listener);
+        return marker;
     }
 
     @Override
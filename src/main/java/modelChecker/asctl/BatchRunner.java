@@ -0,0 +1,338 @@
+package modelChecker.asctl;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import formula.FormulaParser;
+import formula.stateFormula.BoolProp;
+import formula.stateFormula.StateFormula;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks many (model, constraint, query) triples in one process, loading each model once and checking its formulae on
+ * a bounded pool: one virtual thread per check where the JDK has them (limited to the given number running at once),
+ * and a fixed pool of that many threads otherwise. Each result is written as soon as it is known, as one line of JSON:
+ *
+ * {"model": path, "constraint": path, "query": path, "holds": true, "trace": [state names], "nanos": time}
+ *
+ * without a constraint or trace when there is none, or with "error" in place of the result if the model or a formula
+ * could not be read. At most as many models as threads are held at once.
+ *
+ * The triples are read from manifests, text files with one triple per line as "model query [constraint]" (relative to
+ * the manifest; blank lines and lines starting with # are ignored), or from directories laid out as the test resources
+ * are: in each directory, every JSON file whose name contains "model" is a model, every one containing "constraint" a
+ * constraint, and every other one a query, checked on each model without a constraint and under each constraint.
+ * Models in the binary format of {@link ModelFile} end in ".bin", and are mapped rather than parsed.
+ */
+public class BatchRunner {
+
+    private final ASCTLModelChecker checker;
+
+    private final int threads;
+
+    private final Writer out;
+
+    private final Gson gson = new Gson();
+
+    /**
+     * The formulae read so far, or the errors reading them
+     */
+    private final Map<Path, Object> formulae = new ConcurrentHashMap<>();
+
+    private int holding;
+
+    private int failing;
+
+    private int errors;
+
+    /**
+     * @param checker the checker to share between the threads, configured as needed
+     * @param threads the number of checks to run at once
+     * @param out the writer of the results, which is flushed after each line
+     */
+    public BatchRunner(ASCTLModelChecker checker, int threads, Writer out) {
+        if (threads <= 0)
+            throw new IllegalArgumentException("number of threads must be positive: " + threads);
+        this.checker = checker;
+        this.threads = threads;
+        this.out = out;
+    }
+
+    /**
+     * @param args the options, then the manifests and directories to check
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean local = false;
+        String output = null;
+        List<Check> checks = new ArrayList<>();
+        try {
+            int i = 0;
+            for (; i < args.length && args[i].startsWith("-"); i++) {
+                if (args[i].equals("-j") && i + 1 < args.length)
+                    threads = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-o") && i + 1 < args.length)
+                    output = args[++i];
+                else if (args[i].equals("--local"))
+                    local = true;
+                else
+                    throw new IllegalArgumentException("unknown option: " + args[i]);
+            }
+            if (i == args.length)
+                throw new IllegalArgumentException("no manifest or directory given");
+            for (; i < args.length; i++) {
+                Path path = Paths.get(args[i]);
+                checks.addAll(Files.isDirectory(path) ? scanDirectory(path) : readManifest(path));
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("usage: BatchRunner [-j threads] [-o results.jsonl] [--local] <manifest | directory>...");
+            System.exit(2);
+        }
+        ASCTLModelChecker checker = new ASCTLModelChecker();
+        checker.setLocal(local);
+        Writer out = new BufferedWriter(output == null
+                ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8));
+        BatchRunner runner = new BatchRunner(checker, threads, out);
+        long start = System.nanoTime();
+        runner.run(checks);
+        out.flush();
+        if (output != null)
+            out.close();
+        System.err.printf("%d checks in %.1f ms: %d hold, %d fail, %d errors%n", checks.size(),
+                (System.nanoTime() - start) / 1e6, runner.holding, runner.failing, runner.errors);
+        System.exit(runner.errors > 0 ? 1 : 0);
+    }
+
+    //******** INPUT ********//
+
+    /**
+     * One query to check on a model, under a constraint or none.
+     */
+    public static final class Check {
+
+        private final Path model;
+
+        private final Path constraint;
+
+        private final Path query;
+
+        /**
+         * @param constraint the path of the constraint, or null to check without one
+         */
+        public Check(Path model, Path constraint, Path query) {
+            this.model = model;
+            this.constraint = constraint;
+            this.query = query;
+        }
+
+        public Path getModel() {
+            return model;
+        }
+
+        public Path getConstraint() {
+            return constraint;
+        }
+
+        public Path getQuery() {
+            return query;
+        }
+    }
+
+    public static List<Check> readManifest(Path manifest) throws IOException {
+        Path base = manifest.toAbsolutePath().getParent();
+        List<Check> checks = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            String[] fields = line.split("\\s+");
+            if (fields.length < 2 || fields.length > 3)
+                throw new IOException(manifest + ":" + lineNumber + ": expected model, query and optional constraint: " + line);
+            checks.add(new Check(base.resolve(fields[0]), fields.length == 3 ? base.resolve(fields[2]) : null,
+                    base.resolve(fields[1])));
+        }
+        return checks;
+    }
+
+    /**
+     * @return the checks of every directory under the given one, in order of path
+     */
+    public static List<Check> scanDirectory(Path directory) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        Map<Path, List<Path>> byDirectory = new TreeMap<>();
+        for (Path file : files)
+            byDirectory.computeIfAbsent(file.getParent(), d -> new ArrayList<>()).add(file);
+        List<Check> checks = new ArrayList<>();
+        for (List<Path> group : byDirectory.values()) {
+            List<Path> models = new ArrayList<>();
+            List<Path> constraints = new ArrayList<>();
+            List<Path> queries = new ArrayList<>();
+            for (Path file : group) {
+                String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+                if (name.contains("model") && (name.endsWith(".json") || name.endsWith(".bin")))
+                    models.add(file);
+                else if (name.contains("constraint") && name.endsWith(".json"))
+                    constraints.add(file);
+                else if (name.endsWith(".json"))
+                    queries.add(file);
+            }
+            for (Path model : models) {
+                for (Path query : queries) {
+                    checks.add(new Check(model, null, query));
+                    for (Path constraint : constraints)
+                        checks.add(new Check(model, constraint, query));
+                }
+            }
+        }
+        return checks;
+    }
+
+    //******** CHECKING ********//
+
+    /**
+     * Run the checks, writing each result as it is known, and return once they have all been written.
+     */
+    public void run(List<Check> checks) throws InterruptedException {
+        Map<Path, List<Check>> byModel = new LinkedHashMap<>();
+        for (Check check : checks)
+            byModel.computeIfAbsent(check.model, m -> new ArrayList<>()).add(check);
+        ExecutorService executor = newExecutor(threads);
+        // bounds the checks running at once, as virtual threads are not pooled
+        Semaphore running = new Semaphore(threads);
+        Semaphore models = new Semaphore(threads);
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        try {
+            for (Map.Entry<Path, List<Check>> entry : byModel.entrySet()) {
+                models.acquire();
+                CompletableFuture<ModelWrapper> model = CompletableFuture.supplyAsync(
+                        () -> bounded(running, () -> load(entry.getKey())), executor);
+                List<CompletableFuture<Void>> results = new ArrayList<>();
+                for (Check check : entry.getValue())
+                    results.add(model.thenAcceptAsync(m -> bounded(running, () -> check(m, check)), executor)
+                            .exceptionally(e -> {
+                                error(check, e instanceof CompletionException ? e.getCause() : e);
+                                return null;
+                            }));
+                pending.add(CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0]))
+                        .whenComplete((v, e) -> models.release()));
+            }
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return an executor starting a virtual thread for each task if the JDK has them, or else a fixed pool
+     */
+    private static ExecutorService newExecutor(int threads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(threads);
+        }
+    }
+
+    private static <T> T bounded(Semaphore running, Callable<T> task) {
+        running.acquireUninterruptibly();
+        try {
+            return task.call();
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        } finally {
+            running.release();
+        }
+    }
+
+    private static ModelWrapper load(Path model) throws IOException {
+        return model.toString().endsWith(".bin") ? ModelFile.map(model.toString()) : ModelLoader.load(model.toString());
+    }
+
+    private StateFormula formula(Path path) throws IOException {
+        if (path == null)
+            return new BoolProp(true);
+        Object formula = formulae.computeIfAbsent(path, p -> {
+            try {
+                return new FormulaParser(p.toString()).parse();
+            } catch (IOException | RuntimeException e) {
+                return e;
+            }
+        });
+        if (formula instanceof Exception)
+            throw new IOException("cannot read formula " + path + ": " + ((Exception) formula).getMessage(),
+                    (Exception) formula);
+        return (StateFormula) formula;
+    }
+
+    private Void check(ModelWrapper model, Check check) throws IOException {
+        CheckResult result = checker.evaluate(model, formula(check.constraint), formula(check.query));
+        JsonObject line = describe(check);
+        line.addProperty("holds", result.holds());
+        if (!result.holds()) {
+            JsonArray trace = new JsonArray();
+            for (String state : result.getTrace())
+                trace.add(new JsonPrimitive(state));
+            line.add("trace", trace);
+        }
+        line.addProperty("nanos", result.getNanos());
+        write(line, result.holds() ? 1 : 0, result.holds() ? 0 : 1, 0);
+        return null;
+    }
+
+    private void error(Check check, Throwable e) {
+        JsonObject line = describe(check);
+        line.addProperty("error", String.valueOf(e.getMessage()));
+        try {
+            write(line, 0, 0, 1);
+        } catch (IOException writing) {
+            throw new UncheckedIOException(writing);
+        }
+    }
+
+    private static JsonObject describe(Check check) {
+        JsonObject line = new JsonObject();
+        line.addProperty("model", check.model.toString());
+        if (check.constraint != null)
+            line.addProperty("constraint", check.constraint.toString());
+        line.addProperty("query", check.query.toString());
+        return line;
+    }
+
+    private synchronized void write(JsonObject line, int holds, int fails, int error) throws IOException {
+        holding += holds;
+        failing += fails;
+        errors += error;
+        out.write(gson.toJson(line));
+        out.write('\n');
+        out.flush();
+    }
+
+    public synchronized int getHoldingCount() {
+        return holding;
+    }
+
+    public synchronized int getFailingCount() {
+        return failing;
+    }
+
+    public synchronized int getErrorCount() {
+        return errors;
+    }
+}
@@ -0,0 +1,66 @@
+package modelChecker.asctl;
+
+import formula.stateFormula.StateFormula;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of checking one query under a constraint: whether it holds, the counterexample if it does not, and the
+ * time taken. A result is immutable, so it may be handed between threads freely.
+ */
+public final class CheckResult {
+
+    private final StateFormula constraint;
+
+    private final StateFormula query;
+
+    private final boolean holds;
+
+    private final List<String> trace;
+
+    private final long nanos;
+
+    CheckResult(StateFormula constraint, StateFormula query, boolean holds, List<String> trace, long nanos) {
+        this.constraint = constraint;
+        this.query = query;
+        this.holds = holds;
+        this.trace = trace == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(trace));
+        this.nanos = nanos;
+    }
+
+    public StateFormula getConstraint() {
+        return constraint;
+    }
+
+    public StateFormula getQuery() {
+        return query;
+    }
+
+    /**
+     * @return true if every initial state satisfies the query under the constraint
+     */
+    public boolean holds() {
+        return holds;
+    }
+
+    /**
+     * @return the names of the states of the counterexample, or an empty list if the query holds
+     */
+    public List<String> getTrace() {
+        return trace;
+    }
+
+    /**
+     * @return the wall time taken by the check, including its counterexample
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        return (holds ? "holds" : "fails " + trace) + ": " + query + " under " + constraint;
+    }
+}
@@ -0,0 +1,155 @@
+package modelChecker.asctl;
+
+import formula.stateFormula.StateFormula;
+
+import java.util.BitSet;
+
+/**
+ * Events for the phases of a check: loading and indexing a model, normalizing formulae, marking each subformula,
+ * building counterexamples, and each check as a whole. They are recorded as JDK Flight Recorder events, so that a
+ * continuous recording can attribute the CPU and allocation samples taken during a phase to its query and operator.
+ *
+ * Each phase begins an event with one of the begin methods, which returns null unless the event is being recorded,
+ * and ends it with the matching commit method, which ignores null. The formula text and counts are only computed when
+ * the event is committed, so a phase costs a check of whether its event is enabled when nothing is recorded.
+ *
+ * A model is loaded by {@link ModelLoader}; one parsed by Model.parseModel, outside the checker, is only recorded
+ * when it is indexed.
+ *
+ * This class does not depend on the flight recorder, so that it compiles for any Java 8. The events themselves are in
+ * the jfr source set, which is only compiled by a JDK with jdk.jfr; if its classes are not on the class path, or the
+ * JVM has no flight recorder (before 8u262), no event is ever begun.
+ */
+public final class CheckerEvents {
+
+    /**
+     * The recorder of the events, or null if there is none, or events were turned off with -DmodelChecker.jfr=false
+     */
+    private static final Recorder RECORDER = Boolean.parseBoolean(System.getProperty("modelChecker.jfr", "true"))
+            ? loadRecorder() : null;
+
+    private CheckerEvents() {
+    }
+
+    private static Recorder loadRecorder() {
+        try {
+            return (Recorder) Class.forName("modelChecker.asctl.FlightRecorderEvents").getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    //******** EVENTS ********//
+
+    public interface LoadModel {
+    }
+
+    public interface IndexModel {
+    }
+
+    public interface Normalize {
+    }
+
+    public interface Mark {
+    }
+
+    public interface Counterexample {
+    }
+
+    public interface Check {
+    }
+
+    /**
+     * Begins and commits the events, each begin method returning null unless its event is enabled.
+     */
+    interface Recorder {
+
+        LoadModel beginLoadModel();
+
+        IndexModel beginIndexModel();
+
+        Normalize beginNormalize();
+
+        Mark beginMark();
+
+        Counterexample beginCounterexample();
+
+        Check beginCheck();
+
+        void commit(LoadModel event, String source, int states, int transitions);
+
+        void commit(IndexModel event, ModelWrapper model);
+
+        void commit(Normalize event, StateFormula formula, StateFormula normalized);
+
+        void commit(Mark event, StateFormula f, BitSet satisfying, ModelWrapper model, boolean cached);
+
+        void commit(Counterexample event, StateFormula query, int length);
+
+        void commit(Check event, StateFormula constraint, StateFormula query, ModelWrapper model, boolean holds);
+    }
+
+    //******** BEGIN ********//
+
+    public static LoadModel beginLoadModel() {
+        return RECORDER == null ? null : RECORDER.beginLoadModel();
+    }
+
+    public static IndexModel beginIndexModel() {
+        return RECORDER == null ? null : RECORDER.beginIndexModel();
+    }
+
+    public static Normalize beginNormalize() {
+        return RECORDER == null ? null : RECORDER.beginNormalize();
+    }
+
+    public static Mark beginMark() {
+        return RECORDER == null ? null : RECORDER.beginMark();
+    }
+
+    public static Counterexample beginCounterexample() {
+        return RECORDER == null ? null : RECORDER.beginCounterexample();
+    }
+
+    public static Check beginCheck() {
+        return RECORDER == null ? null : RECORDER.beginCheck();
+    }
+
+    //******** COMMIT ********//
+
+    // an event is only ever begun by the recorder, so it is not null if one was begun
+
+    /**
+     * @param source the path read, or null if the model was read from a stream
+     */
+    public static void commit(LoadModel event, String source, int states, int transitions) {
+        if (event != null)
+            RECORDER.commit(event, source, states, transitions);
+    }
+
+    public static void commit(IndexModel event, ModelWrapper model) {
+        if (event != null)
+            RECORDER.commit(event, model);
+    }
+
+    public static void commit(Normalize event, StateFormula formula, StateFormula normalized) {
+        if (event != null)
+            RECORDER.commit(event, formula, normalized);
+    }
+
+    public static void commit(Mark event, StateFormula f, BitSet satisfying, ModelWrapper model, boolean cached) {
+        if (event != null)
+            RECORDER.commit(event, f, satisfying, model, cached);
+    }
+
+    public static void commit(Counterexample event, StateFormula query, int length) {
+        if (event != null)
+            RECORDER.commit(event, query, length);
+    }
+
+    public static void commit(Check event, StateFormula constraint, StateFormula query, ModelWrapper model, boolean holds) {
+        if (event != null)
+            RECORDER.commit(event, constraint, query, model, holds);
+    }
+}
@@ -4,139 +4,335 @@ import formula.pathFormula.Always;
 import formula.pathFormula.Next;
 import formula.pathFormula.Until;
 import formula.stateFormula.*;
-import model.State;
-import model.Transition;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
 
+/**
+ * Builds a counterexample from the satisfaction sets of a marker which has found a query not to hold, as a path of
+ * state names from the first initial state violating it.
+ *
+ * Every search is an iterative breadth-first search over the indexed graph, visiting each state at most once, so the
+ * path returned is a shortest one of its kind and the search costs O(S + T):
+ *
+ * not E(p aUb q): a shortest path through states satisfying p, by a-steps, ending with a b-step into a state
+ *                 satisfying q (for AG p, a shortest path to a state violating p);
+ * not EbX p:      a b-step into a state satisfying p;
+ * not EbG p:      a lasso, a shortest path into a cycle of b-steps through states satisfying p, and then around the
+ *                 cycle, ending with the state at which it starts;
+ * A(p aUb q):     a shortest path of a-steps through states satisfying p and not the query (and within the
+ *                 constraint) to a state not satisfying p, to one without successors, or ending with a step which is
+ *                 neither an a-step nor a b-step into a state satisfying q; or else a lasso of a-steps staying in
+ *                 those states forever;
+ * p and q:        the counterexample of a conjunct which does not hold.
+ *
+ * Otherwise no path shows why the query does not hold, and the counterexample is the initial state alone.
+ *
+ * If the marker has a listener, it is told the time taken and the work done by the searches.
+ */
 public class CounterexampleGenerator {
 
     private ModelMarker marker;
 
+    private ModelWrapper model;
+
+    /**
+     * The work done by the searches, counted while a listener is set
+     */
+    private MarkingCounters counters;
+
     public CounterexampleGenerator(ModelMarker marker) {
         this.marker = marker;
+        model = marker.getModel();
     }
 
     public List<String> makeCounterexample(StateFormula formula, StateFormula constraint) {
+        CheckerEvents.Counterexample event = CheckerEvents.beginCounterexample();
+        MarkingListener listener = marker.getListener();
+        List<String> path;
+        if (listener == null) {
+            path = build(formula, constraint);
+        } else {
+            counters = new MarkingCounters();
+            long start = System.nanoTime();
+            path = build(formula, constraint);
+            long nanos = System.nanoTime() - start;
+            listener.counterexampleBuilt(new OperatorStats(formula, OperatorStats.COUNTEREXAMPLE, nanos,
+                    path == null ? 0 : path.size(), counters, false));
+            counters = null;
+        }
+        CheckerEvents.commit(event, formula, path == null ? 0 : path.size());
+        return path;
+    }
+
+    private List<String> build(StateFormula formula, StateFormula constraint) {
         StateFormula normalizedF = marker.normalize(formula);
         StateFormula normalizedConstraint = marker.normalize(constraint);
-        Set<State> initialStates = marker.getModel().getStates().stream().filter(State::isInit).collect(Collectors.toSet());
-        List<String> path;
-        for (State s : initialStates) {
-             path = search(s.getName(), normalizedF, normalizedConstraint, new ComputationPathNode(s.getName()));
-            if (path != null)
-                return path;
+        int firstInitial = -1;
+        for (int s = 0; s < model.getStateCount(); s++) {
+            if (!model.isInit(s))
+                continue;
+            if (firstInitial < 0)
+                firstInitial = s;
+            if (!marker.isSatisfied(s, normalizedF))
+                return names(search(s, normalizedF, normalizedConstraint));
         }
-        if (initialStates.size() > 0)
+        if (firstInitial >= 0)
             // return a path of size one, only containing the start state
-            return searchReturn(new ComputationPathNode(initialStates.iterator().next().getName()));
+            return names(Collections.singletonList(firstInitial));
         return null;
     }
 
     /**
-     *
-     * @param state
-     * @param f
-     * @param constraint
-     * @param node
-     * @return list of actions to a counterexample
+     * @param state a state on which f does not hold
+     * @return the ids of the states of a counterexample from the state
      */
-    private List<String> search(String state, StateFormula f, StateFormula constraint, ComputationPathNode node) {
-        if (marker.isSatisfied(state, f)) {
-            // this is not a counterexample
-            return null;
-        } else if (f instanceof ThereExists) {
-            if (((ThereExists) f).pathFormula instanceof Next)
-                return searchThereExistsNext(state, f, constraint, node);
-            else if (((ThereExists) f).pathFormula instanceof Always)
-                return searchThereExistsAlways(state, f, constraint, node);
-            else if (((ThereExists) f).pathFormula instanceof Until)
-                return searchThereExistsUntil(state, f, constraint, node);
-            return searchReturn(node);
-        } else {
-            // counterexample found
-            return searchReturn(node);
+    private List<Integer> search(int state, StateFormula f, StateFormula constraint) {
+        List<Integer> path = null;
+        if (f instanceof Not && ((Not) f).stateFormula instanceof ThereExists) {
+            ThereExists witnessed = (ThereExists) ((Not) f).stateFormula;
+            if (witnessed.pathFormula instanceof Until)
+                path = untilWitness(state, witnessed);
+            else if (witnessed.pathFormula instanceof Next)
+                path = nextWitness(state, (Next) witnessed.pathFormula, constraint);
+            else if (witnessed.pathFormula instanceof Always)
+                path = alwaysWitness(state, witnessed);
+        } else if (f instanceof ForAll && ((ForAll) f).pathFormula instanceof Until) {
+            path = forAllUntilCounterexample(state, (ForAll) f, constraint);
+        } else if (f instanceof And) {
+            StateFormula failed = marker.isSatisfied(state, ((And) f).left) ? ((And) f).right : ((And) f).left;
+            path = search(state, failed, constraint);
         }
+        return path != null ? path : Collections.singletonList(state);
     }
 
-    private List<String> searchThereExistsNext(String state, StateFormula f, StateFormula constraint, ComputationPathNode node) {
-        if (!marker.isSatisfied(state, f)) {
-            // this is added to the counterexample path if the formula does not hold
-            Set<Transition> next = marker.getModel().getTransitions().stream()
-                    .filter(t -> t.getSource().equals(state))
-                    .filter(t -> !marker.isSatisfied(t.getTarget(), ((Next)((ThereExists)f).pathFormula).stateFormula))
-                    .filter(t -> marker.isSatisfied(t.getTarget(), constraint))
-                    .collect(Collectors.toSet());
-            return firstExample(next, state, f, constraint, node);
+    private List<Integer> nextWitness(int state, Next next, StateFormula constraint) {
+        long[] actions = model.getActionMask(next.getActions());
+        if (counters != null)
+            counters.transitionsScanned += model.getOutDegree(state);
+        for (int i = 0; i < model.getOutDegree(state); i++) {
+            int t = model.getOutgoing(state, i);
+            int target = model.getTarget(t);
+            if (model.actionsSatisfied(t, actions) && marker.isSatisfied(target, next.stateFormula)
+                    && (marker.isSatisfied(target, constraint) || model.isInit(target)))
+                return asList(state, target);
         }
-        // this is definitely not a counterexample path
         return null;
     }
 
-    private List<String> searchThereExistsAlways(String state, StateFormula f, StateFormula constraint, ComputationPathNode node) {
-        if (!marker.isSatisfied(state, f)) {
-            // this is added to the counterexample path if the formula does not hold
-            Set<Transition> next = marker.getModel().getTransitions().stream()
-                    .filter(t -> t.getSource().equals(state))
-                    .filter(t -> !marker.isSatisfied(t.getTarget(), f))
-                    .filter(t -> marker.isSatisfied(t.getTarget(), constraint))
-                    .collect(Collectors.toSet());
-            return firstExample(next, state, f, constraint, node);
+    /**
+     * @param f E(p aUb q), which holds on the state
+     */
+    private List<Integer> untilWitness(int state, ThereExists f) {
+        Until until = (Until) f.pathFormula;
+        if (marker.isSatisfied(state, until.right))
+            return Collections.singletonList(state);
+        long[] leftActions = model.getActionMask(until.getLeftActions());
+        long[] rightActions = model.getActionMask(until.getRightActions());
+        Search search = new Search(state);
+        while (search.hasNext()) {
+            int s = search.next();
+            for (int i = 0; i < model.getOutDegree(s); i++) {
+                int t = model.getOutgoing(s, i);
+                int target = model.getTarget(t);
+                if (!marker.isSatisfied(target, f))
+                    continue;
+                if (marker.isSatisfied(target, until.right) && model.actionsSatisfied(t, rightActions))
+                    return search.pathTo(s, target);
+                if (marker.isSatisfied(target, until.left) && model.actionsSatisfied(t, leftActions))
+                    search.visit(target, s);
+            }
         }
-        // this is definitely not a counterexample path
         return null;
     }
 
-    private List<String> searchThereExistsUntil(String state, StateFormula f, StateFormula constraint, ComputationPathNode node) {
-        Until until = f instanceof ForAll ? (Until)(((ForAll)f).pathFormula) : (Until)(((ThereExists)f).pathFormula);
-        boolean leftSatisfied = marker.isSatisfied(state, until.left);
-        boolean rightSatisfied = marker.isSatisfied(state, until.right);
-        if (!leftSatisfied && !rightSatisfied) {
-            // if left and right both do not hold, this is the counterexample
-            return searchReturn(node);
-        } else if (leftSatisfied && !rightSatisfied) {
-            // left _does_ hold, call search on all children which do not satisfy the formula (and _do_ satisfy the constraint)
-            Set<Transition> next = marker.getModel().getTransitions().stream()
-                    .filter(t -> t.getSource().equals(state))
-                    .filter(t -> !marker.isSatisfied(t.getTarget(), f))
-                    .filter(t -> marker.isSatisfied(t.getTarget(), constraint))
-                    .collect(Collectors.toSet());
-            return firstExample(next, state, f, constraint, node);
+    /**
+     * @param f EbG p, which holds on the state
+     */
+    private List<Integer> alwaysWitness(int state, ThereExists f) {
+        BitSet satisfying = marker.getSatisfying(f);
+        long[] actions = model.getActionMask(((Always) f.pathFormula).getActions());
+        return lasso(state, satisfying, actions);
+    }
+
+    /**
+     * @param f A(p aUb q), which does not hold on the state
+     */
+    private List<Integer> forAllUntilCounterexample(int state, ForAll f, StateFormula constraint) {
+        Until until = (Until) f.pathFormula;
+        long[] leftActions = model.getActionMask(until.getLeftActions());
+        long[] rightActions = model.getActionMask(until.getRightActions());
+        // the states from which the path can continue: those satisfying p, but not f, with an a-step into another
+        BitSet continuing = new BitSet(model.getStateCount());
+        Search search = new Search(state);
+        while (search.hasNext()) {
+            int s = search.next();
+            if (!marker.isSatisfied(s, until.left))
+                return search.pathTo(s);
+            boolean hasSuccessor = false;
+            for (int i = 0; i < model.getOutDegree(s); i++) {
+                int t = model.getOutgoing(s, i);
+                int target = model.getTarget(t);
+                if (!marker.isSatisfied(target, constraint))
+                    continue;
+                hasSuccessor = true;
+                boolean leftStep = model.actionsSatisfied(t, leftActions);
+                // as when marking: an a-step into a state satisfying f, or a b-step into a seed, satisfies the state
+                if ((leftStep && marker.isSatisfied(target, f))
+                        || (model.actionsSatisfied(t, rightActions) && isSeed(target, until.right, rightActions)))
+                    continue;
+                // an a-step into a state not satisfying f goes on, and any other step ends the path
+                if (!leftStep)
+                    return search.pathTo(s, target);
+                search.visit(target, s);
+            }
+            if (!hasSuccessor)
+                return search.pathTo(s);
+            continuing.set(s);
         }
-        // this is definitely not a counterexample path
-        return null;
+        // every path stays forever in states satisfying p, by a-steps
+        return lasso(state, continuing, leftActions);
+    }
+
+    /**
+     * @param state a state satisfying the constraint
+     * @return true if the state satisfies q and can be entered by a b-step, as a seed of A(p aUb q)
+     */
+    private boolean isSeed(int state, StateFormula right, long[] rightActions) {
+        if (!marker.isSatisfied(state, right))
+            return false;
+        if (counters != null)
+            counters.transitionsScanned += model.getInDegree(state);
+        for (int i = 0; i < model.getInDegree(state); i++)
+            if (model.actionsSatisfied(model.getIncoming(state, i), rightActions))
+                return true;
+        return false;
     }
 
-    private List<String> firstExample(Set<Transition> transitions, String state, StateFormula f, StateFormula constraint, ComputationPathNode node) {
-        if (transitions.size() <= 0)
-            return searchReturn(node);
-        for (Transition t : transitions) {
-            ComputationPathNode child = node.addChild(t.getActions(), t.getTarget());
-            List<String> retValue = search(t.getTarget(), f, constraint, child);
-            // the first child path that returns a non-null value is the counterexample path
-            if (retValue != null)
-                return retValue;
+    /**
+     * @param states a set of states containing the given one
+     * @param actions the mask of the actions allowed on the lasso
+     * @return a shortest path from the state into a cycle within the set, followed by the cycle, or null if there is
+     * no such cycle
+     */
+    private List<Integer> lasso(int state, BitSet states, long[] actions) {
+        BitSet cyclic = marker.nontrivialComponents(states, actions, counters);
+        Search prefix = new Search(state);
+        while (prefix.hasNext()) {
+            int s = prefix.next();
+            if (cyclic.get(s)) {
+                List<Integer> path = prefix.pathTo(s);
+                path.addAll(cycle(s, cyclic, actions));
+                return path;
+            }
+            for (int i = 0; i < model.getOutDegree(s); i++) {
+                int t = model.getOutgoing(s, i);
+                if (states.get(model.getTarget(t)) && model.actionsSatisfied(t, actions))
+                    prefix.visit(model.getTarget(t), s);
+            }
         }
-        // if we reach here, no child could provide a counterexample, this is not a counterexample
         return null;
     }
 
     /**
-     * Called when the recursive searching has ended, constructs a list of states based on the given ComputationPathNode tree
-     * @param node
-     * @return
+     * @return a shortest cycle from the state back to itself within the given states, without its first state
+     */
+    private List<Integer> cycle(int state, BitSet states, long[] actions) {
+        Search search = new Search(-1);
+        for (int i = 0; i < model.getOutDegree(state); i++) {
+            int t = model.getOutgoing(state, i);
+            int target = model.getTarget(t);
+            if (target == state && model.actionsSatisfied(t, actions))
+                return Collections.singletonList(state);
+            if (states.get(target) && model.actionsSatisfied(t, actions))
+                search.visit(target, -1);
+        }
+        while (search.hasNext()) {
+            int s = search.next();
+            for (int i = 0; i < model.getOutDegree(s); i++) {
+                int t = model.getOutgoing(s, i);
+                int target = model.getTarget(t);
+                if (!model.actionsSatisfied(t, actions))
+                    continue;
+                if (target == state)
+                    return search.pathTo(s, state);
+                if (states.get(target))
+                    search.visit(target, s);
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * A breadth-first search, recording the state from which each visited state was first reached.
      */
-    private List<String> searchReturn(ComputationPathNode node) {
-        List<String> statePath = new ArrayList<>();
-        while (node != null) {
-            statePath.add(node.getState());
-            node = node.getParent();
+    private class Search {
+
+        private final int[] queue = new int[model.getStateCount()];
+        private final int[] parents = new int[model.getStateCount()];
+        private final BitSet visited = new BitSet(model.getStateCount());
+        private int head;
+        private int tail;
+
+        /**
+         * @param start the state to start from, or -1 to start from states added by {@link #visit}
+         */
+        Search(int start) {
+            if (start >= 0)
+                visit(start, -1);
         }
-        Collections.reverse(statePath);
-        return statePath;
+
+        void visit(int state, int parent) {
+            if (visited.get(state))
+                return;
+            visited.set(state);
+            parents[state] = parent;
+            queue[tail++] = state;
+            if (counters != null)
+                counters.worklistPushes++;
+        }
+
+        boolean hasNext() {
+            return head < tail;
+        }
+
+        int next() {
+            int state = queue[head++];
+            if (counters != null) {
+                counters.iterations++;
+                counters.transitionsScanned += model.getOutDegree(state);
+            }
+            return state;
+        }
+
+        /**
+         * @param end a visited state, followed by any further states
+         * @return the path from the start of the search to the state, then those states
+         */
+        List<Integer> pathTo(int end, int... then) {
+            List<Integer> path = new ArrayList<>();
+            for (int s = end; s >= 0; s = parents[s])
+                path.add(s);
+            Collections.reverse(path);
+            for (int s : then)
+                path.add(s);
+            return path;
+        }
+    }
+
+    private static List<Integer> asList(int... states) {
+        List<Integer> path = new ArrayList<>();
+        for (int s : states)
+            path.add(s);
+        return path;
+    }
+
+    private List<String> names(List<Integer> path) {
+        List<String> names = new ArrayList<>();
+        for (int s : path)
+            names.add(model.getStateName(s));
+        return names;
     }
 }
@@ -0,0 +1,346 @@
+package modelChecker.asctl;
+
+import formula.FormulaFactory;
+import formula.pathFormula.Always;
+import formula.pathFormula.Next;
+import formula.pathFormula.Until;
+import formula.stateFormula.*;
+
+import java.util.*;
+
+/**
+ * A constraint and a query compiled into a flat program, which marks them on a model without walking either formula.
+ *
+ * Each instruction computes the satisfaction set of one normalized subformula into its own register (register i is
+ * written by instruction i) from the registers of its subformulae, which come before it:
+ *
+ * CONST value          all states, or none
+ * LOAD_LABEL label     the states labelled with the label
+ * NOT r, AND r r, OR r r
+ * EX[B] r              EX_B p
+ * EU[A,B] r r          E(p aUb q)
+ * AU[A,B] r r          A(p aUb q)
+ * EG[B] r              EG_B p
+ *
+ * The instructions of the constraint come first and run without restricting any paths; its last one is the constraint,
+ * to which the paths of the temporal instructions of the query are then restricted. Subformulae shared within the
+ * constraint, or within the query, are computed once. The temporal instructions run the kernels of
+ * {@link ModelMarker}, so a program marks every subformula as the marker does.
+ *
+ * A program does not depend on any model: labels and action sets are kept by name, and resolved against the alphabet
+ * of a model once per run. A compiled program is immutable, so it may be cached (see {@link ProgramCache}) and run on
+ * any number of models, from any number of threads.
+ */
+public final class FormulaProgram {
+
+    public static final byte CONST = 0;
+    public static final byte LOAD_LABEL = 1;
+    public static final byte NOT = 2;
+    public static final byte AND = 3;
+    public static final byte OR = 4;
+    public static final byte EX = 5;
+    public static final byte EU = 6;
+    public static final byte AU = 7;
+    public static final byte EG = 8;
+
+    private static final String[] NAMES = {"CONST", "LOAD_LABEL", "NOT", "AND", "OR", "EX", "EU", "AU", "EG"};
+
+    private final byte[] opcodes;
+
+    /**
+     * The registers read by each instruction, or for CONST its value (1 or 0)
+     */
+    private final int[] left;
+
+    private final int[] right;
+
+    private final String[] labels;
+
+    /**
+     * The action sets of each temporal instruction: the left (or only) one, and the right one of EU and AU
+     */
+    private final List<Set<String>> leftActions;
+
+    private final List<Set<String>> rightActions;
+
+    /**
+     * The normalized formula computed by each instruction
+     */
+    private final StateFormula[] formulae;
+
+    /**
+     * The number of instructions of the constraint, the last of which computes it
+     */
+    private final int constraintLength;
+
+    private final int queryRegister;
+
+    private FormulaProgram(Builder builder) {
+        int length = builder.opcodes.size();
+        opcodes = new byte[length];
+        left = new int[length];
+        right = new int[length];
+        labels = new String[length];
+        leftActions = new ArrayList<>(builder.leftActions);
+        rightActions = new ArrayList<>(builder.rightActions);
+        formulae = builder.formulae.toArray(new StateFormula[length]);
+        for (int i = 0; i < length; i++) {
+            opcodes[i] = builder.opcodes.get(i);
+            left[i] = builder.left.get(i);
+            right[i] = builder.right.get(i);
+            labels[i] = builder.labels.get(i);
+        }
+        constraintLength = builder.constraintLength;
+        queryRegister = builder.queryRegister;
+    }
+
+    /**
+     * Normalize the constraint and the query, and compile them.
+     */
+    public static FormulaProgram compile(StateFormula constraint, StateFormula query) {
+        Builder builder = new Builder();
+        StateFormula normalizedConstraint = Normalizer.normalize(constraint);
+        int constraintRegister = builder.emit(normalizedConstraint);
+        builder.constraintLength = builder.opcodes.size();
+        // the subformulae of the constraint are not restricted by it, so only the constraint itself is shared with
+        // the query, as in the marker
+        builder.registers.clear();
+        builder.registers.put(normalizedConstraint, constraintRegister);
+        builder.queryRegister = builder.emit(Normalizer.normalize(query));
+        return new FormulaProgram(builder);
+    }
+
+    //******** EXECUTION ********//
+
+    /**
+     * @return true if every initial state of the model satisfies the query under the constraint
+     */
+    public boolean isModelSatisfied(ModelWrapper model) {
+        return holds(model, run(model));
+    }
+
+    /**
+     * @param registers the registers of a run of the program on the model
+     */
+    boolean holds(ModelWrapper model, BitSet[] registers) {
+        BitSet satisfied = registers[queryRegister];
+        for (int s = 0; s < model.getStateCount(); s++)
+            if (model.isInit(s) && !satisfied.get(s))
+                return false;
+        return true;
+    }
+
+    /**
+     * Run the program on a model.
+     * @return the satisfaction set in each register, which the caller owns
+     */
+    public BitSet[] run(ModelWrapper model) {
+        int stateCount = model.getStateCount();
+        BitSet all = new BitSet(stateCount);
+        all.set(0, stateCount);
+        ModelMarker kernels = new ModelMarker(model);
+        kernels.restrictTo(FormulaFactory.bool(true), all);
+        BitSet[] registers = new BitSet[opcodes.length];
+        for (int i = 0; i < opcodes.length; i++) {
+            if (i == constraintLength)
+                kernels.restrictTo(formulae[constraintLength - 1], registers[constraintLength - 1]);
+            CheckerEvents.Mark event = CheckerEvents.beginMark();
+            BitSet result;
+            switch (opcodes[i]) {
+                case CONST:
+                    result = left[i] != 0 ? (BitSet) all.clone() : new BitSet(stateCount);
+                    break;
+                case LOAD_LABEL:
+                    result = labelled(model, labels[i]);
+                    break;
+                case NOT:
+                    result = (BitSet) registers[left[i]].clone();
+                    result.flip(0, stateCount);
+                    break;
+                case AND:
+                    result = (BitSet) registers[left[i]].clone();
+                    result.and(registers[right[i]]);
+                    break;
+                case OR:
+                    result = (BitSet) registers[left[i]].clone();
+                    result.or(registers[right[i]]);
+                    break;
+                case EX:
+                    result = kernels.existsNext(registers[left[i]], model.getActionMask(leftActions.get(i)), null);
+                    break;
+                case EU:
+                    result = kernels.existsUntil(registers[left[i]], registers[right[i]],
+                            model.getActionMask(leftActions.get(i)), model.getActionMask(rightActions.get(i)), null);
+                    break;
+                case AU:
+                    result = kernels.forAllUntil(registers[left[i]], registers[right[i]],
+                            model.getActionMask(leftActions.get(i)), model.getActionMask(rightActions.get(i)), null);
+                    break;
+                case EG:
+                    result = kernels.existsAlways(registers[left[i]], model.getActionMask(leftActions.get(i)), null);
+                    break;
+                default:
+                    throw new IllegalStateException("unknown opcode " + opcodes[i]);
+            }
+            registers[i] = result;
+            CheckerEvents.commit(event, formulae[i], result, model, false);
+        }
+        return registers;
+    }
+
+    private static BitSet labelled(ModelWrapper model, String label) {
+        // decide once per distinct label set rather than once per state
+        boolean[] labelSets = new boolean[model.getLabelSetCount()];
+        for (int l = 0; l < labelSets.length; l++)
+            labelSets[l] = Arrays.asList(model.getLabelSet(l)).contains(label);
+        BitSet satisfied = new BitSet(model.getStateCount());
+        for (int s = 0; s < model.getStateCount(); s++)
+            if (labelSets[model.getLabelSetOf(s)])
+                satisfied.set(s);
+        return satisfied;
+    }
+
+    /**
+     * Give the registers of a run of the program to a marker restricted to the constraint, as if it had marked the
+     * query itself, such as to build a counterexample.
+     */
+    ModelMarker toMarker(ModelWrapper model, BitSet[] registers) {
+        ModelMarker marker = new ModelMarker(model);
+        marker.restrictTo(formulae[constraintLength - 1], registers[constraintLength - 1]);
+        for (int i = constraintLength; i < opcodes.length; i++)
+            marker.markAs(formulae[i], registers[i]);
+        return marker;
+    }
+
+    //******** ACCESSORS ********//
+
+    public int length() {
+        return opcodes.length;
+    }
+
+    public int getConstraintLength() {
+        return constraintLength;
+    }
+
+    /**
+     * @return the register holding the query, which is the last one unless the query is the constraint
+     */
+    public int getQueryRegister() {
+        return queryRegister;
+    }
+
+    public byte getOpcode(int instruction) {
+        return opcodes[instruction];
+    }
+
+    /**
+     * @return the normalized formula computed by the instruction
+     */
+    public StateFormula getFormula(int instruction) {
+        return formulae[instruction];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder listing = new StringBuilder();
+        for (int i = 0; i < opcodes.length; i++) {
+            if (i == constraintLength)
+                listing.append("restrict r").append(constraintLength - 1).append('\n');
+            listing.append('r').append(i).append(" = ").append(NAMES[opcodes[i]]);
+            switch (opcodes[i]) {
+                case CONST:
+                    listing.append(' ').append(left[i] != 0);
+                    break;
+                case LOAD_LABEL:
+                    listing.append(' ').append(labels[i]);
+                    break;
+                case EX:
+                case EG:
+                    listing.append(leftActions.get(i)).append(" r").append(left[i]);
+                    break;
+                case EU:
+                case AU:
+                    listing.append(leftActions.get(i)).append(rightActions.get(i)).append(" r").append(left[i])
+                            .append(" r").append(right[i]);
+                    break;
+                case NOT:
+                    listing.append(" r").append(left[i]);
+                    break;
+                default:
+                    listing.append(" r").append(left[i]).append(" r").append(right[i]);
+            }
+            listing.append('\n');
+        }
+        return listing.toString();
+    }
+
+    //******** COMPILATION ********//
+
+    /**
+     * Emits the instructions of normalized formulae in post-order, once for each distinct subformula.
+     */
+    private static final class Builder {
+
+        final List<Byte> opcodes = new ArrayList<>();
+        final List<Integer> left = new ArrayList<>();
+        final List<Integer> right = new ArrayList<>();
+        final List<String> labels = new ArrayList<>();
+        final List<Set<String>> leftActions = new ArrayList<>();
+        final List<Set<String>> rightActions = new ArrayList<>();
+        final List<StateFormula> formulae = new ArrayList<>();
+        final Map<StateFormula, Integer> registers = new HashMap<>();
+        int constraintLength;
+        int queryRegister;
+
+        /**
+         * @return the register of the formula
+         */
+        int emit(StateFormula f) {
+            Integer register = registers.get(f);
+            if (register != null)
+                return register;
+            if (f instanceof BoolProp) {
+                register = add(f, CONST, ((BoolProp) f).value ? 1 : 0, 0, null, null, null);
+            } else if (f instanceof AtomicProp) {
+                register = add(f, LOAD_LABEL, 0, 0, ((AtomicProp) f).label, null, null);
+            } else if (f instanceof Not) {
+                register = add(f, NOT, emit(((Not) f).stateFormula), 0, null, null, null);
+            } else if (f instanceof And) {
+                int l = emit(((And) f).left);
+                register = add(f, AND, l, emit(((And) f).right), null, null, null);
+            } else if (f instanceof Or) {
+                int l = emit(((Or) f).left);
+                register = add(f, OR, l, emit(((Or) f).right), null, null, null);
+            } else if (f instanceof ThereExists && ((ThereExists) f).pathFormula instanceof Next) {
+                Next next = (Next) ((ThereExists) f).pathFormula;
+                register = add(f, EX, emit(next.stateFormula), 0, null, next.getActions(), null);
+            } else if (f instanceof ThereExists && ((ThereExists) f).pathFormula instanceof Always) {
+                Always always = (Always) ((ThereExists) f).pathFormula;
+                register = add(f, EG, emit(always.stateFormula), 0, null, always.getActions(), null);
+            } else if (f instanceof ThereExists && ((ThereExists) f).pathFormula instanceof Until) {
+                Until until = (Until) ((ThereExists) f).pathFormula;
+                int l = emit(until.left);
+                register = add(f, EU, l, emit(until.right), null, until.getLeftActions(), until.getRightActions());
+            } else if (f instanceof ForAll && ((ForAll) f).pathFormula instanceof Until) {
+                Until until = (Until) ((ForAll) f).pathFormula;
+                int l = emit(until.left);
+                register = add(f, AU, l, emit(until.right), null, until.getLeftActions(), until.getRightActions());
+            } else {
+                throw new IllegalArgumentException("reduction incomplete in formula: " + f.toString() + " - only forms EX p, EG p, E(p U q) and A(p U q) are accepted");
+            }
+            registers.put(f, register);
+            return register;
+        }
+
+        private int add(StateFormula f, byte opcode, int l, int r, String label, Set<String> leftSet, Set<String> rightSet) {
+            opcodes.add(opcode);
+            left.add(l);
+            right.add(r);
+            labels.add(label);
+            leftActions.add(leftSet);
+            rightActions.add(rightSet);
+            formulae.add(f);
+            return opcodes.size() - 1;
+        }
+    }
+}
@@ -0,0 +1,666 @@
+package modelChecker.asctl;
+
+import formula.pathFormula.Always;
+import formula.pathFormula.Next;
+import formula.pathFormula.Until;
+import formula.stateFormula.*;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+/**
+ * Keeps the marking of a query up to date as its model changes by {@link ModelDelta}s, re-evaluating each subformula
+ * only on the states where its value can change.
+ *
+ * Every subformula records the states on which its value changed in the last update, and a parent only re-evaluates
+ * the states next to those changes and to the states touched by the delta. The temporal operators are computed as
+ * fixpoints, with the same semantics as {@link modelChecker.symbolic.SymbolicMarker}, and kept up to date by:
+ *
+ * E(p U q), A(p U q): delete and re-derive. Every state whose justification may have changed is removed, along with
+ *                     the states that depend on it (its predecessors, transitively, within the old fixpoint); then the
+ *                     removed and touched states are re-checked, and the states that can now be justified propagate
+ *                     backward as in a full marking.
+ * EG p:               add and re-check. The states outside the old fixpoint from which the touched states can be
+ *                     reached through p are tentatively added, then states are removed while they have no successor
+ *                     left in the set, with successor counts only computed for the states next to a removal.
+ *
+ * The first marking is an update from an empty model in which every state is touched, so the same code computes both.
+ */
+public class IncrementalMarker {
+
+    private ModelWrapper model;
+
+    private final StateFormula query;
+
+    private final StateFormula constraint;
+
+    /**
+     * The nodes of the constraint, which are marked without restricting any paths, followed by those of the query,
+     * in an order in which every node comes after its subformulae
+     */
+    private final List<Node> nodes = new ArrayList<>();
+
+    private final Node constraintNode;
+
+    private final Node queryNode;
+
+    /**
+     * The states touched by the delta being applied
+     */
+    private BitSet touched;
+
+    /**
+     * @param model the model to mark, which is copied for editing (see {@link ModelWrapper#edit()}) unless it already
+     *              is editable, so that each delta only costs as much as it changes
+     * @param constraint the constraint under which the query is marked
+     * @param query the query to mark
+     */
+    public IncrementalMarker(ModelWrapper model, StateFormula constraint, StateFormula query) {
+        this.model = model.isEditable() ? model : model.edit();
+        this.constraint = Normalizer.normalize(constraint);
+        this.query = Normalizer.normalize(query);
+        Map<StateFormula, Node> unrestricted = new HashMap<>();
+        constraintNode = build(this.constraint, null, unrestricted);
+        Map<StateFormula, Node> restricted = new HashMap<>();
+        restricted.put(this.constraint, constraintNode);
+        queryNode = build(this.query, constraintNode, restricted);
+        touched = new BitSet(model.getStateCount());
+        touched.set(0, model.getStateCount());
+        update();
+    }
+
+    /**
+     * @return true if every initial state satisfies the query under the constraint
+     */
+    public boolean isModelSatisfied() {
+        for (int s = 0; s < model.getStateCount(); s++)
+            if (model.isInit(s) && !queryNode.value.get(s))
+                return false;
+        return true;
+    }
+
+    /**
+     * @return the model as changed so far, which the next delta changes in place
+     */
+    public ModelWrapper getModel() {
+        return model;
+    }
+
+    /**
+     * Change the model in place, and update the marking of the query to match it.
+     */
+    public void apply(ModelDelta delta) {
+        BitSet touchedStates = new BitSet();
+        model = delta.applyTo(model, touchedStates);
+        touched = touchedStates;
+        update();
+    }
+
+    /**
+     * @return the set of ids of states on which the query is satisfied; this must not be modified
+     */
+    public BitSet getSatisfying() {
+        return queryNode.value;
+    }
+
+    /**
+     * @return the set of ids of states on which the constraint is satisfied; this must not be modified
+     */
+    public BitSet getConstraintStates() {
+        return constraintNode.value;
+    }
+
+    private void update() {
+        for (Node node : nodes)
+            node.changed = node.update();
+    }
+
+    //******** NODES ********//
+
+    /**
+     * @param constraint the node of the constraint restricting the paths of temporal operators, or null if they are
+     *                   unrestricted
+     * @param built the nodes already built for this restriction
+     */
+    private Node build(StateFormula f, Node constraint, Map<StateFormula, Node> built) {
+        Node node = built.get(f);
+        if (node != null)
+            return node;
+        if (f instanceof BoolProp) {
+            node = new BoolNode(((BoolProp) f).value);
+        } else if (f instanceof AtomicProp) {
+            node = new AtomicNode(((AtomicProp) f).label);
+        } else if (f instanceof Not) {
+            node = new NotNode(build(((Not) f).stateFormula, constraint, built));
+        } else if (f instanceof And) {
+            node = new AndNode(build(((And) f).left, constraint, built), build(((And) f).right, constraint, built), true);
+        } else if (f instanceof Or) {
+            node = new AndNode(build(((Or) f).left, constraint, built), build(((Or) f).right, constraint, built), false);
+        } else if (f instanceof ThereExists && ((ThereExists) f).pathFormula instanceof Next) {
+            Next next = (Next) ((ThereExists) f).pathFormula;
+            node = new NextNode(constraint, build(next.stateFormula, constraint, built), next.getActions());
+        } else if (f instanceof ThereExists && ((ThereExists) f).pathFormula instanceof Until) {
+            Until until = (Until) ((ThereExists) f).pathFormula;
+            node = new ExistsUntilNode(constraint, build(until.left, constraint, built), build(until.right, constraint, built),
+                    until.getLeftActions(), until.getRightActions());
+        } else if (f instanceof ThereExists && ((ThereExists) f).pathFormula instanceof Always) {
+            Always always = (Always) ((ThereExists) f).pathFormula;
+            node = new AlwaysNode(constraint, build(always.stateFormula, constraint, built), always.getActions());
+        } else if (f instanceof ForAll && ((ForAll) f).pathFormula instanceof Until) {
+            Until until = (Until) ((ForAll) f).pathFormula;
+            node = new ForAllUntilNode(constraint, build(until.left, constraint, built), build(until.right, constraint, built),
+                    until.getLeftActions(), until.getRightActions());
+        } else {
+            throw new IllegalArgumentException("reduction incomplete in formula: " + f.toString());
+        }
+        built.put(f, node);
+        nodes.add(node);
+        return node;
+    }
+
+    /**
+     * The marking of a subformula.
+     */
+    private abstract class Node {
+
+        /**
+         * The states on which the subformula holds
+         */
+        final BitSet value = new BitSet();
+
+        /**
+         * The states on which the value changed in the last update
+         */
+        BitSet changed = new BitSet();
+
+        /**
+         * Bring the value up to date with the model, after the subformulae have been updated.
+         * @return the states on which the value changed
+         */
+        abstract BitSet update();
+
+        /**
+         * Re-evaluate the value on the given states.
+         * @return the states on which it changed
+         */
+        BitSet recompute(BitSet states, IntPredicate holds) {
+            BitSet changes = new BitSet();
+            for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1)) {
+                boolean v = holds.test(s);
+                if (v != value.get(s)) {
+                    value.set(s, v);
+                    changes.set(s);
+                }
+            }
+            return changes;
+        }
+    }
+
+    private class BoolNode extends Node {
+
+        private final boolean constant;
+
+        BoolNode(boolean constant) {
+            this.constant = constant;
+        }
+
+        @Override
+        BitSet update() {
+            return recompute(touched, s -> constant);
+        }
+    }
+
+    private class AtomicNode extends Node {
+
+        private final String label;
+
+        AtomicNode(String label) {
+            this.label = label;
+        }
+
+        @Override
+        BitSet update() {
+            return recompute(touched, s -> Arrays.asList(model.getLabels(s)).contains(label));
+        }
+    }
+
+    private class NotNode extends Node {
+
+        private final Node operand;
+
+        NotNode(Node operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        BitSet update() {
+            return recompute(union(touched, operand.changed), s -> !operand.value.get(s));
+        }
+    }
+
+    private class AndNode extends Node {
+
+        private final Node left;
+        private final Node right;
+        private final boolean conjunction;
+
+        AndNode(Node left, Node right, boolean conjunction) {
+            this.left = left;
+            this.right = right;
+            this.conjunction = conjunction;
+        }
+
+        @Override
+        BitSet update() {
+            BitSet states = union(touched, left.changed);
+            states.or(right.changed);
+            return recompute(states, s -> conjunction
+                    ? left.value.get(s) && right.value.get(s)
+                    : left.value.get(s) || right.value.get(s));
+        }
+    }
+
+    /**
+     * A temporal operator, whose paths may be restricted by a constraint.
+     */
+    private abstract class TemporalNode extends Node {
+
+        private final Node constraint;
+
+        TemporalNode(Node constraint) {
+            this.constraint = constraint;
+        }
+
+        /**
+         * @return true if the state satisfies the constraint, or there is none
+         */
+        boolean constrained(int state) {
+            return constraint == null || constraint.value.get(state);
+        }
+
+        /**
+         * @return true if the state can be entered by a path: it satisfies the constraint or is initial
+         */
+        boolean ok(int state) {
+            return constraint == null || constraint.value.get(state) || model.isInit(state);
+        }
+
+        /**
+         * @return the states on which the constraint changed, with those on which ok changed
+         */
+        BitSet constraintChanged() {
+            return constraint == null ? new BitSet() : constraint.changed;
+        }
+    }
+
+    private class NextNode extends TemporalNode {
+
+        private final Node operand;
+        private final Set<String> actions;
+
+        NextNode(Node constraint, Node operand, Set<String> actions) {
+            super(constraint);
+            this.operand = operand;
+            this.actions = actions;
+        }
+
+        @Override
+        BitSet update() {
+            // a state's value depends on its own transitions and the operand (and ok) of its successors
+            BitSet states = union(operand.changed, constraintChanged());
+            states.or(touched);
+            states = predecessors(states);
+            states.or(touched);
+            long[] mask = model.getActionMask(actions);
+            return recompute(states, s -> {
+                for (int i = 0; i < model.getOutDegree(s); i++) {
+                    int t = model.getOutgoing(s, i);
+                    int target = model.getTarget(t);
+                    if (model.actionsSatisfied(t, mask) && operand.value.get(target) && ok(target))
+                        return true;
+                }
+                return false;
+            });
+        }
+    }
+
+    /**
+     * E(p aUb q) = Seeds or Z, where Seeds = q and post_b(true), and Z = mu Z. Ok and p and (pre_b(Seeds) or pre_a(Z))
+     */
+    private class ExistsUntilNode extends TemporalNode {
+
+        private final Node left;
+        private final Node right;
+        private final Set<String> leftActions;
+        private final Set<String> rightActions;
+        private final BitSet seeds = new BitSet();
+
+        /**
+         * The masks of the action sets in the current model
+         */
+        private long[] leftMask;
+        private long[] rightMask;
+        private final BitSet z = new BitSet();
+
+        ExistsUntilNode(Node constraint, Node left, Node right, Set<String> leftActions, Set<String> rightActions) {
+            super(constraint);
+            this.left = left;
+            this.right = right;
+            this.leftActions = leftActions;
+            this.rightActions = rightActions;
+        }
+
+        private boolean justified(int s) {
+            if (!left.value.get(s) || !ok(s))
+                return false;
+            for (int i = 0; i < model.getOutDegree(s); i++) {
+                int t = model.getOutgoing(s, i);
+                int target = model.getTarget(t);
+                if ((seeds.get(target) && model.actionsSatisfied(t, rightMask))
+                        || (z.get(target) && model.actionsSatisfied(t, leftMask)))
+                    return true;
+            }
+            return false;
+        }
+
+        @Override
+        BitSet update() {
+            leftMask = model.getActionMask(leftActions);
+            rightMask = model.getActionMask(rightActions);
+            BitSet seedChanges = updateSeeds(seeds, touched, right, rightMask, null);
+            BitSet dirty = union(touched, left.changed);
+            dirty.or(constraintChanged());
+            dirty.or(predecessors(seedChanges));
+            BitSet removed = overdelete(z, dirty);
+            BitSet added = new BitSet();
+            Deque<Integer> toProcess = new ArrayDeque<>();
+            BitSet candidates = union(removed, dirty);
+            for (int s = candidates.nextSetBit(0); s >= 0; s = candidates.nextSetBit(s + 1)) {
+                if (!z.get(s) && justified(s)) {
+                    z.set(s);
+                    added.set(s);
+                    toProcess.add(s);
+                }
+            }
+            while (!toProcess.isEmpty()) {
+                int s = toProcess.poll();
+                for (int i = 0; i < model.getInDegree(s); i++) {
+                    int t = model.getIncoming(s, i);
+                    int predecessor = model.getSource(t);
+                    if (!z.get(predecessor) && model.actionsSatisfied(t, leftMask)
+                            && left.value.get(predecessor) && ok(predecessor)) {
+                        z.set(predecessor);
+                        added.set(predecessor);
+                        toProcess.add(predecessor);
+                    }
+                }
+            }
+            BitSet states = union(seedChanges, removed);
+            states.or(added);
+            return recompute(states, s -> seeds.get(s) || z.get(s));
+        }
+    }
+
+    /**
+     * A(p aUb q) = mu Z. Seeds or (p and pre(C) and not Bad(Z)), where Seeds = C and q and post_b(true), and Bad(Z) is
+     * the set of states with a transition into C that neither enters Seeds by b nor enters Z by a
+     */
+    private class ForAllUntilNode extends TemporalNode {
+
+        private final Node left;
+        private final Node right;
+        private final Set<String> leftActions;
+        private final Set<String> rightActions;
+        private final BitSet seeds = new BitSet();
+
+        /**
+         * The masks of the action sets in the current model
+         */
+        private long[] leftMask;
+        private long[] rightMask;
+
+        ForAllUntilNode(Node constraint, Node left, Node right, Set<String> leftActions, Set<String> rightActions) {
+            super(constraint);
+            this.left = left;
+            this.right = right;
+            this.leftActions = leftActions;
+            this.rightActions = rightActions;
+        }
+
+        private boolean justified(int s) {
+            if (seeds.get(s))
+                return true;
+            if (!left.value.get(s))
+                return false;
+            boolean hasSuccessor = false;
+            for (int i = 0; i < model.getOutDegree(s); i++) {
+                int t = model.getOutgoing(s, i);
+                int target = model.getTarget(t);
+                if (!constrained(target))
+                    continue;
+                hasSuccessor = true;
+                if (!(seeds.get(target) && model.actionsSatisfied(t, rightMask))
+                        && !(value.get(target) && model.actionsSatisfied(t, leftMask)))
+                    return false;
+            }
+            return hasSuccessor;
+        }
+
+        @Override
+        BitSet update() {
+            leftMask = model.getActionMask(leftActions);
+            rightMask = model.getActionMask(rightActions);
+            BitSet seedChanges = updateSeeds(seeds, union(touched, constraintChanged()), right, rightMask, this);
+            BitSet dirty = union(touched, left.changed);
+            dirty.or(seedChanges);
+            BitSet around = union(seedChanges, constraintChanged());
+            dirty.or(predecessors(around));
+            BitSet removed = overdelete(value, dirty);
+            BitSet added = new BitSet();
+            Deque<Integer> toProcess = new ArrayDeque<>();
+            BitSet candidates = union(removed, dirty);
+            for (int s = candidates.nextSetBit(0); s >= 0; s = candidates.nextSetBit(s + 1)) {
+                if (!value.get(s) && justified(s)) {
+                    value.set(s);
+                    added.set(s);
+                    toProcess.add(s);
+                }
+            }
+            while (!toProcess.isEmpty()) {
+                int s = toProcess.poll();
+                for (int i = 0; i < model.getInDegree(s); i++) {
+                    int predecessor = model.getSource(model.getIncoming(s, i));
+                    if (!value.get(predecessor) && justified(predecessor)) {
+                        value.set(predecessor);
+                        added.set(predecessor);
+                        toProcess.add(predecessor);
+                    }
+                }
+            }
+            // a state removed and then re-derived has not changed
+            BitSet changes = (BitSet) removed.clone();
+            changes.xor(added);
+            return changes;
+        }
+    }
+
+    /**
+     * EG_B p = nu Z. p and Ok and pre_B(Z)
+     */
+    private class AlwaysNode extends TemporalNode {
+
+        private final Node operand;
+        private final Set<String> actions;
+
+        /**
+         * The mask of the action set in the current model
+         */
+        private long[] mask;
+
+        AlwaysNode(Node constraint, Node operand, Set<String> actions) {
+            super(constraint);
+            this.operand = operand;
+            this.actions = actions;
+        }
+
+        private boolean candidate(int s) {
+            return operand.value.get(s) && ok(s);
+        }
+
+        /**
+         * @param pending the states removed from the set whose removal has not yet been counted against their
+         *                predecessors
+         * @return the number of transitions (in the action set) from the state into the set or a pending state
+         */
+        private int countSuccessors(int s, BitSet pending) {
+            int count = 0;
+            for (int i = 0; i < model.getOutDegree(s); i++) {
+                int t = model.getOutgoing(s, i);
+                int target = model.getTarget(t);
+                if ((value.get(target) || pending.get(target)) && model.actionsSatisfied(t, mask))
+                    count++;
+            }
+            return count;
+        }
+
+        @Override
+        BitSet update() {
+            mask = model.getActionMask(actions);
+            BitSet dirty = union(touched, operand.changed);
+            dirty.or(constraintChanged());
+            // tentatively add the states outside the set which reach a dirty state through candidates
+            BitSet added = new BitSet();
+            BitSet reached = new BitSet();
+            Deque<Integer> toProcess = new ArrayDeque<>();
+            for (int s = dirty.nextSetBit(0); s >= 0; s = dirty.nextSetBit(s + 1)) {
+                if (candidate(s)) {
+                    reached.set(s);
+                    toProcess.add(s);
+                }
+            }
+            while (!toProcess.isEmpty()) {
+                int s = toProcess.poll();
+                if (!value.get(s))
+                    added.set(s);
+                for (int i = 0; i < model.getInDegree(s); i++) {
+                    int t = model.getIncoming(s, i);
+                    int predecessor = model.getSource(t);
+                    if (!reached.get(predecessor) && !value.get(predecessor) && candidate(predecessor)
+                            && model.actionsSatisfied(t, mask)) {
+                        reached.set(predecessor);
+                        toProcess.add(predecessor);
+                    }
+                }
+            }
+            value.or(added);
+            // then remove states while they are not candidates, or have no successor in the set
+            BitSet removed = new BitSet();
+            BitSet pending = new BitSet();
+            Map<Integer, Integer> successorCounts = new HashMap<>();
+            BitSet check = union(added, dirty);
+            check.and(value);
+            for (int s = check.nextSetBit(0); s >= 0; s = check.nextSetBit(s + 1)) {
+                int count = candidate(s) ? countSuccessors(s, pending) : 0;
+                successorCounts.put(s, count);
+                if (count == 0) {
+                    value.clear(s);
+                    removed.set(s);
+                    pending.set(s);
+                    toProcess.add(s);
+                }
+            }
+            while (!toProcess.isEmpty()) {
+                int s = toProcess.poll();
+                for (int i = 0; i < model.getInDegree(s); i++) {
+                    int t = model.getIncoming(s, i);
+                    int predecessor = model.getSource(t);
+                    if (!value.get(predecessor) || !model.actionsSatisfied(t, mask))
+                        continue;
+                    Integer count = successorCounts.get(predecessor);
+                    int remaining = (count != null ? count : countSuccessors(predecessor, pending)) - 1;
+                    successorCounts.put(predecessor, remaining);
+                    if (remaining == 0) {
+                        value.clear(predecessor);
+                        removed.set(predecessor);
+                        pending.set(predecessor);
+                        toProcess.add(predecessor);
+                    }
+                }
+                pending.clear(s);
+            }
+            BitSet changes = (BitSet) added.clone();
+            changes.xor(removed);
+            return changes;
+        }
+    }
+
+    //******** HELPERS ********//
+
+    /**
+     * Re-evaluate the seeds of an until, the states satisfying its right which can be entered by its right actions
+     * (and satisfy the constraint of the given node, if not null), on the given states and those where the right
+     * changed.
+     * @return the states on which the seeds changed
+     */
+    private BitSet updateSeeds(BitSet seeds, BitSet states, Node right, long[] rightActions, TemporalNode constrainedBy) {
+        BitSet check = union(states, right.changed);
+        BitSet changes = new BitSet();
+        for (int s = check.nextSetBit(0); s >= 0; s = check.nextSetBit(s + 1)) {
+            boolean v = right.value.get(s) && (constrainedBy == null || constrainedBy.constrained(s))
+                    && hasIncoming(s, rightActions);
+            if (v != seeds.get(s)) {
+                seeds.set(s, v);
+                changes.set(s);
+            }
+        }
+        return changes;
+    }
+
+    private boolean hasIncoming(int state, long[] actions) {
+        for (int i = 0; i < model.getInDegree(state); i++)
+            if (model.actionsSatisfied(model.getIncoming(state, i), actions))
+                return true;
+        return false;
+    }
+
+    /**
+     * Remove from a least fixpoint the dirty states, and every state which reaches one of them within it.
+     * @return the states removed
+     */
+    private BitSet overdelete(BitSet fixpoint, BitSet dirty) {
+        BitSet removed = (BitSet) dirty.clone();
+        removed.and(fixpoint);
+        fixpoint.andNot(removed);
+        Deque<Integer> toProcess = new ArrayDeque<>();
+        for (int s = removed.nextSetBit(0); s >= 0; s = removed.nextSetBit(s + 1))
+            toProcess.add(s);
+        while (!toProcess.isEmpty()) {
+            int s = toProcess.poll();
+            for (int i = 0; i < model.getInDegree(s); i++) {
+                int predecessor = model.getSource(model.getIncoming(s, i));
+                if (fixpoint.get(predecessor)) {
+                    fixpoint.clear(predecessor);
+                    removed.set(predecessor);
+                    toProcess.add(predecessor);
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * @return the states with a transition into one of the given states
+     */
+    private BitSet predecessors(BitSet states) {
+        BitSet predecessors = new BitSet();
+        for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1))
+            for (int i = 0; i < model.getInDegree(s); i++)
+                predecessors.set(model.getSource(model.getIncoming(s, i)));
+        return predecessors;
+    }
+
+    private static BitSet union(BitSet a, BitSet b) {
+        BitSet union = (BitSet) a.clone();
+        union.or(b);
+        return union;
+    }
+}
@@ -0,0 +1,415 @@
+package modelChecker.asctl;
+
+import formula.pathFormula.Always;
+import formula.pathFormula.Next;
+import formula.pathFormula.Until;
+import formula.stateFormula.*;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decides a query on the initial states of a model by evaluating each subformula only on the states where its value
+ * is needed, starting from the initial states, rather than marking every subformula on every state as
+ * {@link ModelMarker} does. The value of each (subformula, state) pair is kept once decided, and the check stops at the
+ * first initial state on which the query does not hold.
+ *
+ * The operators mean the fixpoints given in {@link modelChecker.symbolic.SymbolicMarker}, where Ok is the set of states
+ * satisfying the constraint or initial, C the set of states satisfying the constraint, and Seeds the states satisfying
+ * q which can be entered by a b-step:
+ *
+ * EX_B p:      a B-step into a state satisfying p and Ok;
+ * E(p aUb q):  the state is a seed, or a path of a-steps through states satisfying p and Ok ends with a b-step into
+ *              a seed; found by a breadth-first search, after which every state on the path satisfies it, or every
+ *              state searched does not;
+ * A(p aUb q):  the state is a seed satisfying C, or satisfies p, has a successor in C, and every transition into C is
+ *              a b-step into a seed or an a-step into a state satisfying it; found by a depth-first search, in which a
+ *              state depending on a state still being searched does not satisfy it (no least fixpoint can contain a
+ *              cycle of such dependencies);
+ * EG_B p:      an infinite path of B-steps through states satisfying p and Ok; found by a depth-first search, which
+ *              succeeds on reaching a state on its stack (all of which then satisfy it), and after which every state
+ *              it has left does not satisfy it.
+ *
+ * The searches keep their stacks and queues in arrays, so their depth is not bounded by the thread's stack; only the
+ * nesting of the query's subformulae is.
+ */
+public class LocalMarker {
+
+    private final ModelWrapper model;
+
+    /**
+     * The normalized constraint, which is decided without restricting any paths
+     */
+    private StateFormula constraint;
+
+    private Evaluation unconstrained;
+
+    private Evaluation constrained;
+
+    private BitSet expanded;
+
+    public LocalMarker(ModelWrapper model) {
+        this.model = model;
+    }
+
+    public ModelWrapper getModel() {
+        return model;
+    }
+
+    /**
+     * @return true if every initial state satisfies f under the constraint
+     */
+    public boolean isModelSatisfied(StateFormula f, StateFormula constraint) {
+        StateFormula normalizedF = Normalizer.normalize(f);
+        this.constraint = Normalizer.normalize(constraint);
+        unconstrained = new Evaluation(false);
+        constrained = new Evaluation(true);
+        expanded = new BitSet(model.getStateCount());
+        for (int s = 0; s < model.getStateCount(); s++)
+            if (model.isInit(s) && !constrained.holds(normalizedF, s))
+                return false;
+        return true;
+    }
+
+    /**
+     * Decide a formula on a state under the constraint of the previous check, reusing everything decided so far.
+     */
+    public boolean isSatisfied(int state, StateFormula f) {
+        return constrained.holds(Normalizer.normalize(f), state);
+    }
+
+    /**
+     * @return the number of distinct states whose transitions were searched by the previous check
+     */
+    public int getExpandedStateCount() {
+        return expanded.cardinality();
+    }
+
+    /**
+     * The values decided for one formula, and the working space of its searches. A formula is never searched again
+     * while one of its searches is in progress, as a search only decides its subformulae, so the space is shared by
+     * all of its searches.
+     */
+    private class Memo {
+
+        final BitSet decided = new BitSet();
+
+        final BitSet holds = new BitSet();
+
+        /**
+         * For an atomic proposition, whether it holds on each label set
+         */
+        boolean[] labelled;
+
+        /**
+         * For E(p U q), which states are known to have, or not to have, a path of a-steps to a seed
+         */
+        final BitSet pathDecided = new BitSet();
+
+        final BitSet pathHolds = new BitSet();
+
+        long[] actions;
+
+        long[] leftActions;
+
+        long[] rightActions;
+
+        /**
+         * A queue or stack of states, with the parent (as a position) or next transition of each
+         */
+        int[] states = new int[16];
+
+        int[] links = new int[16];
+
+        final BitSet searched = new BitSet();
+
+        Memo(StateFormula f) {
+            if (f instanceof AtomicProp) {
+                labelled = new boolean[model.getLabelSetCount()];
+                for (int l = 0; l < labelled.length; l++)
+                    labelled[l] = Arrays.asList(model.getLabelSet(l)).contains(((AtomicProp) f).label);
+            }
+            if (f instanceof ThereExists && ((ThereExists) f).pathFormula instanceof Next)
+                actions = model.getActionMask(((Next) ((ThereExists) f).pathFormula).getActions());
+            else if (f instanceof ThereExists && ((ThereExists) f).pathFormula instanceof Always)
+                actions = model.getActionMask(((Always) ((ThereExists) f).pathFormula).getActions());
+            Until until = f instanceof ThereExists && ((ThereExists) f).pathFormula instanceof Until
+                    ? (Until) ((ThereExists) f).pathFormula
+                    : f instanceof ForAll && ((ForAll) f).pathFormula instanceof Until ? (Until) ((ForAll) f).pathFormula : null;
+            if (until != null) {
+                leftActions = model.getActionMask(until.getLeftActions());
+                rightActions = model.getActionMask(until.getRightActions());
+            }
+        }
+
+        void set(int state, boolean value) {
+            decided.set(state);
+            holds.set(state, value);
+        }
+
+        /**
+         * @return the position at which the state was added
+         */
+        int push(int size, int state, int link) {
+            if (size == states.length) {
+                states = Arrays.copyOf(states, size * 2);
+                links = Arrays.copyOf(links, size * 2);
+            }
+            states[size] = state;
+            links[size] = link;
+            return size;
+        }
+    }
+
+    /**
+     * The values of formulae on states, either under the constraint or without any.
+     */
+    private class Evaluation {
+
+        private final boolean restricted;
+
+        private final Map<StateFormula, Memo> memos = new HashMap<>();
+
+        Evaluation(boolean restricted) {
+            this.restricted = restricted;
+        }
+
+        private Memo memo(StateFormula f) {
+            Memo memo = memos.get(f);
+            if (memo == null) {
+                memo = new Memo(f);
+                memos.put(f, memo);
+            }
+            return memo;
+        }
+
+        /**
+         * @return true if the state satisfies the constraint (or there is no constraint to satisfy)
+         */
+        private boolean inConstraint(int state) {
+            return !restricted || unconstrained.holds(constraint, state);
+        }
+
+        /**
+         * @return true if the state satisfies the constraint or is initial (or there is no constraint to satisfy)
+         */
+        private boolean ok(int state) {
+            return !restricted || model.isInit(state) || unconstrained.holds(constraint, state);
+        }
+
+        boolean holds(StateFormula f, int state) {
+            Memo memo = memo(f);
+            if (!memo.decided.get(state))
+                memo.set(state, decide(f, memo, state));
+            return memo.holds.get(state);
+        }
+
+        private boolean decide(StateFormula f, Memo memo, int state) {
+            if (f instanceof BoolProp) {
+                return ((BoolProp) f).value;
+            } else if (f instanceof AtomicProp) {
+                return memo.labelled[model.getLabelSetOf(state)];
+            } else if (f instanceof Not) {
+                return !holds(((Not) f).stateFormula, state);
+            } else if (f instanceof And) {
+                return holds(((And) f).left, state) && holds(((And) f).right, state);
+            } else if (f instanceof Or) {
+                return holds(((Or) f).left, state) || holds(((Or) f).right, state);
+            } else if (f instanceof ThereExists) {
+                ThereExists e = (ThereExists) f;
+                if (e.pathFormula instanceof Next)
+                    return next((Next) e.pathFormula, memo, state);
+                else if (e.pathFormula instanceof Until)
+                    return existsUntil((Until) e.pathFormula, memo, state);
+                else if (e.pathFormula instanceof Always)
+                    return existsAlways((Always) e.pathFormula, memo, state);
+            } else if (f instanceof ForAll && ((ForAll) f).pathFormula instanceof Until) {
+                return forAllUntil((Until) ((ForAll) f).pathFormula, memo, state);
+            }
+            throw new IllegalArgumentException("reduction incomplete in formula: " + f.toString() + " - only forms EX p, EG p, E(p U q) and A(p U q) are accepted");
+        }
+
+        private boolean next(Next next, Memo memo, int state) {
+            expanded.set(state);
+            for (int i = 0; i < model.getOutDegree(state); i++) {
+                int t = model.getOutgoing(state, i);
+                int target = model.getTarget(t);
+                if (model.actionsSatisfied(t, memo.actions) && ok(target) && holds(next.stateFormula, target))
+                    return true;
+            }
+            return false;
+        }
+
+        /**
+         * @return true if the state satisfies q and can be entered by a b-step
+         */
+        private boolean isSeed(Until until, Memo memo, int state) {
+            if (!holds(until.right, state))
+                return false;
+            for (int i = 0; i < model.getInDegree(state); i++)
+                if (model.actionsSatisfied(model.getIncoming(state, i), memo.rightActions))
+                    return true;
+            return false;
+        }
+
+        private boolean existsUntil(Until until, Memo memo, int start) {
+            if (isSeed(until, memo, start))
+                return true;
+            if (memo.pathDecided.get(start))
+                return memo.pathHolds.get(start);
+            if (!ok(start) || !holds(until.left, start))
+                return false;
+            // breadth-first, with the position of the parent of each state in the queue
+            int size = 0;
+            memo.push(size++, start, -1);
+            memo.searched.set(start);
+            int found = -1;
+            for (int head = 0; head < size && found < 0; head++) {
+                int state = memo.states[head];
+                expanded.set(state);
+                for (int i = 0; i < model.getOutDegree(state); i++) {
+                    int t = model.getOutgoing(state, i);
+                    int target = model.getTarget(t);
+                    // the b-step itself enters the target, so it is a seed if it satisfies q
+                    if ((model.actionsSatisfied(t, memo.rightActions) && holds(until.right, target))
+                            || (memo.pathHolds.get(target) && model.actionsSatisfied(t, memo.leftActions))) {
+                        found = head;
+                        break;
+                    }
+                    if (!memo.searched.get(target) && !memo.pathDecided.get(target)
+                            && model.actionsSatisfied(t, memo.leftActions) && ok(target) && holds(until.left, target)) {
+                        memo.push(size++, target, head);
+                        memo.searched.set(target);
+                    }
+                }
+            }
+            if (found >= 0) {
+                for (int i = found; i >= 0; i = memo.links[i]) {
+                    memo.pathDecided.set(memo.states[i]);
+                    memo.pathHolds.set(memo.states[i]);
+                }
+            } else {
+                // every state with a path of a-steps to a seed from the searched ones would have been searched
+                for (int i = 0; i < size; i++)
+                    memo.pathDecided.set(memo.states[i]);
+            }
+            for (int i = 0; i < size; i++)
+                memo.searched.clear(memo.states[i]);
+            return found >= 0;
+        }
+
+        private boolean forAllUntil(Until until, Memo memo, int start) {
+            Boolean known = enterForAllUntil(until, memo, start);
+            if (known != null)
+                return known;
+            // depth-first, with the next transition of each state on the stack, and whether it has a successor in C
+            // kept in the sign of its state
+            int depth = 0;
+            memo.push(depth++, start, 0);
+            memo.searched.set(start);
+            Boolean result = null;
+            while (depth > 0) {
+                int top = depth - 1;
+                int state = memo.states[top] & Integer.MAX_VALUE;
+                boolean fails = result != null && !result;
+                result = null;
+                while (!fails && memo.links[top] < model.getOutDegree(state)) {
+                    int t = model.getOutgoing(state, memo.links[top]++);
+                    int target = model.getTarget(t);
+                    if (!inConstraint(target))
+                        continue;
+                    memo.states[top] |= Integer.MIN_VALUE;
+                    if (model.actionsSatisfied(t, memo.rightActions) && holds(until.right, target))
+                        continue;
+                    if (!model.actionsSatisfied(t, memo.leftActions) || memo.searched.get(target)) {
+                        fails = true;
+                        break;
+                    }
+                    Boolean value = enterForAllUntil(until, memo, target);
+                    if (value == null) {
+                        // search the target, then come back to this transition's successor
+                        memo.push(depth++, target, 0);
+                        memo.searched.set(target);
+                        break;
+                    }
+                    fails = !value;
+                }
+                if (depth - 1 > top)
+                    continue;
+                if (!fails && memo.links[top] < model.getOutDegree(state))
+                    continue;
+                // every transition has been checked, or one fails
+                boolean holds = !fails && memo.states[top] < 0;
+                memo.set(state, holds);
+                memo.searched.clear(state);
+                depth--;
+                result = holds;
+            }
+            return memo.holds.get(start);
+        }
+
+        /**
+         * @return the value of A(p U q) on the state if it does not depend on its successors, or null
+         */
+        private Boolean enterForAllUntil(Until until, Memo memo, int state) {
+            if (memo.decided.get(state))
+                return memo.holds.get(state);
+            expanded.set(state);
+            if (inConstraint(state) && isSeed(until, memo, state))
+                return set(memo, state, true);
+            if (!holds(until.left, state))
+                return set(memo, state, false);
+            return null;
+        }
+
+        private boolean set(Memo memo, int state, boolean value) {
+            memo.set(state, value);
+            return value;
+        }
+
+        private boolean existsAlways(Always always, Memo memo, int start) {
+            if (!ok(start) || !holds(always.stateFormula, start))
+                return false;
+            // depth-first, with the next transition of each state on the stack
+            int depth = 0;
+            memo.push(depth++, start, 0);
+            memo.searched.set(start);
+            boolean found = false;
+            while (depth > 0 && !found) {
+                int top = depth - 1;
+                int state = memo.states[top];
+                if (memo.links[top] == 0)
+                    expanded.set(state);
+                if (memo.links[top] == model.getOutDegree(state)) {
+                    // no path from the state reaches the stack or a state known to satisfy EG p
+                    memo.set(state, false);
+                    memo.searched.clear(state);
+                    depth--;
+                    continue;
+                }
+                int t = model.getOutgoing(state, memo.links[top]++);
+                int target = model.getTarget(t);
+                if (!model.actionsSatisfied(t, memo.actions))
+                    continue;
+                if (memo.searched.get(target) || (memo.decided.get(target) && memo.holds.get(target))) {
+                    found = true;
+                } else if (!memo.decided.get(target)) {
+                    if (ok(target) && holds(always.stateFormula, target)) {
+                        memo.push(depth++, target, 0);
+                        memo.searched.set(target);
+                    } else {
+                        memo.set(target, false);
+                    }
+                }
+            }
+            // each state on the stack has a path into the cycle, or to a state known to satisfy EG p
+            for (int i = 0; i < depth; i++) {
+                memo.set(memo.states[i], true);
+                memo.searched.clear(memo.states[i]);
+            }
+            return found;
+        }
+    }
+}
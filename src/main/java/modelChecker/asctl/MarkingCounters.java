@@ -0,0 +1,14 @@
+package modelChecker.asctl;
+
+/**
+ * The work done by one operator, counted by the marking and counterexample searches when a listener is set. A set of
+ * counters is only updated by the thread running its operator.
+ */
+final class MarkingCounters {
+
+    long transitionsScanned;
+
+    long worklistPushes;
+
+    long iterations;
+}
@@ -0,0 +1,20 @@
+package modelChecker.asctl;
+
+/**
+ * Receives the cost of each subformula marked by a {@link ModelMarker}, and of each counterexample built from one.
+ *
+ * A marker with a pool calls its listener from the pool's threads, so such a listener must be thread-safe. See
+ * {@link MarkingReport} for a listener aggregating the costs.
+ */
+public interface MarkingListener {
+
+    /**
+     * Called once a subformula has been marked, or taken from the cache, after its own subformulae.
+     */
+    void subformulaMarked(OperatorStats stats);
+
+    /**
+     * Called once a counterexample has been built for a query.
+     */
+    void counterexampleBuilt(OperatorStats stats);
+}
@@ -0,0 +1,172 @@
+package modelChecker.asctl;
+
+import formula.stateFormula.StateFormula;
+
+import java.util.*;
+
+/**
+ * A listener totalling the costs reported by markers, per operator and per subformula, so that the subformulae
+ * responsible for a slow check can be found. Its methods are synchronized, so it may be shared by markers on several
+ * threads.
+ */
+public class MarkingReport implements MarkingListener {
+
+    private final Map<String, Total> operators = new TreeMap<>();
+
+    private final Map<StateFormula, Total> formulae = new HashMap<>();
+
+    private final Total counterexamples = new Total(OperatorStats.COUNTEREXAMPLE);
+
+    @Override
+    public synchronized void subformulaMarked(OperatorStats stats) {
+        operators.computeIfAbsent(stats.getOperator(), Total::new).add(stats);
+        formulae.computeIfAbsent(stats.getFormula(), f -> new Total(f.toString())).add(stats);
+    }
+
+    @Override
+    public synchronized void counterexampleBuilt(OperatorStats stats) {
+        counterexamples.add(stats);
+    }
+
+    /**
+     * @return the totals of each operator, by name
+     */
+    public synchronized List<Total> getOperators() {
+        List<Total> totals = new ArrayList<>();
+        for (Total total : operators.values())
+            totals.add(new Total(total));
+        return totals;
+    }
+
+    /**
+     * @return the totals of the subformulae which took the most time, slowest first
+     */
+    public synchronized List<Total> getSlowest(int count) {
+        List<Total> totals = new ArrayList<>();
+        for (Total total : formulae.values())
+            totals.add(new Total(total));
+        totals.sort((a, b) -> Long.compare(b.nanos, a.nanos));
+        return totals.subList(0, Math.min(count, totals.size()));
+    }
+
+    public synchronized Total getCounterexamples() {
+        return new Total(counterexamples);
+    }
+
+    public synchronized void clear() {
+        operators.clear();
+        formulae.clear();
+        counterexamples.clear();
+    }
+
+    /**
+     * @return a table of the totals per operator, of the counterexamples, and of the ten slowest subformulae
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-16s %8s %8s %12s %12s %12s %12s %12s %12s%n", "operator", "count", "cached",
+                "total ms", "max ms", "states", "transitions", "pushes", "iterations"));
+        for (Total total : operators.values())
+            total.writeTo(report);
+        if (counterexamples.count > 0)
+            counterexamples.writeTo(report);
+        report.append(String.format("%nslowest subformulae:%n"));
+        for (Total total : getSlowest(10))
+            report.append(String.format("%12.3f ms  %s%n", total.nanos / 1e6, total.name));
+        return report.toString();
+    }
+
+    /**
+     * The costs reported for an operator or a subformula, totalled over every time it was marked.
+     */
+    public static final class Total {
+
+        private final String name;
+        private int count;
+        private int cached;
+        private long nanos;
+        private long maxNanos;
+        private long states;
+        private long transitionsScanned;
+        private long worklistPushes;
+        private long iterations;
+
+        Total(String name) {
+            this.name = name;
+        }
+
+        Total(Total other) {
+            name = other.name;
+            count = other.count;
+            cached = other.cached;
+            nanos = other.nanos;
+            maxNanos = other.maxNanos;
+            states = other.states;
+            transitionsScanned = other.transitionsScanned;
+            worklistPushes = other.worklistPushes;
+            iterations = other.iterations;
+        }
+
+        void add(OperatorStats stats) {
+            count++;
+            if (stats.isCached())
+                cached++;
+            nanos += stats.getNanos();
+            maxNanos = Math.max(maxNanos, stats.getNanos());
+            states += stats.getStates();
+            transitionsScanned += stats.getTransitionsScanned();
+            worklistPushes += stats.getWorklistPushes();
+            iterations += stats.getIterations();
+        }
+
+        void clear() {
+            count = cached = 0;
+            nanos = maxNanos = states = transitionsScanned = worklistPushes = iterations = 0;
+        }
+
+        private void writeTo(StringBuilder report) {
+            report.append(String.format("%-16s %8d %8d %12.3f %12.3f %12d %12d %12d %12d%n", name, count, cached,
+                    nanos / 1e6, maxNanos / 1e6, states, transitionsScanned, worklistPushes, iterations));
+        }
+
+        /**
+         * @return the operator, or the subformula
+         */
+        public String getName() {
+            return name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getCachedCount() {
+            return cached;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public long getStates() {
+            return states;
+        }
+
+        public long getTransitionsScanned() {
+            return transitionsScanned;
+        }
+
+        public long getWorklistPushes() {
+            return worklistPushes;
+        }
+
+        public long getIterations() {
+            return iterations;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package modelChecker.asctl;
+
+import java.util.*;
+
+/**
+ * A change to a model: states and transitions to add or remove, and states whose labels are replaced.
+ *
+ * A delta is applied to an editable {@link ModelWrapper} in place, and every state keeps its id. A removed state is
+ * detached: its transitions are removed, it loses its labels and initial status, and its name no longer resolves to
+ * it. A detached state cannot be reached, so it does not change whether any other state satisfies a formula, and its
+ * id is given to the next state added (the state's own id if it is re-added under the same name), so that a model
+ * whose states are replaced does not grow. Only states added while no id is free are numbered after the existing
+ * ones. Transition ids are not kept: the last transition takes the id of a removed one.
+ */
+public class ModelDelta {
+
+    private final List<StateChange> addedStates = new ArrayList<>();
+
+    private final Set<String> removedStates = new LinkedHashSet<>();
+
+    private final Map<String, String[]> relabelledStates = new LinkedHashMap<>();
+
+    private final List<TransitionChange> addedTransitions = new ArrayList<>();
+
+    private final List<TransitionChange> removedTransitions = new ArrayList<>();
+
+    private static class StateChange {
+        final String name;
+        final boolean init;
+        final String[] labels;
+
+        StateChange(String name, boolean init, String[] labels) {
+            this.name = name;
+            this.init = init;
+            this.labels = labels;
+        }
+    }
+
+    private static class TransitionChange {
+        final String source;
+        final String target;
+        final String[] actions;
+
+        TransitionChange(String source, String target, String[] actions) {
+            this.source = source;
+            this.target = target;
+            this.actions = actions;
+        }
+    }
+
+    public ModelDelta addState(String name, boolean init, String... labels) {
+        addedStates.add(new StateChange(name, init, labels));
+        return this;
+    }
+
+    public ModelDelta removeState(String name) {
+        removedStates.add(name);
+        return this;
+    }
+
+    /**
+     * Replace the labels of a state.
+     */
+    public ModelDelta setLabels(String name, String... labels) {
+        relabelledStates.put(name, labels);
+        return this;
+    }
+
+    public ModelDelta addTransition(String source, String target, String... actions) {
+        addedTransitions.add(new TransitionChange(source, target, actions));
+        return this;
+    }
+
+    /**
+     * Remove one transition with the given endpoints and set of actions.
+     */
+    public ModelDelta removeTransition(String source, String target, String... actions) {
+        removedTransitions.add(new TransitionChange(source, target, actions));
+        return this;
+    }
+
+    /**
+     * Apply the delta, at a cost proportional to its size and to the degrees of the states it changes, rather than
+     * to the size of the model. The removals are applied first, so a delta may remove a state and add one of the same
+     * name, which then takes back its id.
+     * @param model the model to change: an editable model (see {@link ModelWrapper#edit()}) is changed in place, and
+     *              any other is copied for editing first, at a cost of O(S + T)
+     * @param touched (output) the ids, in the changed model, of every state whose labels, initial status, incoming or
+     *                outgoing transitions may have changed
+     * @return the changed model
+     * @throws IllegalArgumentException if the delta names a state or transition which does not exist, or adds a state
+     * which already does; the model is then left unchanged
+     */
+    public ModelWrapper applyTo(ModelWrapper model, BitSet touched) {
+        ModelWrapper changed = model.isEditable() ? model : model.edit();
+        // check every name before changing anything
+        Set<String> live = new HashSet<>();
+        for (String name : removedStates)
+            requireState(changed, name);
+        for (StateChange added : addedStates) {
+            if ((changed.getStateId(added.name) >= 0 && !removedStates.contains(added.name)) || !live.add(added.name))
+                throw new IllegalArgumentException("state already exists: " + added.name);
+        }
+        for (String name : relabelledStates.keySet())
+            requireLiveState(changed, live, name);
+        for (TransitionChange added : addedTransitions) {
+            requireLiveState(changed, live, added.source);
+            requireLiveState(changed, live, added.target);
+        }
+        Set<Integer> removedTransitionIds = new HashSet<>();
+        for (TransitionChange removed : removedTransitions) {
+            int source = requireState(changed, removed.source);
+            int target = requireState(changed, removed.target);
+            int found = -1;
+            for (int i = 0; i < changed.getOutDegree(source) && found < 0; i++) {
+                int t = changed.getOutgoing(source, i);
+                if (changed.getTarget(t) == target && !removedTransitionIds.contains(t)
+                        && sameActions(changed.getActions(t), removed.actions))
+                    found = t;
+            }
+            if (found < 0)
+                throw new IllegalArgumentException("no such transition: " + removed.source + "-" + Arrays.toString(removed.actions) + "-" + removed.target);
+            removedTransitionIds.add(found);
+        }
+
+        // remove the transitions from the highest id down, as removing one gives its id to the last transition
+        List<Integer> ids = new ArrayList<>(removedTransitionIds);
+        ids.sort(Collections.reverseOrder());
+        for (int t : ids) {
+            touched.set(changed.getSource(t));
+            touched.set(changed.getTarget(t));
+            changed.removeTransition(t);
+        }
+        for (String name : removedStates) {
+            int s = changed.getStateId(name);
+            touched.set(s);
+            for (int i = 0; i < changed.getOutDegree(s); i++)
+                touched.set(changed.getTarget(changed.getOutgoing(s, i)));
+            for (int i = 0; i < changed.getInDegree(s); i++)
+                touched.set(changed.getSource(changed.getIncoming(s, i)));
+            changed.removeState(s);
+        }
+        for (StateChange added : addedStates)
+            touched.set(changed.addState(added.name, added.init, added.labels));
+        for (Map.Entry<String, String[]> relabelled : relabelledStates.entrySet()) {
+            int s = changed.getStateId(relabelled.getKey());
+            changed.setLabels(s, relabelled.getValue());
+            touched.set(s);
+        }
+        for (TransitionChange added : addedTransitions) {
+            int source = changed.getStateId(added.source);
+            int target = changed.getStateId(added.target);
+            changed.addTransition(source, target, added.actions);
+            touched.set(source);
+            touched.set(target);
+        }
+        return changed;
+    }
+
+    private static boolean sameActions(String[] a, String[] b) {
+        return new HashSet<>(Arrays.asList(a)).equals(new HashSet<>(Arrays.asList(b)));
+    }
+
+    private static int requireState(ModelWrapper model, String name) {
+        int id = model.getStateId(name);
+        if (id < 0)
+            throw new IllegalArgumentException("delta refers to unknown state: " + name);
+        return id;
+    }
+
+    /**
+     * Check that a state exists once the delta's states have been removed and added.
+     */
+    private void requireLiveState(ModelWrapper model, Set<String> added, String name) {
+        if (!added.contains(name) && (model.getStateId(name) < 0 || removedStates.contains(name)))
+            throw new IllegalArgumentException("delta refers to unknown state: " + name);
+    }
+}
@@ -0,0 +1,398 @@
+package modelChecker.asctl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A binary format for indexed models, which can be memory-mapped and wrapped without parsing.
+ *
+ * Every value is a little-endian 32-bit int (or 64-bit long, for the initial state words), laid out one section after
+ * another:
+ *
+ * header:      MAGIC, VERSION, state count S, transition count T, string count, string byte count,
+ *              label set count, action set count
+ * strings:     offsets[string count + 1] into the UTF-8 bytes that follow, padded to a multiple of 4 bytes; the first
+ *              S strings are the state names, the rest are labels and actions
+ * label sets:  offsets[label set count + 1] into the string ids that follow
+ * action sets: offsets[action set count + 1] into the string ids that follow
+ * states:      init words[(S + 63) / 64] (longs, as BitSet.toLongArray), label set id[S]
+ * transitions: source[T], target[T], action set id[T]
+ * adjacency:   successor offsets[S + 1], successor transitions[T], predecessor offsets[S + 1],
+ *              predecessor transitions[T], as described in {@link ModelWrapper}
+ *
+ * Files are converted from the JSON form with {@link #main} or {@link #write}, and read back with {@link #map}.
+ */
+public class ModelFile {
+
+    /**
+     * "ASCM" in ASCII
+     */
+    public static final int MAGIC = 0x4d435341;
+
+    public static final int VERSION = 1;
+
+    private static final int HEADER_INTS = 8;
+
+    private ModelFile() {
+    }
+
+    /**
+     * Convert a model from JSON to the binary format.
+     * @param args the path of the JSON model, then the path of the binary model to write
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: ModelFile <model.json> <model.bin>");
+            System.exit(2);
+        }
+        write(ModelLoader.load(args[0]), args[1]);
+    }
+
+    /**
+     * Map a model file into memory.
+     * @param filePath the path of a model in the binary format
+     * @return the model, whose arrays are views of the mapped file
+     * @throws IOException if the file cannot be mapped or is not a model file of this version
+     */
+    public static ModelWrapper map(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            // the mapping stays valid once the channel is closed
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                return new ModelWrapper(buffer);
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new IOException("not a valid model file: " + filePath, e);
+            }
+        }
+    }
+
+    /**
+     * @param model the model to write
+     * @param filePath the path of the file to write, which is replaced if it exists
+     */
+    public static void write(ModelWrapper model, String filePath) throws IOException {
+        int stateCount = model.getStateCount();
+        int transitionCount = model.getTransitionCount();
+        ModelWrapper.SetTable strings = new ModelWrapper.SetTable();
+        for (int s = 0; s < stateCount; s++)
+            if (strings.intern(new String[]{model.getStateName(s)}) != s)
+                throw new IllegalArgumentException("duplicate state: " + model.getStateName(s));
+        int[][] labelSets = internMembers(model, strings, true);
+        int[][] actionSets = internMembers(model, strings, false);
+        String[][] stringTable = strings.toArray();
+        byte[][] stringBytes = new byte[stringTable.length][];
+        int byteCount = 0;
+        for (int i = 0; i < stringTable.length; i++) {
+            stringBytes[i] = stringTable[i][0].getBytes(StandardCharsets.UTF_8);
+            byteCount += stringBytes[i].length;
+        }
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(channel);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(stateCount);
+            out.putInt(transitionCount);
+            out.putInt(stringTable.length);
+            out.putInt(byteCount);
+            out.putInt(labelSets.length);
+            out.putInt(actionSets.length);
+
+            int offset = 0;
+            out.putInt(offset);
+            for (byte[] bytes : stringBytes)
+                out.putInt(offset += bytes.length);
+            for (byte[] bytes : stringBytes)
+                out.putBytes(bytes);
+            for (int i = byteCount; i % 4 != 0; i++)
+                out.putBytes(new byte[1]);
+            putSets(out, labelSets);
+            putSets(out, actionSets);
+
+            BitSet init = new BitSet(stateCount);
+            for (int s = 0; s < stateCount; s++)
+                if (model.isInit(s))
+                    init.set(s);
+            long[] initWords = init.toLongArray();
+            for (int w = 0; w < initWordCount(stateCount); w++)
+                out.putLong(w < initWords.length ? initWords[w] : 0);
+            for (int s = 0; s < stateCount; s++)
+                out.putInt(model.getLabelSetOf(s));
+
+            for (int t = 0; t < transitionCount; t++)
+                out.putInt(model.getSource(t));
+            for (int t = 0; t < transitionCount; t++)
+                out.putInt(model.getTarget(t));
+            for (int t = 0; t < transitionCount; t++)
+                out.putInt(model.getActionSetOf(t));
+
+            offset = 0;
+            out.putInt(offset);
+            for (int s = 0; s < stateCount; s++)
+                out.putInt(offset += model.getOutDegree(s));
+            for (int s = 0; s < stateCount; s++)
+                for (int i = 0; i < model.getOutDegree(s); i++)
+                    out.putInt(model.getOutgoing(s, i));
+            offset = 0;
+            out.putInt(offset);
+            for (int s = 0; s < stateCount; s++)
+                out.putInt(offset += model.getInDegree(s));
+            for (int s = 0; s < stateCount; s++)
+                for (int i = 0; i < model.getInDegree(s); i++)
+                    out.putInt(model.getIncoming(s, i));
+            out.flush();
+        }
+    }
+
+    /**
+     * @return the members of each label set (or action set) of the model, as string ids
+     */
+    private static int[][] internMembers(ModelWrapper model, ModelWrapper.SetTable strings, boolean labels) {
+        int count = labels ? model.getLabelSetCount() : model.getActionSetCount();
+        int[][] sets = new int[count][];
+        for (int i = 0; i < count; i++) {
+            String[] members = labels ? model.getLabelSet(i) : model.getActionSet(i);
+            sets[i] = new int[members.length];
+            for (int m = 0; m < members.length; m++)
+                sets[i][m] = strings.intern(new String[]{members[m]});
+        }
+        return sets;
+    }
+
+    private static void putSets(Output out, int[][] sets) throws IOException {
+        int offset = 0;
+        out.putInt(offset);
+        for (int[] set : sets)
+            out.putInt(offset += set.length);
+        for (int[] set : sets)
+            for (int member : set)
+                out.putInt(member);
+    }
+
+    private static int initWordCount(int stateCount) {
+        return (stateCount + 63) >>> 6;
+    }
+
+    /**
+     * Buffered little-endian writes to a channel.
+     */
+    private static class Output {
+
+        private final FileChannel channel;
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            for (int i = 0; i < bytes.length; ) {
+                ensure(1);
+                int length = Math.min(bytes.length - i, buffer.remaining());
+                buffer.put(bytes, i, length);
+                i += length;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes)
+                flush();
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Views of the sections of a model file. Only the header and the label and action set dictionaries are decoded;
+     * every other section is returned as a view of the buffer.
+     */
+    static class Sections {
+
+        private final ByteBuffer buffer;
+
+        private final int stateCount;
+
+        private final int transitionCount;
+
+        private final IntBuffer stringOffsets;
+
+        private final int stringBytes;
+
+        private final String[][] labelSets;
+
+        private final String[][] actionSets;
+
+        private final int initWords;
+
+        private final IntBuffer stateLabelSets;
+
+        private final IntBuffer transitionSources;
+
+        private final IntBuffer transitionTargets;
+
+        private final IntBuffer transitionActionSets;
+
+        private final IntBuffer successorOffsets;
+
+        private final IntBuffer successorTransitions;
+
+        private final IntBuffer predecessorOffsets;
+
+        private final IntBuffer predecessorTransitions;
+
+        private int position;
+
+        Sections(ByteBuffer file) {
+            buffer = file.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            buffer.position(0);
+            IntBuffer header = ints(HEADER_INTS);
+            if (header.get(0) != MAGIC)
+                throw new IllegalArgumentException("not a model file");
+            if (header.get(1) != VERSION)
+                throw new IllegalArgumentException("unsupported model file version: " + header.get(1));
+            stateCount = header.get(2);
+            transitionCount = header.get(3);
+            int stringCount = header.get(4);
+            int stringByteCount = header.get(5);
+            stringOffsets = ints(stringCount + 1);
+            stringBytes = position;
+            position += (stringByteCount + 3) & ~3;
+            labelSets = sets(header.get(6));
+            actionSets = sets(header.get(7));
+            initWords = position;
+            position += 8 * initWordCount(stateCount);
+            stateLabelSets = ints(stateCount);
+            transitionSources = ints(transitionCount);
+            transitionTargets = ints(transitionCount);
+            transitionActionSets = ints(transitionCount);
+            successorOffsets = ints(stateCount + 1);
+            successorTransitions = ints(transitionCount);
+            predecessorOffsets = ints(stateCount + 1);
+            predecessorTransitions = ints(transitionCount);
+        }
+
+        /**
+         * @return a view of the next count ints of the file
+         */
+        private IntBuffer ints(int count) {
+            buffer.limit(position + 4 * count);
+            buffer.position(position);
+            IntBuffer view = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            buffer.limit(buffer.capacity());
+            position += 4 * count;
+            return view;
+        }
+
+        private String[][] sets(int count) {
+            IntBuffer offsets = ints(count + 1);
+            IntBuffer members = ints(offsets.get(count));
+            String[][] sets = new String[count][];
+            for (int i = 0; i < count; i++) {
+                sets[i] = new String[offsets.get(i + 1) - offsets.get(i)];
+                for (int m = 0; m < sets[i].length; m++)
+                    sets[i][m] = string(members.get(offsets.get(i) + m));
+            }
+            return sets;
+        }
+
+        private String string(int id) {
+            int from = stringOffsets.get(id);
+            byte[] bytes = new byte[stringOffsets.get(id + 1) - from];
+            for (int i = 0; i < bytes.length; i++)
+                bytes[i] = buffer.get(stringBytes + from + i);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @return the state names, each decoded from the file when it is requested
+         */
+        List<String> getStateNames() {
+            return new AbstractList<String>() {
+                @Override
+                public String get(int index) {
+                    if (index < 0 || index >= stateCount)
+                        throw new IndexOutOfBoundsException("state " + index);
+                    return string(index);
+                }
+
+                @Override
+                public int size() {
+                    return stateCount;
+                }
+            };
+        }
+
+        BitSet getInitStates() {
+            long[] words = new long[initWordCount(stateCount)];
+            for (int w = 0; w < words.length; w++)
+                words[w] = buffer.getLong(initWords + 8 * w);
+            return BitSet.valueOf(words);
+        }
+
+        String[][] getLabelSets() {
+            return labelSets;
+        }
+
+        String[][] getActionSets() {
+            return actionSets;
+        }
+
+        IntBuffer getStateLabelSets() {
+            return stateLabelSets;
+        }
+
+        IntBuffer getTransitionSources() {
+            return transitionSources;
+        }
+
+        IntBuffer getTransitionTargets() {
+            return transitionTargets;
+        }
+
+        IntBuffer getTransitionActionSets() {
+            return transitionActionSets;
+        }
+
+        IntBuffer getSuccessorOffsets() {
+            return successorOffsets;
+        }
+
+        IntBuffer getSuccessorTransitions() {
+            return successorTransitions;
+        }
+
+        IntBuffer getPredecessorOffsets() {
+            return predecessorOffsets;
+        }
+
+        IntBuffer getPredecessorTransitions() {
+            return predecessorTransitions;
+        }
+    }
+}
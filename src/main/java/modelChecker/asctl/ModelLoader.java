@@ -0,0 +1,207 @@
+package modelChecker.asctl;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Reads a model from its JSON representation straight into the compact form of a {@link ModelWrapper}, without
+ * building a State or Transition object per entry.
+ *
+ * The document is read as a stream: each state and transition is decoded into a few ints (its name or endpoint ids,
+ * and the id of its interned label or action set) and appended to growable int arrays, so the memory used beyond the
+ * final index is the set tables and the name to id map.
+ *
+ * States are numbered in the order in which their names are first seen. This is their position in the states array
+ * when it comes before the transitions (as written by the model tools); otherwise transitions may name states before
+ * they are declared, and every such name is checked against the declared states once the document has been read.
+ */
+public class ModelLoader {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Map<String, Integer> stateIds = new HashMap<>();
+
+    private String[] stateNames = new String[INITIAL_CAPACITY];
+
+    private final BitSet declared = new BitSet();
+
+    private final BitSet initStates = new BitSet();
+
+    private int[] stateLabelSets = new int[INITIAL_CAPACITY];
+
+    private final ModelWrapper.SetTable labelSets = new ModelWrapper.SetTable();
+
+    private int transitionCount;
+
+    private int[] transitionSources = new int[INITIAL_CAPACITY];
+
+    private int[] transitionTargets = new int[INITIAL_CAPACITY];
+
+    private int[] transitionActionSets = new int[INITIAL_CAPACITY];
+
+    private final ModelWrapper.SetTable actionSets = new ModelWrapper.SetTable();
+
+    private ModelLoader() {
+    }
+
+    /**
+     * @param filePath the path of a model in JSON form
+     * @return the model, indexed
+     * @throws IOException if the file cannot be read or is not a well-formed model
+     */
+    public static ModelWrapper load(String filePath) throws IOException {
+        try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(filePath), StandardCharsets.UTF_8))) {
+            return load(reader, filePath);
+        }
+    }
+
+    /**
+     * @param reader a model in JSON form, which is read to its end but not closed
+     * @return the model, indexed
+     * @throws IOException if the reader fails or the document is not a well-formed model
+     */
+    public static ModelWrapper load(Reader reader) throws IOException {
+        return load(reader, null);
+    }
+
+    private static ModelWrapper load(Reader reader, String source) throws IOException {
+        CheckerEvents.LoadModel event = CheckerEvents.beginLoadModel();
+        JsonReader json = new JsonReader(reader);
+        // as lenient as Gson.fromJson, which Model.parseModel uses
+        json.setLenient(true);
+        ModelWrapper model = new ModelLoader().read(json);
+        CheckerEvents.commit(event, source, model.getStateCount(), model.getTransitionCount());
+        return model;
+    }
+
+    private ModelWrapper read(JsonReader json) throws IOException {
+        try {
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                if (name.equals("states"))
+                    readStates(json);
+                else if (name.equals("transitions"))
+                    readTransitions(json);
+                else
+                    json.skipValue();
+            }
+            json.endObject();
+        } catch (IllegalStateException e) {
+            // thrown by JsonReader when the document does not have the expected shape
+            throw new IOException("malformed model: " + e.getMessage(), e);
+        }
+        int stateCount = stateIds.size();
+        int undeclared = declared.nextClearBit(0);
+        if (undeclared < stateCount)
+            throw new IOException("malformed model: transition refers to unknown state: " + stateNames[undeclared]);
+        return new ModelWrapper(Arrays.copyOf(stateNames, stateCount), stateIds, initStates,
+                Arrays.copyOf(stateLabelSets, stateCount), labelSets.toArray(),
+                Arrays.copyOf(transitionSources, transitionCount), Arrays.copyOf(transitionTargets, transitionCount),
+                Arrays.copyOf(transitionActionSets, transitionCount), actionSets.toArray());
+    }
+
+    private void readStates(JsonReader json) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            String name = null;
+            boolean init = false;
+            String[] label = null;
+            json.beginObject();
+            while (json.hasNext()) {
+                String field = json.nextName();
+                if (field.equals("name"))
+                    name = json.nextString();
+                else if (field.equals("init"))
+                    init = json.nextBoolean();
+                else if (field.equals("label"))
+                    label = readStrings(json);
+                else
+                    json.skipValue();
+            }
+            json.endObject();
+            if (name == null)
+                throw new IOException("malformed model: state without a name");
+            int id = stateId(name);
+            if (declared.get(id))
+                throw new IOException("malformed model: duplicate state: " + name);
+            declared.set(id);
+            if (init)
+                initStates.set(id);
+            stateLabelSets[id] = labelSets.intern(label);
+        }
+        json.endArray();
+    }
+
+    private void readTransitions(JsonReader json) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            String source = null;
+            String target = null;
+            String[] actions = null;
+            json.beginObject();
+            while (json.hasNext()) {
+                String field = json.nextName();
+                if (field.equals("source"))
+                    source = json.nextString();
+                else if (field.equals("target"))
+                    target = json.nextString();
+                else if (field.equals("actions"))
+                    actions = readStrings(json);
+                else
+                    json.skipValue();
+            }
+            json.endObject();
+            if (source == null || target == null)
+                throw new IOException("malformed model: transition without a source or target");
+            if (transitionCount == transitionSources.length) {
+                int capacity = transitionCount * 2;
+                transitionSources = Arrays.copyOf(transitionSources, capacity);
+                transitionTargets = Arrays.copyOf(transitionTargets, capacity);
+                transitionActionSets = Arrays.copyOf(transitionActionSets, capacity);
+            }
+            transitionSources[transitionCount] = stateId(source);
+            transitionTargets[transitionCount] = stateId(target);
+            transitionActionSets[transitionCount] = actionSets.intern(actions);
+            transitionCount++;
+        }
+        json.endArray();
+    }
+
+    /**
+     * @return the strings of an array, or null if the value is null
+     */
+    private static String[] readStrings(JsonReader json) throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return null;
+        }
+        List<String> strings = new ArrayList<>();
+        json.beginArray();
+        while (json.hasNext())
+            strings.add(json.nextString());
+        json.endArray();
+        return strings.toArray(new String[strings.size()]);
+    }
+
+    /**
+     * @return the id of the state with the given name, numbering it if it has not been seen before
+     */
+    private int stateId(String name) {
+        Integer id = stateIds.get(name);
+        if (id != null)
+            return id;
+        int next = stateIds.size();
+        if (next == stateNames.length) {
+            stateNames = Arrays.copyOf(stateNames, next * 2);
+            stateLabelSets = Arrays.copyOf(stateLabelSets, next * 2);
+        }
+        stateNames[next] = name;
+        stateIds.put(name, next);
+        return next;
+    }
+}
@@ -3,13 +3,20 @@ package modelChecker.asctl;
 import formula.pathFormula.Always;
 import formula.pathFormula.Eventually;
 import formula.pathFormula.Next;
+import formula.pathFormula.PathFormula;
 import formula.pathFormula.Until;
 import formula.stateFormula.*;
 import model.State;
-import model.Transition;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntPredicate;
+import java.util.function.LongBinaryOperator;
 
 import static java.util.Arrays.asList;
 
@@ -18,30 +25,132 @@ public class ModelMarker {
     private ModelWrapper model;
 
     /**
-     * A mapping from state name to a set of state formulae which are satisfied on the state.
+     * A mapping from each marked state formula to the set of ids of the states on which it is satisfied.
      */
-    private Map<String, Set<StateFormula>> marked;
+    private Map<StateFormula, BitSet> marked;
 
     /**
      * A normalized version of the constraint being applied
      */
     private StateFormula constraint;
 
+    /**
+     * The set of ids of states satisfying the constraint
+     */
+    private BitSet constraintStates;
+
+    /**
+     * The pool on which independent subformulae are marked in parallel, or null to mark sequentially
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * The default number of states below which the per-state kernels run on the calling thread
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 16;
+
+    /**
+     * The number of 64-bit words of a satisfaction set computed by each task of a per-state kernel
+     */
+    private static final int CHUNK_WORDS = 64;
+
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    private static final StateFormula UNRESTRICTED = new BoolProp(true);
+
+    /**
+     * The cache consulted before marking atomic and temporal subformulae, or null if there is none
+     */
+    private SubformulaCache cache;
+
+    /**
+     * The normalized formula whose satisfaction set the temporal operators are currently restricted to, under which
+     * their results are cached
+     */
+    private StateFormula restriction = UNRESTRICTED;
+
+    /**
+     * The listener told the cost of each subformula marked, or null; without one, no work is counted or timed
+     */
+    private MarkingListener listener;
+
     public ModelMarker(ModelWrapper model) {
+        this(model, null);
+    }
+
+    /**
+     * @param pool if not null, the pool on which independent subformulae are marked in parallel
+     */
+    public ModelMarker(ModelWrapper model, ForkJoinPool pool) {
         this.model = model;
-        marked = new HashMap<>();
+        this.pool = pool;
+        marked = new ConcurrentHashMap<>();
     }
 
     public boolean isModelSatisfied(StateFormula f, StateFormula constraint) {
-        marked = new HashMap<>();
+        marked = new ConcurrentHashMap<>();
         StateFormula normalizedF = normalize(f);
         this.constraint = normalize(constraint);
-        mark(this.constraint);
-        mark(normalizedF);
-        // return true if all initial states are marked (under the constraint) as satisfied for the given formula
-        Set<State> initialStates = model.getStates().stream().filter(State::isInit).collect(Collectors.toSet());
-        for (State s : initialStates)
-            if (!isSatisfied(s, normalizedF))
+        if (pool != null) {
+            markInParallel(normalizedF);
+        } else {
+            // the constraint is marked without restricting any paths, then only its own satisfaction set is kept, as
+            // the temporal subformulae it shares with the query must be re-marked under it
+            constraintStates = allStates();
+            restriction = UNRESTRICTED;
+            mark(this.constraint);
+            constraintStates = getSatisfying(this.constraint);
+            restriction = this.constraint;
+            marked = new ConcurrentHashMap<>();
+            marked.put(this.constraint, constraintStates);
+            mark(normalizedF);
+        }
+        return initStatesSatisfy(normalizedF);
+    }
+
+    /**
+     * Restrict the paths of the temporal operators to an already marked constraint, forgetting every formula marked
+     * under another one. Formulae marked after this are kept until the next restriction, so that a marker can be
+     * queried many times under the same constraint.
+     * @param constraint a normalized constraint
+     * @param constraintStates the set of ids of states satisfying it, marked without restricting any paths
+     */
+    void restrictTo(StateFormula constraint, BitSet constraintStates) {
+        this.constraint = constraint;
+        this.constraintStates = constraintStates;
+        restriction = constraint;
+        marked = new ConcurrentHashMap<>();
+        marked.put(constraint, constraintStates);
+    }
+
+    /**
+     * Mark a formula under the current restriction, reusing every subformula already marked.
+     * @param f a normalized formula
+     * @return the set of ids of states on which f is satisfied; this must not be modified
+     */
+    BitSet markUnderConstraint(StateFormula f) {
+        if (pool != null)
+            join(schedule(f, null, new HashMap<>()));
+        else
+            mark(f);
+        return getSatisfying(f);
+    }
+
+    /**
+     * Record the satisfaction set of a formula marked elsewhere under the current restriction, such as by a
+     * {@link FormulaProgram}.
+     */
+    void markAs(StateFormula f, BitSet satisfied) {
+        marked.put(f, satisfied);
+    }
+
+    /**
+     * @param f a marked formula
+     * @return true if all initial states are marked (under the constraint) as satisfied for the formula
+     */
+    boolean initStatesSatisfy(StateFormula f) {
+        for (int s = 0; s < model.getStateCount(); s++)
+            if (model.isInit(s) && !isSatisfied(s, f))
                 return false;
         return true;
     }
@@ -50,6 +159,32 @@ public class ModelMarker {
         return model;
     }
 
+    /**
+     * @param parallelThreshold the number of states from which the per-state kernels are partitioned over the pool
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * @param cache the cache to consult before marking atomic and temporal subformulae, and to fill, or null
+     */
+    public void setCache(SubformulaCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @param listener the listener to tell the cost of each subformula marked, and of each counterexample built from
+     *                 this marker, or null
+     */
+    public void setListener(MarkingListener listener) {
+        this.listener = listener;
+    }
+
+    public MarkingListener getListener() {
+        return listener;
+    }
+
     /**
      * @param a the actions associated with the state we're checking for
      * @param b the set of actions allowed by the operator
@@ -69,219 +204,624 @@ public class ModelMarker {
         markHelper(f);
     }
 
+    /**
+     * Mark the formula on the pool, with the constraint marked by a separate marker (without restricting any paths)
+     * at the same time as the query. Each subformula is marked once all of its own subformulae are, and the temporal
+     * subformulae of the query also wait for the constraint, as they are restricted by it.
+     */
+    private void markInParallel(StateFormula f) {
+        ModelMarker constraintMarker = new ModelMarker(model, pool);
+        constraintMarker.parallelThreshold = parallelThreshold;
+        constraintMarker.cache = cache;
+        constraintMarker.listener = listener;
+        constraintMarker.constraintStates = allStates();
+        restriction = constraint;
+        CompletableFuture<Void> constraintMarked = constraintMarker.schedule(constraint, null, new HashMap<>())
+                .thenRun(() -> {
+                    constraintStates = constraintMarker.getSatisfying(constraint);
+                    marked.put(constraint, constraintStates);
+                });
+        join(schedule(f, constraintMarked, new HashMap<>()));
+    }
+
+    /**
+     * Wait for a marking task, rethrowing the exception which failed it.
+     */
+    private static void join(CompletableFuture<Void> task) {
+        try {
+            task.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * @param constraintMarked the task marking the constraint, or null if the constraint states are already known
+     * @param tasks the tasks already scheduled for each subformula, so that shared subformulae are marked once
+     * @return a task which completes when f has been marked
+     */
+    private CompletableFuture<Void> schedule(StateFormula f, CompletableFuture<Void> constraintMarked, Map<StateFormula, CompletableFuture<Void>> tasks) {
+        CompletableFuture<Void> task = tasks.get(f);
+        if (task != null)
+            return task;
+        if (constraintMarked != null && f.equals(constraint)) {
+            task = constraintMarked;
+        } else {
+            List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+            for (StateFormula subformula : subformulae(f))
+                dependencies.add(schedule(subformula, constraintMarked, tasks));
+            if (constraintMarked != null && (f instanceof ThereExists || f instanceof ForAll))
+                dependencies.add(constraintMarked);
+            task = CompletableFuture.allOf(dependencies.toArray(new CompletableFuture<?>[0]))
+                    .thenRunAsync(() -> markHelper(f), pool);
+        }
+        tasks.put(f, task);
+        return task;
+    }
+
+    /**
+     * @return the state subformulae which must be marked before f
+     */
+    private static List<StateFormula> subformulae(StateFormula f) {
+        if (f instanceof Not) return asList(((Not) f).stateFormula);
+        else if (f instanceof And) return asList(((And) f).left, ((And) f).right);
+        else if (f instanceof Or) return asList(((Or) f).left, ((Or) f).right);
+        PathFormula path = null;
+        if (f instanceof ThereExists) path = ((ThereExists) f).pathFormula;
+        else if (f instanceof ForAll) path = ((ForAll) f).pathFormula;
+        if (path instanceof Next) return asList(((Next) path).stateFormula);
+        else if (path instanceof Always) return asList(((Always) path).stateFormula);
+        else if (path instanceof Eventually) return asList(((Eventually) path).stateFormula);
+        else if (path instanceof Until) return asList(((Until) path).left, ((Until) path).right);
+        return Collections.emptyList();
+    }
+
+    private BitSet allStates() {
+        BitSet all = new BitSet(model.getStateCount());
+        all.set(0, model.getStateCount());
+        return all;
+    }
+
     private void markHelper(StateFormula f) {
+        // subformulae shared within the formula DAG are only marked once
+        if (marked.containsKey(f))
+            return;
+        // the subformulae are marked first, so that only the cost of f itself is reported
+        for (StateFormula subformula : subformulae(f))
+            markHelper(subformula);
+        MarkingCounters counters = null;
+        long start = 0;
+        if (listener != null) {
+            counters = new MarkingCounters();
+            start = System.nanoTime();
+        }
+        CheckerEvents.Mark event = CheckerEvents.beginMark();
+        boolean cacheable = cache != null && (f instanceof AtomicProp || f instanceof ThereExists || f instanceof ForAll);
+        // labels do not depend on the constraint, so atomic propositions are shared by all of them
+        StateFormula cacheConstraint = f instanceof AtomicProp ? UNRESTRICTED : restriction;
+        if (cacheable) {
+            BitSet cached = cache.get(model.getFingerprint(), cacheConstraint, f);
+            if (cached != null) {
+                marked.put(f, cached);
+                if (counters != null)
+                    report(f, start, counters, true);
+                CheckerEvents.commit(event, f, cached, model, true);
+                return;
+            }
+        }
         // match formula types to marking sequences
         if (f instanceof BoolProp) markFor((BoolProp)f);
         else if (f instanceof AtomicProp) markFor((AtomicProp)f);
         else if (f instanceof Not) markFor((Not)f);
         else if (f instanceof And) markFor((And)f);
         else if (f instanceof Or) markFor((Or)f);
-        else if (f instanceof ThereExists) markFor((ThereExists)f);
-        else if (f instanceof ForAll) markFor((ForAll)f);
+        else if (f instanceof ThereExists) markFor((ThereExists)f, counters);
+        else if (f instanceof ForAll) markFor((ForAll)f, counters);
+        if (cacheable)
+            cache.put(model.getFingerprint(), cacheConstraint, f, getSatisfying(f));
+        if (counters != null)
+            report(f, start, counters, false);
+        CheckerEvents.commit(event, f, getSatisfying(f), model, false);
+    }
+
+    private void report(StateFormula f, long start, MarkingCounters counters, boolean cached) {
+        long nanos = System.nanoTime() - start;
+        listener.subformulaMarked(new OperatorStats(f, OperatorStats.operatorOf(f), nanos, getSatisfying(f).cardinality(),
+                counters, cached));
     }
 
     private void markFor(BoolProp f) {
-        model.getStates().forEach(s -> setSatisfied(s, f, f.value));
+        BitSet satisfied = new BitSet(model.getStateCount());
+        if (f.value)
+            satisfied.set(0, model.getStateCount());
+        marked.put(f, satisfied);
     }
 
     private void markFor(AtomicProp f) {
-        model.getStates().forEach(s -> setSatisfied(s, f, asList(s.getLabel()).contains(f.label)));
+        // decide once per distinct label set rather than once per state
+        boolean[] labelled = new boolean[model.getLabelSetCount()];
+        for (int l = 0; l < labelled.length; l++)
+            labelled[l] = asList(model.getLabelSet(l)).contains(f.label);
+        marked.put(f, markStates(s -> labelled[model.getLabelSetOf(s)]));
     }
 
     private void markFor(Not f) {
         markHelper(f.stateFormula);
-        model.getStates().forEach(s -> setSatisfied(s, f, !isSatisfied(s, f.stateFormula)));
+        BitSet satisfied;
+        if (runsInParallel()) {
+            satisfied = combine(getSatisfying(f.stateFormula), getSatisfying(f.stateFormula), (a, b) -> ~a);
+        } else {
+            satisfied = (BitSet) getSatisfying(f.stateFormula).clone();
+            satisfied.flip(0, model.getStateCount());
+        }
+        marked.put(f, satisfied);
     }
 
     private void markFor(And f) {
         markHelper(f.left);
         markHelper(f.right);
-        model.getStates().forEach(s -> setSatisfied(s, f, isSatisfied(s, f.left) && isSatisfied(s, f.right)));
+        BitSet satisfied;
+        if (runsInParallel()) {
+            satisfied = combine(getSatisfying(f.left), getSatisfying(f.right), (a, b) -> a & b);
+        } else {
+            satisfied = (BitSet) getSatisfying(f.left).clone();
+            satisfied.and(getSatisfying(f.right));
+        }
+        marked.put(f, satisfied);
     }
 
     private void markFor(Or f) {
         markHelper(f.left);
         markHelper(f.right);
-        model.getStates().forEach(s -> setSatisfied(s, f, isSatisfied(s, f.left) || isSatisfied(s, f.right)));
+        BitSet satisfied;
+        if (runsInParallel()) {
+            satisfied = combine(getSatisfying(f.left), getSatisfying(f.right), (a, b) -> a | b);
+        } else {
+            satisfied = (BitSet) getSatisfying(f.left).clone();
+            satisfied.or(getSatisfying(f.right));
+        }
+        marked.put(f, satisfied);
     }
 
-    private void markFor(ThereExists f) {
+    private void markFor(ThereExists f, MarkingCounters counters) {
         if (f.pathFormula instanceof Next) {
             // of the form f = EXb psi
             Next next = ((Next) f.pathFormula);
-            StateFormula psi = next.stateFormula;
-            markHelper(psi);
-            model.getTransitions().stream()
-                    // only set states as satisfied in which the subformula holds, and can be reached via the action set
-                    .filter(t -> isSatisfied(t.getTarget(), psi) && actionsSatisfied(t.getActions(), next.getActions()))
-                    .filter(t -> isSatisfied(t.getTarget(), constraint) || model.getState(t.getTarget()).isInit())
-                    .forEach(t -> setSatisfied(t.getSource(), f, true));
+            markHelper(next.stateFormula);
+            marked.put(f, existsNext(getSatisfying(next.stateFormula), model.getActionMask(next.getActions()), counters));
         } else if (f.pathFormula instanceof Always) {
-            markForThereExistsAlways(f);
+            markForThereExistsAlways(f, counters);
         } else if (f.pathFormula instanceof Until) {
-            markForThereExistsUntil(f);
+            markForThereExistsUntil(f, counters);
         } else
             throw new IllegalArgumentException("reduction incomplete in formula: " + f.toString() + " - only forms EX p and E(p U q) are accepted");
     }
 
-    private void markFor(ForAll f) {
+    /**
+     * @return the states with a transition in the action set into a state satisfying psi and the constraint (or
+     * initial)
+     */
+    BitSet existsNext(BitSet psiStates, long[] actions, MarkingCounters counters) {
+        // the kernel may run on several threads
+        LongAdder scanned = counters != null ? new LongAdder() : null;
+        BitSet satisfied = markStates(s -> {
+            for (int i = 0; i < model.getOutDegree(s); i++) {
+                int t = model.getOutgoing(s, i);
+                int target = model.getTarget(t);
+                // only set states as satisfied in which the subformula holds, and can be reached via the action set
+                if (psiStates.get(target) && model.actionsSatisfied(t, actions)
+                        && (constraintStates.get(target) || model.isInit(target))) {
+                    if (scanned != null)
+                        scanned.add(i + 1);
+                    return true;
+                }
+            }
+            if (scanned != null)
+                scanned.add(model.getOutDegree(s));
+            return false;
+        });
+        if (counters != null)
+            counters.transitionsScanned += scanned.sum();
+        return satisfied;
+    }
+
+    private void markFor(ForAll f, MarkingCounters counters) {
         if (f.pathFormula instanceof Until)
-            markForForAllUntil(f);
+            markForForAllUntil(f, counters);
         else
             throw new IllegalArgumentException("reduction incomplete on formula: " + f.toString() + " - only formulae of the form A(p U q) are accepted");
     }
 
+    //******** PER-STATE KERNELS ********//
+
+    private boolean runsInParallel() {
+        return pool != null && model.getStateCount() >= parallelThreshold;
+    }
+
+    /**
+     * @param satisfies the kernel deciding whether a state is satisfied, which may be called from several threads
+     * @return the set of ids of states satisfying the kernel
+     */
+    private BitSet markStates(IntPredicate satisfies) {
+        int stateCount = model.getStateCount();
+        if (!runsInParallel()) {
+            BitSet satisfied = new BitSet(stateCount);
+            for (int s = 0; s < stateCount; s++)
+                if (satisfies.test(s))
+                    satisfied.set(s);
+            return satisfied;
+        }
+        long[] words = new long[wordCount()];
+        forEachChunk(words.length, (fromWord, toWord) -> {
+            for (int w = fromWord; w < toWord; w++) {
+                long word = 0;
+                int first = w << 6;
+                int last = Math.min(stateCount, first + 64);
+                for (int s = first; s < last; s++)
+                    if (satisfies.test(s))
+                        word |= 1L << (s - first);
+                words[w] = word;
+            }
+        });
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * @return the set of ids of states given by combining the words of the two sets with op
+     */
+    private BitSet combine(BitSet left, BitSet right, LongBinaryOperator op) {
+        long[] leftWords = left.toLongArray();
+        long[] rightWords = right.toLongArray();
+        long[] words = new long[wordCount()];
+        forEachChunk(words.length, (fromWord, toWord) -> {
+            for (int w = fromWord; w < toWord; w++)
+                words[w] = op.applyAsLong(w < leftWords.length ? leftWords[w] : 0, w < rightWords.length ? rightWords[w] : 0);
+        });
+        // clear the bits past the last state, which op may have set
+        if ((model.getStateCount() & 63) != 0)
+            words[words.length - 1] &= (1L << (model.getStateCount() & 63)) - 1;
+        return BitSet.valueOf(words);
+    }
+
+    private int wordCount() {
+        return (model.getStateCount() + 63) >>> 6;
+    }
+
+    private interface WordRange {
+        void apply(int fromWord, int toWord);
+    }
+
+    /**
+     * Apply the body to [0, wordCount) in chunks on the pool. The chunks are whole words, so tasks write disjoint
+     * parts of any shared array of words without locking.
+     */
+    private void forEachChunk(int wordCount, WordRange body) {
+        pool.invoke(new ChunkTask(0, wordCount, body));
+    }
+
+    private static class ChunkTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int fromWord;
+        private final int toWord;
+        private final WordRange body;
+
+        ChunkTask(int fromWord, int toWord, WordRange body) {
+            this.fromWord = fromWord;
+            this.toWord = toWord;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (toWord - fromWord <= CHUNK_WORDS) {
+                body.apply(fromWord, toWord);
+                return;
+            }
+            int middle = (fromWord + toWord) >>> 1;
+            invokeAll(new ChunkTask(fromWord, middle, body), new ChunkTask(middle, toWord, body));
+        }
+    }
+
     /**
      * @param state
      * @return the number of successor states of the given state (which must also satisfy the constraint)
      */
-    private int countSuccessors(State state) {
-        return model.getTransitions().stream()
-                .filter(t -> t.getSource().equals(state.getName()))
-                .filter(t -> isSatisfied(t.getTarget(), constraint))
-                .collect(Collectors.toSet()).size();
+    private int countSuccessors(int state) {
+        int count = 0;
+        for (int i = 0; i < model.getOutDegree(state); i++)
+            if (constraintStates.get(model.getTarget(model.getOutgoing(state, i))))
+                count++;
+        return count;
+    }
+
+    /**
+     * @param state
+     * @param actions the mask of the actions allowed by the operator
+     * @return true if the state can be entered by some transition in the action set
+     */
+    private boolean hasIncoming(int state, long[] actions) {
+        for (int i = 0; i < model.getInDegree(state); i++)
+            if (model.actionsSatisfied(model.getIncoming(state, i), actions))
+                return true;
+        return false;
     }
 
-    private void markForForAllUntil(ForAll f) {
+    /**
+     * A(p aUb q) is marked backward from the seeds, the states satisfying q and the constraint which can be entered by a
+     * b-step, through predecessors satisfying p with a successor satisfying the constraint, once every transition into
+     * the constraint from them has been satisfied: by a b-step into a seed, or by an a-step into a state marked. Each
+     * state is marked and processed once, and the transitions still to be satisfied are counted per state through the
+     * reverse index, so this costs O(S + T).
+     */
+    private void markForForAllUntil(ForAll f, MarkingCounters counters) {
         Until until = (Until)f.pathFormula;
         markHelper(until.left);
         markHelper(until.right);
-        Set<State> initialToProcess = new HashSet<>();
-        Set<State> toProcess = new HashSet<>();
-        Set<State> processed = new HashSet<>();
-        Map<State, Integer> successorsToSatisfy = new HashMap<>();
-        // we can only mark a state as satisfying A(p U q) (when q is not satisfied) if all the successors also satisfy the formula
-        model.getStates().forEach(s -> successorsToSatisfy.put(s, countSuccessors(s)));
-        // get a list of states to process
-        model.getTransitions().stream()
-                .filter(t -> actionsSatisfied(t.getActions(), until.getRightActions()))
-                .filter(t -> isSatisfied(t.getTarget(), constraint))
-                .filter(t -> isSatisfied(t.getTarget(), until.right))
-                .forEach(t -> initialToProcess.add(model.getState(t.getTarget())));
-        // run once over the first elements of toProcess, checking for the right action set rather than the left
-        while (initialToProcess.size() > 0) {
-            State s = initialToProcess.iterator().next();
-            initialToProcess.remove(s);
-            setSatisfied(s, f, true);
-            processed.add(s);
-            for (Transition transition : model.getTransitions().stream().filter(t -> t.getTarget().equals(s.getName())).collect(Collectors.toSet())) {
-                State predecessor = model.getState(transition.getSource());
-                successorsToSatisfy.put(predecessor, successorsToSatisfy.get(predecessor) - 1);
-                boolean allSuccessorsSatisfied = successorsToSatisfy.get(predecessor) <= 0;
-                boolean inRightActions = actionsSatisfied(transition.getActions(), until.getRightActions());
-                boolean constraintSatisfied = isSatisfied(transition.getTarget(), constraint);
-                boolean preSatisfiesLeft = isSatisfied(predecessor, until.left);
-                if (constraintSatisfied && allSuccessorsSatisfied && inRightActions && preSatisfiesLeft && !processed.contains(predecessor))
-                    toProcess.add(predecessor);
+        marked.put(f, forAllUntil(getSatisfying(until.left), getSatisfying(until.right),
+                model.getActionMask(until.getLeftActions()), model.getActionMask(until.getRightActions()), counters));
+    }
+
+    BitSet forAllUntil(BitSet leftStates, BitSet rightStates, long[] leftActions, long[] rightActions,
+                       MarkingCounters counters) {
+        int stateCount = model.getStateCount();
+        BitSet satisfied = new BitSet(stateCount);
+        BitSet seeds = new BitSet(stateCount);
+        // a FIFO queue of the states marked, each added once, when it is marked
+        int[] toProcess = new int[stateCount];
+        int tail = 0;
+        // we can only mark a state as satisfying A(p U q) (when it is not a seed) once every transition into the
+        // constraint is satisfied
+        int[] successorsToSatisfy = new int[stateCount];
+        for (int s = 0; s < stateCount; s++)
+            successorsToSatisfy[s] = countSuccessors(s);
+        if (counters != null)
+            counters.transitionsScanned += model.getTransitionCount();
+        for (int s = 0; s < stateCount; s++) {
+            if (!constraintStates.get(s) || !rightStates.get(s))
+                continue;
+            if (counters != null)
+                counters.transitionsScanned += model.getInDegree(s);
+            if (!hasIncoming(s, rightActions))
+                continue;
+            seeds.set(s);
+            satisfied.set(s);
+            toProcess[tail++] = s;
+        }
+        for (int head = 0; head < tail; head++) {
+            int s = toProcess[head];
+            tail = addSatisfiedPredecessors(s, seeds.get(s), leftActions, rightActions, leftStates, successorsToSatisfy,
+                    satisfied, toProcess, tail);
+            if (counters != null)
+                expand(counters, model.getInDegree(s));
+        }
+        if (counters != null)
+            counters.worklistPushes += tail;
+        return satisfied;
+    }
+
+    /**
+     * Count the expansion of a state taken from a worklist through the given number of transitions.
+     */
+    private static void expand(MarkingCounters counters, int transitions) {
+        counters.iterations++;
+        counters.transitionsScanned += transitions;
+    }
+
+    /**
+     * Count the transitions into a state marked as satisfying A(p U q) which satisfy it against their sources, and
+     * mark and queue those which satisfy p and have no transition left to satisfy. Transitions into a state outside
+     * the constraint were never counted, so are not counted here.
+     * @param seed true if the state is a seed, so that b-steps into it satisfy their sources as well as a-steps
+     * @return the new tail of the queue
+     */
+    private int addSatisfiedPredecessors(int state, boolean seed, long[] leftActions, long[] rightActions,
+                                         BitSet leftStates, int[] successorsToSatisfy, BitSet satisfied,
+                                         int[] toProcess, int tail) {
+        if (!constraintStates.get(state))
+            return tail;
+        for (int i = 0; i < model.getInDegree(state); i++) {
+            int transition = model.getIncoming(state, i);
+            if (!model.actionsSatisfied(transition, leftActions)
+                    && (!seed || !model.actionsSatisfied(transition, rightActions)))
+                continue;
+            int predecessor = model.getSource(transition);
+            if (--successorsToSatisfy[predecessor] == 0 && leftStates.get(predecessor) && !satisfied.get(predecessor)) {
+                satisfied.set(predecessor);
+                toProcess[tail++] = predecessor;
             }
         }
-        // now check for all predecessors for the left action set
-        while (toProcess.size() > 0) {
-            State s = toProcess.iterator().next();
-            toProcess.remove(s);
-            setSatisfied(s, f, true);
-            processed.add(s);
-            for (Transition transition : model.getTransitions().stream()
-                    .filter(t -> t.getTarget().equals(s.getName()))
-                    .collect(Collectors.toSet())) {
-                State predecessor = model.getState(transition.getSource());
-                successorsToSatisfy.put(predecessor, successorsToSatisfy.get(predecessor) - 1);
-                boolean allSuccessorsSatisfied = successorsToSatisfy.get(predecessor) <= 0;
-                boolean inLeftActions = actionsSatisfied(transition.getActions(), until.getLeftActions());
-                boolean constraintSatisfied = isSatisfied(transition.getTarget(), constraint);
-                boolean preSatisfiesLeft = isSatisfied(predecessor, until.left);
-                if (constraintSatisfied && allSuccessorsSatisfied && inLeftActions && preSatisfiesLeft && !processed.contains(predecessor))
-                    toProcess.add(predecessor);
+        return tail;
+    }
+
+    /**
+     * Queue all predecessors of the given state which reach it via the action set, have not already been queued, and
+     * satisfy the constraint (or are initial states).
+     * @param required if not null, the set of states to which the predecessors must also belong
+     * @param queued (updated) the states ever queued
+     * @return the new tail of the queue
+     */
+    private int addPredecessors(int state, long[] actions, BitSet required, BitSet queued, int[] toProcess, int tail) {
+        for (int i = 0; i < model.getInDegree(state); i++) {
+            int transition = model.getIncoming(state, i);
+            int predecessor = model.getSource(transition);
+            if (!queued.get(predecessor) && model.actionsSatisfied(transition, actions)
+                    && (constraintStates.get(predecessor) || model.isInit(predecessor))
+                    && (required == null || required.get(predecessor))) {
+                queued.set(predecessor);
+                toProcess[tail++] = predecessor;
             }
         }
+        return tail;
     }
 
-    private void markForThereExistsAlways(ThereExists f) {
+    /**
+     * EbG psi holds on the states from which there is an infinite path of b-steps through states satisfying psi and
+     * the constraint (or initial states): the greatest fixpoint of Z = psi and Ok and pre_b(Z). Such a path ends up
+     * in a non-trivial strongly connected component of the graph restricted to those states and to the b-steps, so
+     * the fixpoint is the set of states reaching such a component within the restricted graph, found in O(S + T).
+     */
+    private void markForThereExistsAlways(ThereExists f, MarkingCounters counters) {
         Always a = (Always)f.pathFormula;
-        StateFormula psi = a.stateFormula;
-        markHelper(psi);
-        Set<State> toProcess = new HashSet<>();
-        Set<String> processed = new HashSet<>();
-        // add states which are reachable via the specified action sets, and satisfy psi
-        model.getStates().stream()
-                .filter(s -> isSatisfied(s, psi))
-                .filter(s -> isSatisfied(s, constraint) || s.isInit())
-                .filter(s -> model.getTransitions().stream().anyMatch(t -> t.getTarget().equals(s.getName()) && actionsSatisfied(t.getActions(), a.getActions())))
-                .forEach(s -> {
-                    setSatisfied(s, f, true);
-                    processed.add(s.getName());
-                    // add all predecessors which reach this state via the action sets
-                    Set<State> predecessors = model.getTransitions().stream()
-                            .filter(t -> t.getTarget().equals(s.getName()))
-                            .filter(t -> !processed.contains(t.getSource()))
-                            .filter(t -> actionsSatisfied(t.getActions(), a.getActions()))
-                            .map(t -> model.getState(t.getSource()))
-                            .filter(predecessorState -> isSatisfied(predecessorState, constraint) || predecessorState.isInit())
-                            .collect(Collectors.toSet());
-                    toProcess.addAll(predecessors);
-                });
-        while (toProcess.size() > 0) {
-            State s = toProcess.iterator().next();
-            toProcess.remove(s);
-            setSatisfied(s, f, true);
-            processed.add(s.getName());
-            // if this state does not satisfy psi, do not add its predecessors
-            if (!isSatisfied(s, psi))
+        markHelper(a.stateFormula);
+        marked.put(f, existsAlways(getSatisfying(a.stateFormula), model.getActionMask(a.getActions()), counters));
+    }
+
+    BitSet existsAlways(BitSet psiStates, long[] actions, MarkingCounters counters) {
+        BitSet candidates = (BitSet) psiStates.clone();
+        BitSet ok = (BitSet) constraintStates.clone();
+        for (int s = 0; s < model.getStateCount(); s++)
+            if (model.isInit(s))
+                ok.set(s);
+        candidates.and(ok);
+        BitSet satisfied = nontrivialComponents(candidates, actions, counters);
+        // backward closure of the components within the restricted graph
+        int[] toProcess = new int[model.getStateCount()];
+        int size = 0;
+        for (int s = satisfied.nextSetBit(0); s >= 0; s = satisfied.nextSetBit(s + 1))
+            toProcess[size++] = s;
+        if (counters != null)
+            counters.worklistPushes += size;
+        while (size > 0) {
+            int s = toProcess[--size];
+            if (counters != null)
+                expand(counters, model.getInDegree(s));
+            for (int i = 0; i < model.getInDegree(s); i++) {
+                int transition = model.getIncoming(s, i);
+                int predecessor = model.getSource(transition);
+                if (candidates.get(predecessor) && !satisfied.get(predecessor) && model.actionsSatisfied(transition, actions)) {
+                    satisfied.set(predecessor);
+                    toProcess[size++] = predecessor;
+                    if (counters != null)
+                        counters.worklistPushes++;
+                }
+            }
+        }
+        return satisfied;
+    }
+
+    /**
+     * Tarjan's algorithm over the graph restricted to the given states and to the transitions in the action set, with
+     * an explicit call stack so that the depth of the search is not bounded by the thread's stack.
+     * @return the states in non-trivial strongly connected components: those with more than one state, or a
+     * transition from their state to itself
+     * @param counters if not null, counts each state visited as pushed and expanded through its outgoing transitions
+     */
+    BitSet nontrivialComponents(BitSet states, long[] actions, MarkingCounters counters) {
+        int stateCount = model.getStateCount();
+        // the order in which each state was visited, from 1 (0 for unvisited)
+        int[] index = new int[stateCount];
+        int[] lowlink = new int[stateCount];
+        // the position, among its outgoing transitions, of the next transition of each state on the call stack
+        int[] nextTransition = new int[stateCount];
+        int[] callStack = new int[stateCount];
+        int[] componentStack = new int[stateCount];
+        BitSet onComponentStack = new BitSet(stateCount);
+        BitSet selfLoops = new BitSet(stateCount);
+        BitSet components = new BitSet(stateCount);
+        int visited = 0;
+        for (int root = states.nextSetBit(0); root >= 0; root = states.nextSetBit(root + 1)) {
+            if (index[root] != 0)
                 continue;
-            // add all predecessors which reach this state via the action sets
-            Set<State> predecessors = model.getTransitions().stream()
-                    .filter(t -> t.getTarget().equals(s.getName()))
-                    .filter(t -> !processed.contains(t.getSource()))
-                    .filter(t -> actionsSatisfied(t.getActions(), a.getActions()))
-                    .map(t -> model.getState(t.getSource()))
-                    .filter(predecessorState -> isSatisfied(predecessorState, constraint) || predecessorState.isInit())
-                    .collect(Collectors.toSet());
-            toProcess.addAll(predecessors);
+            int depth = 0;
+            int componentSize = 0;
+            if (counters != null) {
+                counters.worklistPushes++;
+                expand(counters, model.getOutDegree(root));
+            }
+            index[root] = lowlink[root] = ++visited;
+            componentStack[componentSize++] = root;
+            onComponentStack.set(root);
+            callStack[depth++] = root;
+            while (depth > 0) {
+                int v = callStack[depth - 1];
+                if (nextTransition[v] < model.getOutDegree(v)) {
+                    int transition = model.getOutgoing(v, nextTransition[v]++);
+                    int w = model.getTarget(transition);
+                    if (!states.get(w) || !model.actionsSatisfied(transition, actions))
+                        continue;
+                    if (w == v)
+                        selfLoops.set(v);
+                    if (index[w] == 0) {
+                        if (counters != null) {
+                            counters.worklistPushes++;
+                            expand(counters, model.getOutDegree(w));
+                        }
+                        index[w] = lowlink[w] = ++visited;
+                        componentStack[componentSize++] = w;
+                        onComponentStack.set(w);
+                        callStack[depth++] = w;
+                    } else if (onComponentStack.get(w)) {
+                        lowlink[v] = Math.min(lowlink[v], index[w]);
+                    }
+                    continue;
+                }
+                // all of v's transitions are explored: return to its caller
+                depth--;
+                if (depth > 0) {
+                    int caller = callStack[depth - 1];
+                    lowlink[caller] = Math.min(lowlink[caller], lowlink[v]);
+                }
+                if (lowlink[v] == index[v]) {
+                    int first = componentSize;
+                    do {
+                        onComponentStack.clear(componentStack[--first]);
+                    } while (componentStack[first] != v);
+                    if (componentSize - first > 1 || selfLoops.get(v))
+                        for (int i = first; i < componentSize; i++)
+                            components.set(componentStack[i]);
+                    componentSize = first;
+                }
+            }
         }
+        return components;
     }
 
-    private void markForThereExistsUntil(ThereExists f) {
+    private void markForThereExistsUntil(ThereExists f, MarkingCounters counters) {
         // of the form f = E(left U right)
         Until until = (Until)f.pathFormula;
         markHelper(until.left);
         markHelper(until.right);
-        Set<State> toProcess = new HashSet<>();
-        Set<String> processed = new HashSet<>();
-        // all states in toProcess are those deemed to satisfy the whole until statement
-        model.getStates().stream()
-                // only process states in which the RHS can be satisfied via an action from the right action set
-                .filter(s -> isSatisfied(s, until.right))
-                .filter(s -> model.getTransitions().stream().anyMatch(t -> t.getTarget().equals(s.getName()) && actionsSatisfied(t.getActions(), until.getRightActions())))
-                .forEach(s -> {
-                    setSatisfied(s, f, true);
-                    processed.add(s.getName());
-                    // add all predecessors of this state (which can be accessed via actions from the right action set) which have not already been processed
-                    Set<State> predecessors = model.getTransitions().stream()
-                            .filter(t -> t.getTarget().equals(s.getName()))
-                            .filter(t -> !processed.contains(t.getSource()))
-                            .filter(t -> actionsSatisfied(t.getActions(), until.getRightActions()))
-                            .map(t -> model.getState(t.getSource()))
-                            .filter(predecessorState -> isSatisfied(predecessorState, constraint) || predecessorState.isInit())
-                            .filter(predecessorState -> isSatisfied(predecessorState, until.left))
-                            .collect(Collectors.toSet());
-                    toProcess.addAll(predecessors);
-                });
-        while (toProcess.size() > 0) {
-            State s = toProcess.iterator().next();
-            toProcess.remove(s);
-            setSatisfied(s, f, true);
-            processed.add(s.getName());
-            // add all predecessors of this state (which can be accessed via actions from the left action set) which have not already been processed
-            Set<State> predecessors = model.getTransitions().stream()
-                    .filter(t -> t.getTarget().equals(s.getName()))
-                    .filter(t -> !processed.contains(t.getSource()))
-                    .filter(t -> actionsSatisfied(t.getActions(), until.getLeftActions()))
-                    .map(t -> model.getState(t.getSource()))
-                    .filter(predecessorState -> isSatisfied(predecessorState, constraint) || predecessorState.isInit())
-                    .filter(predecessorState -> isSatisfied(predecessorState, until.left))
-                    .collect(Collectors.toSet());
-            toProcess.addAll(predecessors);
+        marked.put(f, existsUntil(getSatisfying(until.left), getSatisfying(until.right),
+                model.getActionMask(until.getLeftActions()), model.getActionMask(until.getRightActions()), counters));
+    }
+
+    BitSet existsUntil(BitSet leftStates, BitSet rightStates, long[] leftActions, long[] rightActions,
+                       MarkingCounters counters) {
+        int stateCount = model.getStateCount();
+        BitSet seeds = new BitSet(stateCount);
+        // the states satisfying p from which a path of a-steps through such states ends with a b-step into a seed,
+        // whether or not they are seeds themselves: each is queued once, when it is found
+        BitSet reached = new BitSet(stateCount);
+        // a FIFO queue of the states reached
+        int[] toProcess = new int[stateCount];
+        int tail = 0;
+        for (int s = 0; s < stateCount; s++) {
+            // only process states in which the RHS can be satisfied via an action from the right action set
+            if (rightStates.get(s) && hasIncoming(s, rightActions)) {
+                seeds.set(s);
+                // queue all predecessors of this state (which can be accessed via actions from the right action set)
+                // which have not already been reached
+                tail = addPredecessors(s, rightActions, leftStates, reached, toProcess, tail);
+                if (counters != null)
+                    expand(counters, 2 * model.getInDegree(s));
+            }
         }
+        for (int head = 0; head < tail; head++) {
+            int s = toProcess[head];
+            // queue all predecessors of this state (which can be accessed via actions from the left action set) which
+            // have not already been reached
+            tail = addPredecessors(s, leftActions, leftStates, reached, toProcess, tail);
+            if (counters != null)
+                expand(counters, model.getInDegree(s));
+        }
+        if (counters != null)
+            counters.worklistPushes += tail;
+        reached.or(seeds);
+        return reached;
     }
 
     //******** FORMULA NORMALIZATION ********//
@@ -289,98 +829,34 @@ public class ModelMarker {
     /**
      * Get an equivalent formula of f, in a normal form for marking purposes.
      * @param f the formula to get a normal form for
+     * @see Normalizer#normalize(StateFormula)
      */
     public StateFormula normalize(StateFormula f) {
-        if (f instanceof BoolProp || f instanceof AtomicProp) return f;
-        else if (f instanceof And) return normalize((And)f);
-        else if (f instanceof Or) return normalize((Or)f);
-        else if (f instanceof Not) return normalize((Not)f);
-        else if (f instanceof ForAll) return normalize((ForAll)f);
-        else if (f instanceof ThereExists) return normalize((ThereExists)f);
-        // assume no reductions required if we reach here
-        return f;
-    }
-
-    private StateFormula normalize(And f) {
-        return new And(normalize(f.left), normalize(f.right));
+        return Normalizer.normalize(f);
     }
 
-    private StateFormula normalize(Or f) {
-        return new Or(normalize(f.left), normalize(f.right));
-    }
+    //******** PROPERTY ACCESSORS ********//
 
-    private StateFormula normalize(Not f) {
-        return new Not(normalize(f.stateFormula));
+    /**
+     * @param f a marked state formula
+     * @return the set of ids of states on which f is satisfied (empty if f has not been marked); this must not be modified
+     */
+    BitSet getSatisfying(StateFormula f) {
+        BitSet satisfied = marked.get(f);
+        return satisfied != null ? satisfied : new BitSet();
     }
 
-    private StateFormula normalize(ThereExists f) {
-        if (f.pathFormula instanceof Eventually) {
-            // EF p = E(T U p)
-            Eventually e = (Eventually)f.pathFormula;
-            StateFormula p = normalize(e.stateFormula);
-            return new ThereExists(new Until(new BoolProp(true), p, e.getLeftActionsIdentifier(), e.getLeftActions(), e.getRightActionsIdentifier(), e.getRightActions()));
-        } else if (f.pathFormula instanceof Always) {
-            // EGa p = -A(T aUa -p)
-            Always g = (Always)f.pathFormula;
-            StateFormula p = normalize(g.stateFormula);
-            return new ThereExists(new Always(p, g.getActionSetIdentifier1(), g.getActionSet1(), g.getActionSetIdentifier2(), g.getActionSet2()));
-        } else if (f.pathFormula instanceof Until) {
-            // E(p U q) is a minimal operator, simply normalize the left and right
-            Until u = (Until)f.pathFormula;
-            StateFormula p = normalize(u.left);
-            StateFormula q = normalize(u.right);
-            return new ThereExists(new Until(p, q, u.getLeftActionsIdentifier(), u.getLeftActions(), u.getRightActionsIdentifier(), u.getRightActions()));
-        }
-        return f;
+    public boolean isSatisfied(int state, StateFormula f) {
+        BitSet satisfied = marked.get(f);
+        return satisfied != null && satisfied.get(state);
     }
 
-    private StateFormula normalize(ForAll f) {
-        if (f.pathFormula instanceof Next) {
-            // AX p = -EX -p
-            Next n = (Next)f.pathFormula;
-            StateFormula p = normalize(n.stateFormula);
-            return new Not(new ThereExists(new Next(new Not(p), n.getActionSetIdentifier(), n.getActions())));
-        } else if (f.pathFormula instanceof Eventually) {
-            // AaFb p = A(T aUb p)
-            Eventually e = (Eventually)f.pathFormula;
-            StateFormula p = normalize(e.stateFormula);
-            return new ForAll(new Until(new BoolProp(true), p, e.getLeftActionsIdentifier(), e.getLeftActions(), e.getRightActionsIdentifier(), e.getRightActions()));
-        } else if (f.pathFormula instanceof Always) {
-            // AGa p = -E(T aUa -p)
-            Always g = (Always)f.pathFormula;
-            StateFormula p = normalize(g.stateFormula);
-            // only take the first action set from the always statement (an always statement with a set union cannot be created from the parsed input)
-            return new Not(new ThereExists(new Until(new BoolProp(true), new Not(p), g.getActionSetIdentifier1(), g.getActionSet1(), g.getActionSetIdentifier1(), g.getActionSet1())));
-        } else if (f.pathFormula instanceof Until) {
-            // A(p aUb q) is a minimal operator, normalize the parameters
-            Until until = (Until)f.pathFormula;
-            StateFormula p = normalize(until.left);
-            StateFormula q = normalize(until.right);
-            return new ForAll(new Until(p, q, until.getLeftActionsIdentifier(), until.getLeftActions(), until.getRightActionsIdentifier(), until.getRightActions()));
-        }
-        return f;
-    }
-
-    //******** PROPERTY ACCESSORS ********//
-
     public boolean isSatisfied(String state, StateFormula f) {
-        Set<StateFormula> satisfied = marked.get(state);
-        return satisfied != null && satisfied.contains(f);
+        int id = model.getStateId(state);
+        return id >= 0 && isSatisfied(id, f);
     }
 
     public boolean isSatisfied(State state, StateFormula f) {
         return isSatisfied(state.getName(), f);
     }
-
-    private void setSatisfied(String state, StateFormula f, boolean satisfied) {
-        marked.computeIfAbsent(state, k -> new HashSet<>());
-        if (satisfied)
-            marked.get(state).add(f);
-        else
-            marked.get(state).remove(f);
-    }
-
-    private void setSatisfied(State state, StateFormula f, boolean satisfied) {
-        setSatisfied(state.getName(), f, satisfied);
-    }
 }
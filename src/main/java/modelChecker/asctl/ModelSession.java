@@ -0,0 +1,166 @@
+package modelChecker.asctl;
+
+import formula.stateFormula.BoolProp;
+import formula.stateFormula.StateFormula;
+import model.Model;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks many queries against one model, indexing it once and keeping the marking of every subformula between
+ * queries.
+ *
+ * A marker is kept for each distinct constraint, holding every formula marked under it, so a query sharing
+ * subformulae with an earlier one under the same constraint only marks what is new. The constraints themselves, and
+ * their subformulae, are marked once by a marker without any restriction, which also serves the queries checked
+ * without a constraint.
+ *
+ * A session is not thread-safe.
+ */
+public class ModelSession {
+
+    private static final StateFormula UNCONSTRAINED = new BoolProp(true);
+
+    private final ModelWrapper model;
+
+    private final ForkJoinPool pool;
+
+    private final int parallelThreshold;
+
+    /**
+     * The marker of each normalized constraint, including the unrestricted one under "true"
+     */
+    private final Map<StateFormula, ModelMarker> markers = new HashMap<>();
+
+    private final ModelMarker unrestricted;
+
+    private MarkingListener listener;
+
+    private List<String> counterexamplePath;
+
+    private List<String[]> traces;
+
+    public ModelSession(Model model) {
+        this(new ModelWrapper(model));
+    }
+
+    public ModelSession(ModelWrapper model) {
+        this(model, null, ModelMarker.DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * @param pool if not null, the pool on which independent subformulae, and the states of large models, are marked
+     *             in parallel
+     * @param parallelThreshold the number of states from which the marking of each subformula is partitioned over
+     *                          the pool
+     */
+    public ModelSession(ModelWrapper model, ForkJoinPool pool, int parallelThreshold) {
+        this.model = model;
+        this.pool = pool;
+        this.parallelThreshold = parallelThreshold;
+        unrestricted = newMarker();
+        BitSet all = new BitSet(model.getStateCount());
+        all.set(0, model.getStateCount());
+        unrestricted.restrictTo(UNCONSTRAINED, all);
+        markers.put(UNCONSTRAINED, unrestricted);
+    }
+
+    public ModelWrapper getModel() {
+        return model;
+    }
+
+    /**
+     * @param listener the listener to tell the cost of each subformula marked and counterexample built, or null
+     */
+    public void setListener(MarkingListener listener) {
+        this.listener = listener;
+        for (ModelMarker marker : markers.values())
+            marker.setListener(listener);
+    }
+
+    /**
+     * @return true if every initial state satisfies the query under the constraint
+     */
+    public boolean check(StateFormula constraint, StateFormula query) {
+        CheckerEvents.Check event = CheckerEvents.beginCheck();
+        StateFormula normalizedConstraint = Normalizer.normalize(constraint);
+        StateFormula normalizedQuery = Normalizer.normalize(query);
+        ModelMarker marker = markerFor(normalizedConstraint);
+        marker.markUnderConstraint(normalizedQuery);
+        boolean holds = marker.initStatesSatisfy(normalizedQuery);
+        if (!holds)
+            counterexamplePath = new CounterexampleGenerator(marker).makeCounterexample(query, constraint);
+        else
+            counterexamplePath = Collections.emptyList();
+        CheckerEvents.commit(event, constraint, query, model, holds);
+        return holds;
+    }
+
+    /**
+     * Check each query under the same constraint.
+     * @return whether each query holds, in order
+     */
+    public boolean[] checkAll(StateFormula constraint, List<StateFormula> queries) {
+        return checkAll(Collections.nCopies(queries.size(), constraint), queries);
+    }
+
+    /**
+     * Check each query under the constraint at the same position. The pairs are checked grouped by constraint, and
+     * the counterexample of each failed query is kept, see {@link #getTraces()}.
+     * @return whether each query holds, in order
+     */
+    public boolean[] checkAll(List<StateFormula> constraints, List<StateFormula> queries) {
+        if (constraints.size() != queries.size())
+            throw new IllegalArgumentException("expected one constraint per query, got " + constraints.size() + " for " + queries.size());
+        Map<StateFormula, List<Integer>> byConstraint = new LinkedHashMap<>();
+        for (int i = 0; i < queries.size(); i++)
+            byConstraint.computeIfAbsent(Normalizer.normalize(constraints.get(i)), k -> new ArrayList<>()).add(i);
+        boolean[] results = new boolean[queries.size()];
+        String[][] batchTraces = new String[queries.size()][];
+        for (Map.Entry<StateFormula, List<Integer>> group : byConstraint.entrySet()) {
+            for (int i : group.getValue()) {
+                results[i] = check(group.getKey(), queries.get(i));
+                if (!results[i])
+                    batchTraces[i] = getTrace();
+            }
+        }
+        traces = Arrays.asList(batchTraces);
+        return results;
+    }
+
+    /**
+     * @return the counterexample of the previous {@link #check}, or an empty path if the query held
+     */
+    public String[] getTrace() {
+        String[] array = new String[counterexamplePath.size()];
+        return counterexamplePath.toArray(array);
+    }
+
+    /**
+     * @return the counterexample of each query of the previous {@link #checkAll}, or null for those which held
+     */
+    public List<String[]> getTraces() {
+        return traces;
+    }
+
+    /**
+     * @return the marker of a normalized constraint, marking the constraint if it has not been seen before
+     */
+    private ModelMarker markerFor(StateFormula constraint) {
+        ModelMarker marker = markers.get(constraint);
+        if (marker == null) {
+            marker = newMarker();
+            marker.restrictTo(constraint, unrestricted.markUnderConstraint(constraint));
+            markers.put(constraint, marker);
+        }
+        return marker;
+    }
+
+    private ModelMarker newMarker() {
+        ModelMarker marker = new ModelMarker(model, pool);
+        marker.setParallelThreshold(parallelThreshold);
+        marker.setListener(listener);
+        return marker;
+    }
+}
@@ -4,33 +4,810 @@ import model.Model;
 import model.State;
 import model.Transition;
 
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 import java.util.*;
 
 /**
  * A wrapper adding extra features for the POJO representation of a model used in parsing.
+ *
+ * States and transitions are given dense integer ids (their position in the parsed model), and the forward and reverse
+ * adjacency of the transition relation is indexed once at construction in compressed-sparse-row form. The outgoing
+ * transitions of state s are then the ids successorTransitions[successorOffsets[s] .. successorOffsets[s + 1]), so
+ * successor and predecessor lookups cost O(degree) rather than a scan over every transition.
+ *
+ * Labels and actions are held compactly: each distinct label set and action set is interned once, and every state
+ * and transition only stores the int id of its set. Action names are further interned to dense ids, so that each
+ * action set is also held as a bitmask (of one long per 64 actions) and an operator's action set is matched against a
+ * transition with a single AND per word. The State and Transition objects are only built on request when
+ * the model was not parsed into them (see {@link ModelLoader}).
+ *
+ * The int arrays are held as IntBuffers, so that a model in the binary format of {@link ModelFile} can be wrapped
+ * directly over the mapped file, without copying.
+ *
+ * A model is not changed once built, except for an editable copy (see {@link #edit()}), which {@link ModelDelta}s
+ * change in place at a cost proportional to the change: the index is kept, and the states whose transitions changed
+ * are given their own adjacency lists, which override it.
  */
 public class ModelWrapper {
 
-    private Map<String, State> states;
+    private List<String> stateNames;
 
-    private Collection<Transition> transitions;
+    /**
+     * The id of each state name, which is built lazily if the model was mapped from a file; it is volatile so that
+     * lookups only lock while it is being built
+     */
+    private volatile Map<String, Integer> stateIds;
+
+    private BitSet initStates;
+
+    private IntBuffer stateLabelSets;
+
+    private String[][] labelSets;
+
+    private IntBuffer transitionSources;
+
+    private IntBuffer transitionTargets;
+
+    private IntBuffer transitionActionSets;
+
+    private String[][] actionSets;
+
+    /**
+     * The dense id of each action name
+     */
+    private Map<String, Integer> actionIds;
+
+    /**
+     * The number of longs in an action mask
+     */
+    private int actionWords;
+
+    /**
+     * The mask of each action set, at actionWords longs per set
+     */
+    private long[] actionSetMasks;
+
+    private IntBuffer successorOffsets;
+
+    private IntBuffer successorTransitions;
+
+    private IntBuffer predecessorOffsets;
+
+    private IntBuffer predecessorTransitions;
+
+    /**
+     * The POJO representation, which is built lazily if the model was loaded without it
+     */
+    private State[] states;
+
+    private Transition[] transitions;
+
+    /**
+     * The hash of the structure, computed lazily, or 0 if it has not been
+     */
+    private long fingerprint;
+
+    /**
+     * The state of an editable copy, or null if the model cannot be changed
+     */
+    private Edits edits;
 
     public ModelWrapper(Model model) {
-        states = new HashMap<>();
-        for (State s : model.getStates())
-            states.put(s.getName(), s);
-        transitions = Arrays.asList(model.getTransitions());
+        CheckerEvents.IndexModel event = CheckerEvents.beginIndexModel();
+        states = model.getStates();
+        String[] names = new String[states.length];
+        Map<String, Integer> ids = new HashMap<>();
+        initStates = new BitSet(states.length);
+        int[] labels = new int[states.length];
+        SetTable labelTable = new SetTable();
+        for (int i = 0; i < states.length; i++) {
+            names[i] = states[i].getName();
+            ids.put(names[i], i);
+            if (states[i].isInit())
+                initStates.set(i);
+            labels[i] = labelTable.intern(states[i].getLabel());
+        }
+        stateIds = ids;
+        transitions = model.getTransitions();
+        int[] sources = new int[transitions.length];
+        int[] targets = new int[transitions.length];
+        int[] actions = new int[transitions.length];
+        SetTable actionTable = new SetTable();
+        for (int t = 0; t < transitions.length; t++) {
+            sources[t] = requireStateId(transitions[t].getSource());
+            targets[t] = requireStateId(transitions[t].getTarget());
+            actions[t] = actionTable.intern(transitions[t].getActions());
+        }
+        init(names, labels, labelTable.toArray(), sources, targets, actions, actionTable.toArray());
+        CheckerEvents.commit(event, this);
+    }
+
+    /**
+     * Wrap a model already in compact form, as read by {@link ModelLoader}. The arrays are used without copying.
+     */
+    ModelWrapper(String[] stateNames, Map<String, Integer> stateIds, BitSet initStates, int[] stateLabelSets,
+                 String[][] labelSets, int[] transitionSources, int[] transitionTargets, int[] transitionActionSets,
+                 String[][] actionSets) {
+        CheckerEvents.IndexModel event = CheckerEvents.beginIndexModel();
+        this.stateIds = stateIds;
+        this.initStates = initStates;
+        init(stateNames, stateLabelSets, labelSets, transitionSources, transitionTargets, transitionActionSets, actionSets);
+        CheckerEvents.commit(event, this);
+    }
+
+    /**
+     * Wrap a model in the binary format of {@link ModelFile}, such as a file mapped by {@link ModelFile#map}. The
+     * arrays of the model are views of the buffer, so its pages are only read as they are used.
+     * @param buffer the model file, from its start
+     */
+    public ModelWrapper(ByteBuffer buffer) {
+        CheckerEvents.IndexModel event = CheckerEvents.beginIndexModel();
+        ModelFile.Sections file = new ModelFile.Sections(buffer);
+        stateNames = file.getStateNames();
+        initStates = file.getInitStates();
+        stateLabelSets = file.getStateLabelSets();
+        labelSets = file.getLabelSets();
+        transitionSources = file.getTransitionSources();
+        transitionTargets = file.getTransitionTargets();
+        transitionActionSets = file.getTransitionActionSets();
+        actionSets = file.getActionSets();
+        successorOffsets = file.getSuccessorOffsets();
+        successorTransitions = file.getSuccessorTransitions();
+        predecessorOffsets = file.getPredecessorOffsets();
+        predecessorTransitions = file.getPredecessorTransitions();
+        indexActions();
+        CheckerEvents.commit(event, this);
+    }
+
+    private void init(String[] names, int[] labels, String[][] labelTable, int[] sources, int[] targets, int[] actions,
+                      String[][] actionTable) {
+        stateNames = Arrays.asList(names);
+        stateLabelSets = IntBuffer.wrap(labels);
+        labelSets = labelTable;
+        transitionSources = IntBuffer.wrap(sources);
+        transitionTargets = IntBuffer.wrap(targets);
+        transitionActionSets = IntBuffer.wrap(actions);
+        actionSets = actionTable;
+        int[] offsets = new int[names.length + 1];
+        int[] entries = new int[sources.length];
+        buildIndex(sources, offsets, entries);
+        successorOffsets = IntBuffer.wrap(offsets);
+        successorTransitions = IntBuffer.wrap(entries);
+        offsets = new int[names.length + 1];
+        entries = new int[targets.length];
+        buildIndex(targets, offsets, entries);
+        predecessorOffsets = IntBuffer.wrap(offsets);
+        predecessorTransitions = IntBuffer.wrap(entries);
+        indexActions();
+    }
+
+    /**
+     * Number the action names, and build the mask of each action set.
+     */
+    private void indexActions() {
+        actionIds = new HashMap<>();
+        for (String[] set : actionSets)
+            for (String action : set)
+                actionIds.putIfAbsent(action, actionIds.size());
+        actionWords = Math.max(1, (actionIds.size() + 63) >>> 6);
+        actionSetMasks = new long[actionSets.length * actionWords];
+        for (int i = 0; i < actionSets.length; i++) {
+            for (String action : actionSets[i]) {
+                int id = actionIds.get(action);
+                actionSetMasks[i * actionWords + (id >>> 6)] |= 1L << id;
+            }
+        }
+    }
+
+    /**
+     * Counting sort of the transition ids by the given endpoint, filling in a compressed-sparse-row index.
+     * @param endpoints the state id each transition is grouped under
+     * @param offsets (output) the start of each state's row, with a trailing entry holding the total
+     * @param entries (output) the transition ids, grouped by row and in ascending order within each row
+     */
+    private static void buildIndex(int[] endpoints, int[] offsets, int[] entries) {
+        for (int endpoint : endpoints)
+            offsets[endpoint + 1]++;
+        for (int s = 0; s < offsets.length - 1; s++)
+            offsets[s + 1] += offsets[s];
+        int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+        for (int t = 0; t < endpoints.length; t++)
+            entries[next[endpoints[t]]++] = t;
+    }
+
+    private int requireStateId(String name) {
+        Integer id = getStateIds().get(name);
+        if (id == null)
+            throw new IllegalArgumentException("transition refers to unknown state: " + name);
+        return id;
+    }
+
+    //******** STATES ********//
+
+    public int getStateCount() {
+        return stateNames.size();
+    }
+
+    /**
+     * @param name the name of a state
+     * @return the integer id of the state, or -1 if there is no state with the given name
+     */
+    public int getStateId(String name) {
+        Integer id = getStateIds().get(name);
+        return id == null ? -1 : id;
+    }
+
+    private Map<String, Integer> getStateIds() {
+        Map<String, Integer> ids = stateIds;
+        if (ids == null) {
+            synchronized (this) {
+                ids = stateIds;
+                if (ids == null) {
+                    ids = new HashMap<>();
+                    for (int s = 0; s < stateNames.size(); s++)
+                        ids.put(stateNames.get(s), s);
+                    stateIds = ids;
+                }
+            }
+        }
+        return ids;
+    }
+
+    public String getStateName(int id) {
+        return stateNames.get(id);
+    }
+
+    public State getState(int id) {
+        return getStateArray()[id];
     }
 
     public State getState(String name) {
-        return states.get(name);
+        int id = getStateId(name);
+        return id < 0 ? null : getState(id);
+    }
+
+    public boolean isInit(int state) {
+        return initStates.get(state);
+    }
+
+    /**
+     * @return the labels of the given state
+     */
+    public String[] getLabels(int state) {
+        return labelSets[stateLabelSets.get(state)];
+    }
+
+    public Collection<State> getStates() {
+        return Arrays.asList(getStateArray());
+    }
+
+    private synchronized State[] getStateArray() {
+        if (states == null) {
+            State[] built = new State[stateNames.size()];
+            for (int s = 0; s < built.length; s++)
+                built[s] = new State(stateNames.get(s), isInit(s), getLabels(s));
+            states = built;
+        }
+        return states;
+    }
+
+    //******** LABEL AND ACTION SETS ********//
+
+    /**
+     * @return the number of distinct label sets of the states
+     */
+    public int getLabelSetCount() {
+        return labelSets.length;
+    }
+
+    /**
+     * @param id a label set id, from 0 to getLabelSetCount() - 1
+     * @return the labels in the set; this must not be modified
+     */
+    public String[] getLabelSet(int id) {
+        return labelSets[id];
+    }
+
+    /**
+     * @return the id of the label set of the given state
+     */
+    public int getLabelSetOf(int state) {
+        return stateLabelSets.get(state);
+    }
+
+    /**
+     * @return the number of distinct action sets of the transitions
+     */
+    public int getActionSetCount() {
+        return actionSets.length;
+    }
+
+    /**
+     * @param id an action set id, from 0 to getActionSetCount() - 1
+     * @return the actions in the set; this must not be modified
+     */
+    public String[] getActionSet(int id) {
+        return actionSets[id];
+    }
+
+    /**
+     * @return the id of the action set of the given transition
+     */
+    public int getActionSetOf(int transition) {
+        return transitionActionSets.get(transition);
+    }
+
+    //******** ACTIONS ********//
+
+    /**
+     * @return the number of distinct action names on the transitions
+     */
+    public int getActionCount() {
+        return actionIds.size();
+    }
+
+    /**
+     * @param actions the set of actions allowed by an operator, where the empty set allows every transition
+     * @return the mask of the set, to be passed to {@link #actionsSatisfied(int, long[])}, or null for the empty set
+     */
+    public long[] getActionMask(Set<String> actions) {
+        if (actions.isEmpty())
+            return null;
+        long[] mask = new long[actionWords];
+        for (String action : actions) {
+            Integer id = actionIds.get(action);
+            // actions which label no transition cannot match one
+            if (id != null)
+                mask[id >>> 6] |= 1L << id;
+        }
+        return mask;
+    }
+
+    /**
+     * @param mask an operator's action mask, from {@link #getActionMask(Set)}
+     * @return true if the transition has an action in the operator's set, or the set is empty
+     */
+    public boolean actionsSatisfied(int transition, long[] mask) {
+        if (mask == null)
+            return true;
+        int set = transitionActionSets.get(transition);
+        if (actionWords == 1)
+            return (actionSetMasks[set] & mask[0]) != 0;
+        int offset = set * actionWords;
+        for (int w = 0; w < actionWords; w++)
+            if ((actionSetMasks[offset + w] & mask[w]) != 0)
+                return true;
+        return false;
+    }
+
+    //******** TRANSITIONS ********//
+
+    public int getTransitionCount() {
+        return transitionSources.limit();
+    }
+
+    public Transition getTransition(int id) {
+        return getTransitionArray()[id];
+    }
+
+    public int getSource(int transition) {
+        return transitionSources.get(transition);
+    }
+
+    public int getTarget(int transition) {
+        return transitionTargets.get(transition);
+    }
+
+    /**
+     * @return the actions of the given transition; this must not be modified
+     */
+    public String[] getActions(int transition) {
+        return actionSets[transitionActionSets.get(transition)];
     }
 
     public Collection<Transition> getTransitions() {
+        return Arrays.asList(getTransitionArray());
+    }
+
+    private synchronized Transition[] getTransitionArray() {
+        if (transitions == null) {
+            Transition[] built = new Transition[getTransitionCount()];
+            for (int t = 0; t < built.length; t++)
+                built[t] = new Transition(getStateName(getSource(t)), getStateName(getTarget(t)), getActions(t));
+            transitions = built;
+        }
         return transitions;
     }
 
-    public Collection<State> getStates() {
-        return states.values();
+    //******** ADJACENCY ********//
+
+    /**
+     * @return the number of transitions leaving the given state
+     */
+    public int getOutDegree(int state) {
+        if (edits != null && edits.successors[state] != null)
+            return edits.outDegrees[state];
+        return successorOffsets.get(state + 1) - successorOffsets.get(state);
+    }
+
+    /**
+     * @return the id of the i'th transition leaving the given state
+     */
+    public int getOutgoing(int state, int i) {
+        if (edits != null && edits.successors[state] != null)
+            return edits.successors[state][i];
+        return successorTransitions.get(successorOffsets.get(state) + i);
+    }
+
+    /**
+     * @return the number of transitions entering the given state
+     */
+    public int getInDegree(int state) {
+        if (edits != null && edits.predecessors[state] != null)
+            return edits.inDegrees[state];
+        return predecessorOffsets.get(state + 1) - predecessorOffsets.get(state);
+    }
+
+    /**
+     * @return the id of the i'th transition entering the given state
+     */
+    public int getIncoming(int state, int i) {
+        if (edits != null && edits.predecessors[state] != null)
+            return edits.predecessors[state][i];
+        return predecessorTransitions.get(predecessorOffsets.get(state) + i);
+    }
+
+    //******** EDITING ********//
+
+    /**
+     * @return true if the model is an editable copy, which {@link ModelDelta}s change in place
+     */
+    boolean isEditable() {
+        return edits != null;
+    }
+
+    /**
+     * Copy the model for editing by {@link ModelDelta}s, at a cost of O(S + T). The copy shares the index of this
+     * model, which is not changed, and copies its names, labels and transitions into tables which grow as states and
+     * transitions are added.
+     */
+    ModelWrapper edit() {
+        return new ModelWrapper(this);
+    }
+
+    private ModelWrapper(ModelWrapper model) {
+        stateNames = new ArrayList<>(model.stateNames);
+        stateIds = new HashMap<>(model.getStateIds());
+        initStates = (BitSet) model.initStates.clone();
+        edits = new Edits(model);
+        stateLabelSets = IntBuffer.wrap(edits.stateLabelSets, 0, stateNames.size());
+        labelSets = model.labelSets;
+        transitionSources = IntBuffer.wrap(edits.sources, 0, edits.transitionCount);
+        transitionTargets = IntBuffer.wrap(edits.targets, 0, edits.transitionCount);
+        transitionActionSets = IntBuffer.wrap(edits.actionSets, 0, edits.transitionCount);
+        actionSets = model.actionSets;
+        actionIds = model.actionIds;
+        actionWords = model.actionWords;
+        actionSetMasks = model.actionSetMasks;
+        successorOffsets = model.successorOffsets;
+        successorTransitions = model.successorTransitions;
+        predecessorOffsets = model.predecessorOffsets;
+        predecessorTransitions = model.predecessorTransitions;
+    }
+
+    /**
+     * The growable tables of an editable copy. The adjacency of a state is overridden once its transitions change,
+     * and always for a state added after the index was built.
+     */
+    private static class Edits {
+
+        int[] stateLabelSets;
+
+        final SetTable labelTable;
+
+        int[] sources;
+
+        int[] targets;
+
+        int[] actionSets;
+
+        int transitionCount;
+
+        final SetTable actionTable;
+
+        /**
+         * The transitions leaving and entering each state, or null to use the index
+         */
+        int[][] successors;
+
+        int[] outDegrees;
+
+        int[][] predecessors;
+
+        int[] inDegrees;
+
+        /**
+         * The ids of detached states, which are given to added states; a state re-added under the name it had takes
+         * its id back. Ids taken that way are left in the queue, and skipped when they come up.
+         */
+        final Deque<Integer> freeIds = new ArrayDeque<>();
+
+        final BitSet free = new BitSet();
+
+        final Map<String, Integer> detachedNames = new HashMap<>();
+
+        Edits(ModelWrapper model) {
+            int stateCount = model.getStateCount();
+            stateLabelSets = copy(model.stateLabelSets, stateCount);
+            labelTable = new SetTable(model.labelSets);
+            transitionCount = model.getTransitionCount();
+            sources = copy(model.transitionSources, transitionCount);
+            targets = copy(model.transitionTargets, transitionCount);
+            actionSets = copy(model.transitionActionSets, transitionCount);
+            actionTable = new SetTable(model.actionSets);
+            successors = new int[Math.max(stateCount, 1)][];
+            outDegrees = new int[successors.length];
+            predecessors = new int[successors.length][];
+            inDegrees = new int[successors.length];
+        }
+
+        private static int[] copy(IntBuffer buffer, int length) {
+            int[] array = new int[Math.max(length, 1)];
+            for (int i = 0; i < length; i++)
+                array[i] = buffer.get(i);
+            return array;
+        }
+    }
+
+    /**
+     * Add a state, reusing the id of a detached state if there is one.
+     * @return the id of the state
+     */
+    int addState(String name, boolean init, String[] labels) {
+        Integer reused = edits.detachedNames.get(name);
+        while (reused == null && !edits.freeIds.isEmpty()) {
+            reused = edits.freeIds.poll();
+            if (!edits.free.get(reused))
+                reused = null;
+        }
+        int state;
+        if (reused != null) {
+            state = reused;
+            edits.free.clear(state);
+            edits.detachedNames.remove(stateNames.get(state));
+            stateNames.set(state, name);
+        } else {
+            state = stateNames.size();
+            stateNames.add(name);
+            if (state == edits.successors.length) {
+                int capacity = state * 2;
+                edits.stateLabelSets = Arrays.copyOf(edits.stateLabelSets, capacity);
+                edits.successors = Arrays.copyOf(edits.successors, capacity);
+                edits.outDegrees = Arrays.copyOf(edits.outDegrees, capacity);
+                edits.predecessors = Arrays.copyOf(edits.predecessors, capacity);
+                edits.inDegrees = Arrays.copyOf(edits.inDegrees, capacity);
+            }
+            // a state past the index has no row in it
+            edits.successors[state] = new int[2];
+            edits.predecessors[state] = new int[2];
+        }
+        stateIds.put(name, state);
+        initStates.set(state, init);
+        edits.stateLabelSets[state] = internLabels(labels);
+        stateLabelSets = IntBuffer.wrap(edits.stateLabelSets, 0, stateNames.size());
+        changed();
+        return state;
+    }
+
+    /**
+     * Detach a state: remove its transitions, labels and initial status, and its name, and free its id.
+     */
+    void removeState(int state) {
+        while (getOutDegree(state) > 0)
+            removeTransition(getOutgoing(state, 0));
+        while (getInDegree(state) > 0)
+            removeTransition(getIncoming(state, 0));
+        stateIds.remove(stateNames.get(state));
+        initStates.clear(state);
+        edits.stateLabelSets[state] = internLabels(new String[0]);
+        edits.freeIds.push(state);
+        edits.free.set(state);
+        edits.detachedNames.put(stateNames.get(state), state);
+        changed();
+    }
+
+    void setLabels(int state, String[] labels) {
+        edits.stateLabelSets[state] = internLabels(labels);
+        changed();
+    }
+
+    private int internLabels(String[] labels) {
+        int id = edits.labelTable.intern(labels);
+        if (id == labelSets.length)
+            labelSets = edits.labelTable.toArray();
+        return id;
+    }
+
+    /**
+     * @return the id of the transition added
+     */
+    int addTransition(int source, int target, String[] actions) {
+        int set = edits.actionTable.intern(actions);
+        if (set == actionSets.length) {
+            actionSets = edits.actionTable.toArray();
+            indexActions();
+        }
+        int t = edits.transitionCount++;
+        if (t == edits.sources.length) {
+            edits.sources = Arrays.copyOf(edits.sources, t * 2);
+            edits.targets = Arrays.copyOf(edits.targets, t * 2);
+            edits.actionSets = Arrays.copyOf(edits.actionSets, t * 2);
+        }
+        edits.sources[t] = source;
+        edits.targets[t] = target;
+        edits.actionSets[t] = set;
+        wrapTransitions();
+        addEntry(edits.successors, edits.outDegrees, source, t, true);
+        addEntry(edits.predecessors, edits.inDegrees, target, t, false);
+        changed();
+        return t;
+    }
+
+    /**
+     * Remove a transition. The last transition takes its id, so that the ids stay dense.
+     */
+    void removeTransition(int t) {
+        removeEntry(edits.successors, edits.outDegrees, edits.sources[t], t, true);
+        removeEntry(edits.predecessors, edits.inDegrees, edits.targets[t], t, false);
+        int last = --edits.transitionCount;
+        if (t != last) {
+            replaceEntry(edits.successors, edits.outDegrees, edits.sources[last], last, t, true);
+            replaceEntry(edits.predecessors, edits.inDegrees, edits.targets[last], last, t, false);
+            edits.sources[t] = edits.sources[last];
+            edits.targets[t] = edits.targets[last];
+            edits.actionSets[t] = edits.actionSets[last];
+        }
+        wrapTransitions();
+        changed();
+    }
+
+    private void wrapTransitions() {
+        transitionSources = IntBuffer.wrap(edits.sources, 0, edits.transitionCount);
+        transitionTargets = IntBuffer.wrap(edits.targets, 0, edits.transitionCount);
+        transitionActionSets = IntBuffer.wrap(edits.actionSets, 0, edits.transitionCount);
+    }
+
+    /**
+     * @return the adjacency list of the state, copied from the index the first time it changes
+     */
+    private int[] entries(int[][] lists, int[] degrees, int state, boolean outgoing) {
+        if (lists[state] == null) {
+            int degree = outgoing ? getOutDegree(state) : getInDegree(state);
+            int[] list = new int[Math.max(degree, 2)];
+            for (int i = 0; i < degree; i++)
+                list[i] = outgoing ? getOutgoing(state, i) : getIncoming(state, i);
+            lists[state] = list;
+            degrees[state] = degree;
+        }
+        return lists[state];
+    }
+
+    private void addEntry(int[][] lists, int[] degrees, int state, int t, boolean outgoing) {
+        int[] list = entries(lists, degrees, state, outgoing);
+        if (degrees[state] == list.length)
+            lists[state] = list = Arrays.copyOf(list, list.length * 2);
+        list[degrees[state]++] = t;
+    }
+
+    private void removeEntry(int[][] lists, int[] degrees, int state, int t, boolean outgoing) {
+        int[] list = entries(lists, degrees, state, outgoing);
+        int degree = degrees[state];
+        for (int i = 0; i < degree; i++) {
+            if (list[i] == t) {
+                System.arraycopy(list, i + 1, list, i, degree - i - 1);
+                degrees[state]--;
+                return;
+            }
+        }
+    }
+
+    private void replaceEntry(int[][] lists, int[] degrees, int state, int from, int to, boolean outgoing) {
+        int[] list = entries(lists, degrees, state, outgoing);
+        for (int i = 0; i < degrees[state]; i++)
+            if (list[i] == from)
+                list[i] = to;
+    }
+
+    /**
+     * Forget everything derived from the structure, which has changed.
+     */
+    private synchronized void changed() {
+        fingerprint = 0;
+        states = null;
+        transitions = null;
+    }
+
+    //******** FINGERPRINT ********//
+
+    /**
+     * @return a 64-bit hash of everything the marking of a formula depends on: the initial states, the labels of each
+     * state, and the endpoints and actions of each transition. The state names are left out, as satisfaction sets are
+     * indexed by state id.
+     */
+    public synchronized long getFingerprint() {
+        if (fingerprint == 0) {
+            long hash = mix(getStateCount(), getTransitionCount());
+            for (int s = initStates.nextSetBit(0); s >= 0; s = initStates.nextSetBit(s + 1))
+                hash = mix(hash, s);
+            long[] labelSetHashes = hashSets(labelSets);
+            for (int s = 0; s < getStateCount(); s++)
+                hash = mix(hash, labelSetHashes[stateLabelSets.get(s)]);
+            long[] actionSetHashes = hashSets(actionSets);
+            for (int t = 0; t < getTransitionCount(); t++) {
+                hash = mix(hash, ((long) getSource(t) << 32) | getTarget(t));
+                hash = mix(hash, actionSetHashes[transitionActionSets.get(t)]);
+            }
+            // 0 marks the fingerprint as not computed
+            fingerprint = hash == 0 ? 1 : hash;
+        }
+        return fingerprint;
+    }
+
+    private static long[] hashSets(String[][] sets) {
+        long[] hashes = new long[sets.length];
+        for (int i = 0; i < sets.length; i++) {
+            long hash = sets[i].length;
+            for (String member : sets[i])
+                hash = mix(hash, member.hashCode());
+            hashes[i] = hash;
+        }
+        return hashes;
+    }
+
+    private static long mix(long hash, long value) {
+        long h = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    /**
+     * Interns string sets (as arrays, compared by content) to dense ids.
+     */
+    static class SetTable {
+
+        private final Map<List<String>, Integer> ids = new HashMap<>();
+
+        private final List<String[]> sets = new ArrayList<>();
+
+        SetTable() {
+        }
+
+        /**
+         * @param sets the sets to number first, in order
+         */
+        SetTable(String[][] sets) {
+            for (String[] set : sets)
+                intern(set);
+        }
+
+        /**
+         * @param set the members of a set, where null is taken as the empty set
+         * @return the id of the set, shared by every set with the same members in the same order
+         */
+        int intern(String[] set) {
+            String[] members = set == null ? new String[0] : set;
+            List<String> key = Arrays.asList(members);
+            Integer id = ids.get(key);
+            if (id == null) {
+                id = sets.size();
+                ids.put(key, id);
+                sets.add(members);
+            }
+            return id;
+        }
+
+        String[][] toArray() {
+            return sets.toArray(new String[sets.size()][]);
+        }
     }
 }
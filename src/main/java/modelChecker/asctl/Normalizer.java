@@ -0,0 +1,101 @@
+package modelChecker.asctl;
+
+import formula.FormulaFactory;
+import formula.pathFormula.Always;
+import formula.pathFormula.Eventually;
+import formula.pathFormula.Next;
+import formula.pathFormula.Until;
+import formula.stateFormula.*;
+
+/**
+ * Rewrites formulae into the normal form marked by the model checkers, which only uses the operators BoolProp,
+ * AtomicProp, Not, And, Or, EX, EG, E(p U q) and A(p U q). The normalized formulae are hash-consed, so subformulae
+ * shared within or between queries are the same node.
+ */
+public class Normalizer {
+
+    private Normalizer() {
+    }
+
+    /**
+     * Get an equivalent formula of f, in a normal form for marking purposes.
+     * @param f the formula to get a normal form for
+     */
+    public static StateFormula normalize(StateFormula f) {
+        CheckerEvents.Normalize event = CheckerEvents.beginNormalize();
+        StateFormula normalized = rewrite(f);
+        CheckerEvents.commit(event, f, normalized);
+        return normalized;
+    }
+
+    private static StateFormula rewrite(StateFormula f) {
+        if (f instanceof BoolProp || f instanceof AtomicProp) return f.intern();
+        else if (f instanceof And) return rewrite((And)f);
+        else if (f instanceof Or) return rewrite((Or)f);
+        else if (f instanceof Not) return rewrite((Not)f);
+        else if (f instanceof ForAll) return rewrite((ForAll)f);
+        else if (f instanceof ThereExists) return rewrite((ThereExists)f);
+        // assume no reductions required if we reach here
+        return FormulaFactory.intern(f);
+    }
+
+    private static StateFormula rewrite(And f) {
+        return FormulaFactory.and(rewrite(f.left), rewrite(f.right));
+    }
+
+    private static StateFormula rewrite(Or f) {
+        return FormulaFactory.or(rewrite(f.left), rewrite(f.right));
+    }
+
+    private static StateFormula rewrite(Not f) {
+        return FormulaFactory.not(rewrite(f.stateFormula));
+    }
+
+    private static StateFormula rewrite(ThereExists f) {
+        if (f.pathFormula instanceof Eventually) {
+            // EF p = E(T U p)
+            Eventually e = (Eventually)f.pathFormula;
+            StateFormula p = rewrite(e.stateFormula);
+            return FormulaFactory.thereExists(FormulaFactory.until(FormulaFactory.bool(true), p, e.getLeftActionsIdentifier(), e.getLeftActions(), e.getRightActionsIdentifier(), e.getRightActions()));
+        } else if (f.pathFormula instanceof Always) {
+            // EGa p = -A(T aUa -p)
+            Always g = (Always)f.pathFormula;
+            StateFormula p = rewrite(g.stateFormula);
+            return FormulaFactory.thereExists(FormulaFactory.always(p, g.getActionSetIdentifier1(), g.getActionSet1(), g.getActionSetIdentifier2(), g.getActionSet2()));
+        } else if (f.pathFormula instanceof Until) {
+            // E(p U q) is a minimal operator, simply normalize the left and right
+            Until u = (Until)f.pathFormula;
+            StateFormula p = rewrite(u.left);
+            StateFormula q = rewrite(u.right);
+            return FormulaFactory.thereExists(FormulaFactory.until(p, q, u.getLeftActionsIdentifier(), u.getLeftActions(), u.getRightActionsIdentifier(), u.getRightActions()));
+        }
+        return FormulaFactory.intern(f);
+    }
+
+    private static StateFormula rewrite(ForAll f) {
+        if (f.pathFormula instanceof Next) {
+            // AX p = -EX -p
+            Next n = (Next)f.pathFormula;
+            StateFormula p = rewrite(n.stateFormula);
+            return FormulaFactory.not(FormulaFactory.thereExists(FormulaFactory.next(FormulaFactory.not(p), n.getActionSetIdentifier(), n.getActions())));
+        } else if (f.pathFormula instanceof Eventually) {
+            // AaFb p = A(T aUb p)
+            Eventually e = (Eventually)f.pathFormula;
+            StateFormula p = rewrite(e.stateFormula);
+            return FormulaFactory.forAll(FormulaFactory.until(FormulaFactory.bool(true), p, e.getLeftActionsIdentifier(), e.getLeftActions(), e.getRightActionsIdentifier(), e.getRightActions()));
+        } else if (f.pathFormula instanceof Always) {
+            // AGa p = -E(T aUa -p)
+            Always g = (Always)f.pathFormula;
+            StateFormula p = rewrite(g.stateFormula);
+            // only take the first action set from the always statement (an always statement with a set union cannot be created from the parsed input)
+            return FormulaFactory.not(FormulaFactory.thereExists(FormulaFactory.until(FormulaFactory.bool(true), FormulaFactory.not(p), g.getActionSetIdentifier1(), g.getActionSet1(), g.getActionSetIdentifier1(), g.getActionSet1())));
+        } else if (f.pathFormula instanceof Until) {
+            // A(p aUb q) is a minimal operator, normalize the parameters
+            Until until = (Until)f.pathFormula;
+            StateFormula p = rewrite(until.left);
+            StateFormula q = rewrite(until.right);
+            return FormulaFactory.forAll(FormulaFactory.until(p, q, until.getLeftActionsIdentifier(), until.getLeftActions(), until.getRightActionsIdentifier(), until.getRightActions()));
+        }
+        return FormulaFactory.intern(f);
+    }
+}
@@ -0,0 +1,121 @@
+package modelChecker.asctl;
+
+import formula.pathFormula.Always;
+import formula.pathFormula.Next;
+import formula.pathFormula.PathFormula;
+import formula.pathFormula.Until;
+import formula.stateFormula.*;
+
+/**
+ * The cost of marking one subformula, or of building one counterexample.
+ *
+ * The work counted depends on the operator: transitions scanned are those examined through the forward or reverse
+ * index, worklist pushes are the states added to the queue or stack of a search, and iterations are the states taken
+ * from it and expanded. Boolean operators and atomic propositions only report their time.
+ */
+public final class OperatorStats {
+
+    /**
+     * The operator reported for a counterexample
+     */
+    public static final String COUNTEREXAMPLE = "counterexample";
+
+    private final StateFormula formula;
+
+    private final String operator;
+
+    private final long nanos;
+
+    private final int states;
+
+    private final long transitionsScanned;
+
+    private final long worklistPushes;
+
+    private final long iterations;
+
+    private final boolean cached;
+
+    OperatorStats(StateFormula formula, String operator, long nanos, int states, MarkingCounters counters, boolean cached) {
+        this.formula = formula;
+        this.operator = operator;
+        this.nanos = nanos;
+        this.states = states;
+        transitionsScanned = counters.transitionsScanned;
+        worklistPushes = counters.worklistPushes;
+        iterations = counters.iterations;
+        this.cached = cached;
+    }
+
+    /**
+     * @return the normalized subformula marked, or the query of a counterexample
+     */
+    public StateFormula getFormula() {
+        return formula;
+    }
+
+    /**
+     * @return the main operator of the formula, as "EX", "EU", "EG", "AU", "AND", "OR", "NOT", "AP" or "BOOL", or
+     * {@link #COUNTEREXAMPLE}
+     */
+    public String getOperator() {
+        return operator;
+    }
+
+    /**
+     * @return the wall time taken, excluding the subformulae
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * @return the number of states satisfying the subformula, or on the counterexample path
+     */
+    public int getStates() {
+        return states;
+    }
+
+    public long getTransitionsScanned() {
+        return transitionsScanned;
+    }
+
+    public long getWorklistPushes() {
+        return worklistPushes;
+    }
+
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return true if the satisfaction set was taken from the cache rather than marked
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    /**
+     * @param f a normalized formula
+     */
+    static String operatorOf(StateFormula f) {
+        if (f instanceof BoolProp) return "BOOL";
+        if (f instanceof AtomicProp) return "AP";
+        if (f instanceof Not) return "NOT";
+        if (f instanceof And) return "AND";
+        if (f instanceof Or) return "OR";
+        PathFormula path = f instanceof ThereExists ? ((ThereExists) f).pathFormula
+                : f instanceof ForAll ? ((ForAll) f).pathFormula : null;
+        String quantifier = f instanceof ThereExists ? "E" : "A";
+        if (path instanceof Next) return quantifier + "X";
+        if (path instanceof Until) return quantifier + "U";
+        if (path instanceof Always) return quantifier + "G";
+        return f.getClass().getSimpleName();
+    }
+
+    @Override
+    public String toString() {
+        return operator + " " + formula + ": " + nanos + "ns, states=" + states + ", transitions=" + transitionsScanned
+                + ", pushes=" + worklistPushes + ", iterations=" + iterations + (cached ? ", cached" : "");
+    }
+}
@@ -0,0 +1,115 @@
+package modelChecker.asctl;
+
+import formula.stateFormula.StateFormula;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of compiled programs, keyed by the constraint and the query as given (before normalization), so
+ * that a query checked again, on the same model or any other, is neither normalized nor compiled again.
+ *
+ * The cache holds at most a given number of programs, evicting the least recently used ones first. Its methods are
+ * synchronized, so checkers may share it across threads.
+ */
+public class ProgramCache {
+
+    public static final int DEFAULT_MAX_PROGRAMS = 1024;
+
+    private final int maxPrograms;
+
+    /**
+     * The programs, from least to most recently used
+     */
+    private final LinkedHashMap<Key, FormulaProgram> entries;
+
+    private long hits;
+
+    private long misses;
+
+    public ProgramCache() {
+        this(DEFAULT_MAX_PROGRAMS);
+    }
+
+    public ProgramCache(int maxPrograms) {
+        if (maxPrograms < 0)
+            throw new IllegalArgumentException("cache size must not be negative: " + maxPrograms);
+        this.maxPrograms = maxPrograms;
+        entries = new LinkedHashMap<Key, FormulaProgram>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, FormulaProgram> eldest) {
+                return size() > ProgramCache.this.maxPrograms;
+            }
+        };
+    }
+
+    /**
+     * @return the program of the constraint and the query, compiled now if it is not cached
+     */
+    public FormulaProgram get(StateFormula constraint, StateFormula query) {
+        Key key = new Key(constraint, query);
+        synchronized (this) {
+            FormulaProgram program = entries.get(key);
+            if (program != null) {
+                hits++;
+                return program;
+            }
+            misses++;
+        }
+        // compiled outside the lock; two threads compiling the same program both get an equivalent one
+        FormulaProgram program = FormulaProgram.compile(constraint, query);
+        synchronized (this) {
+            entries.put(key, program);
+        }
+        return program;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ProgramCache{entries=" + entries.size() + "/" + maxPrograms + ", hits=" + hits + ", misses=" + misses + "}";
+    }
+
+    private static final class Key {
+
+        private final StateFormula constraint;
+        private final StateFormula query;
+        private final int hash;
+
+        Key(StateFormula constraint, StateFormula query) {
+            this.constraint = constraint;
+            this.query = query;
+            hash = 31 * constraint.hashCode() + query.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+            Key key = (Key) o;
+            return constraint.equals(key.constraint) && query.equals(key.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
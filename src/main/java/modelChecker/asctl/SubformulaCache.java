@@ -0,0 +1,159 @@
+package modelChecker.asctl;
+
+import formula.stateFormula.StateFormula;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of satisfaction sets, shared by the markers of a long-running process so that a subformula marked
+ * for one query is not marked again for the next one on the same model.
+ *
+ * A set is keyed by the fingerprint of its model ({@link ModelWrapper#getFingerprint()}), the normalized constraint
+ * it was marked under, and the normalized subformula. The cache holds at most a given number of bytes of sets,
+ * evicting the least recently used ones first. Its methods are synchronized, so markers may share it across threads.
+ */
+public class SubformulaCache {
+
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    /**
+     * The bytes counted for each entry on top of the words of its set: the entry, key and BitSet objects
+     */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final long maxBytes;
+
+    /**
+     * The entries, from least to most recently used
+     */
+    private final LinkedHashMap<Key, BitSet> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long footprint;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    public SubformulaCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param maxBytes the number of bytes of sets (see {@link #footprint(BitSet)}) above which entries are evicted
+     */
+    public SubformulaCache(long maxBytes) {
+        if (maxBytes < 0)
+            throw new IllegalArgumentException("cache size must not be negative: " + maxBytes);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the satisfaction set of the subformula, which must not be modified, or null if it is not cached
+     */
+    public synchronized BitSet get(long fingerprint, StateFormula constraint, StateFormula f) {
+        BitSet satisfied = entries.get(new Key(fingerprint, constraint, f));
+        if (satisfied != null)
+            hits++;
+        else
+            misses++;
+        return satisfied;
+    }
+
+    /**
+     * Cache the satisfaction set of a subformula, which must not be modified afterwards, evicting the least recently
+     * used sets to make room. A set larger than the whole cache is not kept.
+     */
+    public synchronized void put(long fingerprint, StateFormula constraint, StateFormula f, BitSet satisfied) {
+        long size = footprint(satisfied);
+        if (size > maxBytes)
+            return;
+        BitSet replaced = entries.put(new Key(fingerprint, constraint, f), satisfied);
+        if (replaced != null)
+            footprint -= footprint(replaced);
+        footprint += size;
+        Iterator<Map.Entry<Key, BitSet>> eldest = entries.entrySet().iterator();
+        while (footprint > maxBytes) {
+            footprint -= footprint(eldest.next().getValue());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        footprint = 0;
+    }
+
+    /**
+     * @return the number of bytes counted for a set
+     */
+    static long footprint(BitSet satisfied) {
+        return ENTRY_OVERHEAD + satisfied.size() / 8;
+    }
+
+    //******** STATISTICS ********//
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of bytes counted for the cached sets
+     */
+    public synchronized long getFootprint() {
+        return footprint;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "SubformulaCache{entries=" + entries.size() + ", bytes=" + footprint + "/" + maxBytes
+                + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "}";
+    }
+
+    private static final class Key {
+
+        private final long fingerprint;
+        private final StateFormula constraint;
+        private final StateFormula formula;
+        private final int hash;
+
+        Key(long fingerprint, StateFormula constraint, StateFormula formula) {
+            this.fingerprint = fingerprint;
+            this.constraint = constraint;
+            this.formula = formula;
+            hash = 31 * (31 * Long.hashCode(fingerprint) + constraint.hashCode()) + formula.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+            Key key = (Key) o;
+            return fingerprint == key.fingerprint && constraint.equals(key.constraint) && formula.equals(key.formula);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package modelChecker.onthefly;
+
+/**
+ * A model given by its initial states and a successor function, rather than by an enumeration of its states and
+ * transitions, so that only the part of the state space a query needs is ever generated.
+ *
+ * States are compared with equals and hashCode, and so must implement them by value.
+ * @param <S> the type of states
+ */
+public interface ImplicitModel<S> {
+
+    /**
+     * @return the initial states of the model
+     */
+    Iterable<S> initialStates();
+
+    /**
+     * @param state a state of the model
+     * @return the transitions leaving the state; the iterable may generate them lazily, as a search stops as soon as
+     * it has found what it needs
+     */
+    Iterable<Successor<S>> successors(S state);
+
+    /**
+     * @param state a state of the model
+     * @return the atomic propositions which hold on the state
+     */
+    String[] labels(S state);
+}
@@ -0,0 +1,220 @@
+package modelChecker.onthefly;
+
+import formula.pathFormula.Next;
+import formula.pathFormula.Until;
+import formula.stateFormula.*;
+import modelChecker.asctl.Normalizer;
+
+import java.util.*;
+
+import static modelChecker.asctl.ModelMarker.actionsSatisfied;
+
+/**
+ * Checks formulae on an {@link ImplicitModel} by searching forward from the initial states, generating only the
+ * states the query needs. Each (subformula, state) pair is decided at most once, with the results kept in hashed
+ * stores, and a search stops as soon as its answer is known: an invariant AG p stops at the first reachable state
+ * violating p, and the check stops at the first initial state on which the query does not hold.
+ *
+ * The supported operators, after normalization, are the propositional ones, EX, E(p U q) and so EF, and the universal
+ * operators which reduce to them: AX and AG. As in {@link modelChecker.asctl.ModelMarker}, a state is only entered by
+ * an EX step or by the left steps of an until if it satisfies the constraint or is initial, and the action sets of
+ * the operators restrict the transitions taken. E(p aUb q) holds on a state if q holds on it, or if a path of a-steps
+ * through states satisfying p ends with a b-step into a state satisfying q; unlike the marker, this does not require
+ * a state satisfying q to be enterable by a b-step, which is a property of its predecessors that is not generated.
+ * @param <S> the type of states
+ */
+public class OnTheFlyChecker<S> {
+
+    private final ImplicitModel<S> model;
+
+    private Set<S> initialStates;
+
+    /**
+     * The normalized constraint, which is decided without restricting any paths
+     */
+    private StateFormula constraint;
+
+    private Evaluation unconstrained;
+
+    private Evaluation constrained;
+
+    private Set<S> expanded;
+
+    private List<S> trace;
+
+    public OnTheFlyChecker(ImplicitModel<S> model) {
+        this.model = model;
+    }
+
+    /**
+     * @return true if every initial state satisfies the query under the constraint
+     */
+    public boolean check(StateFormula constraint, StateFormula query) {
+        StateFormula normalizedQuery = Normalizer.normalize(query);
+        this.constraint = Normalizer.normalize(constraint);
+        initialStates = new LinkedHashSet<>();
+        for (S s : model.initialStates())
+            initialStates.add(s);
+        unconstrained = new Evaluation(false);
+        constrained = new Evaluation(true);
+        expanded = new HashSet<>();
+        trace = new ArrayList<>();
+        for (S s : initialStates) {
+            if (!constrained.holds(normalizedQuery, s)) {
+                trace = constrained.counterexample(normalizedQuery, s);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return a path from an initial state showing why the previous check failed: for AG p, a path to a state
+     * violating p, and for AX p a step to such a state; otherwise just the initial state
+     */
+    public List<S> getTrace() {
+        return trace;
+    }
+
+    /**
+     * @return the number of distinct states whose successors were generated by the previous check
+     */
+    public int getExpandedStateCount() {
+        return expanded.size();
+    }
+
+    private Iterable<Successor<S>> successors(S state) {
+        expanded.add(state);
+        return model.successors(state);
+    }
+
+    /**
+     * The results of deciding formulae on states, either under the constraint or without any.
+     */
+    private class Evaluation {
+
+        private final boolean restricted;
+
+        private final Map<StateFormula, Map<S, Boolean>> decided = new HashMap<>();
+
+        Evaluation(boolean restricted) {
+            this.restricted = restricted;
+        }
+
+        /**
+         * @return true if the state satisfies the constraint or is initial (or there is no constraint to satisfy)
+         */
+        private boolean allowed(S state) {
+            return !restricted || initialStates.contains(state) || unconstrained.holds(constraint, state);
+        }
+
+        private Map<S, Boolean> results(StateFormula f) {
+            return decided.computeIfAbsent(f, k -> new HashMap<>());
+        }
+
+        boolean holds(StateFormula f, S state) {
+            Map<S, Boolean> results = results(f);
+            Boolean known = results.get(state);
+            if (known != null)
+                return known;
+            boolean value = decide(f, state);
+            results.put(state, value);
+            return value;
+        }
+
+        private boolean decide(StateFormula f, S state) {
+            if (f instanceof BoolProp) {
+                return ((BoolProp) f).value;
+            } else if (f instanceof AtomicProp) {
+                return Arrays.asList(model.labels(state)).contains(((AtomicProp) f).label);
+            } else if (f instanceof Not) {
+                return !holds(((Not) f).stateFormula, state);
+            } else if (f instanceof And) {
+                return holds(((And) f).left, state) && holds(((And) f).right, state);
+            } else if (f instanceof Or) {
+                return holds(((Or) f).left, state) || holds(((Or) f).right, state);
+            } else if (f instanceof ThereExists && ((ThereExists) f).pathFormula instanceof Next) {
+                return nextWitness((Next) ((ThereExists) f).pathFormula, state) != null;
+            } else if (f instanceof ThereExists && ((ThereExists) f).pathFormula instanceof Until) {
+                return untilWitness((ThereExists) f, state) != null;
+            }
+            throw new IllegalArgumentException("formula not supported on the fly: " + f.toString() + " - only EX, E(p U q) and their negations are accepted");
+        }
+
+        /**
+         * @return a successor of the state showing that it satisfies EX p, or null if there is none
+         */
+        private S nextWitness(Next next, S state) {
+            for (Successor<S> successor : successors(state)) {
+                S target = successor.getTarget();
+                if (actionsSatisfied(successor.getActions(), next.getActions()) && allowed(target)
+                        && holds(next.stateFormula, target))
+                    return target;
+            }
+            return null;
+        }
+
+        /**
+         * Breadth-first search for a path showing that the state satisfies E(p aUb q). When none exists, every state
+         * the search expanded is also known not to satisfy it (unless q holds there), and when one does, every state
+         * on the path satisfies it.
+         * @return the path, from the state to one satisfying q, or null if there is none
+         */
+        private List<S> untilWitness(ThereExists f, S start) {
+            Until until = (Until) f.pathFormula;
+            if (holds(until.right, start))
+                return Collections.singletonList(start);
+            if (!holds(until.left, start) || !allowed(start))
+                return null;
+            Map<S, Boolean> results = results(f);
+            Map<S, S> parents = new HashMap<>();
+            Deque<S> toProcess = new ArrayDeque<>();
+            parents.put(start, null);
+            toProcess.add(start);
+            while (!toProcess.isEmpty()) {
+                S state = toProcess.poll();
+                for (Successor<S> successor : successors(state)) {
+                    S target = successor.getTarget();
+                    if (actionsSatisfied(successor.getActions(), until.getRightActions()) && holds(until.right, target)) {
+                        List<S> path = new ArrayList<>();
+                        path.add(target);
+                        for (S s = state; s != null; s = parents.get(s)) {
+                            path.add(s);
+                            results.put(s, true);
+                        }
+                        Collections.reverse(path);
+                        return path;
+                    }
+                    if (!parents.containsKey(target) && results.get(target) != Boolean.FALSE
+                            && actionsSatisfied(successor.getActions(), until.getLeftActions())
+                            && allowed(target) && holds(until.left, target)) {
+                        parents.put(target, state);
+                        toProcess.add(target);
+                    }
+                }
+            }
+            for (S s : parents.keySet())
+                if (!holds(until.right, s))
+                    results.put(s, false);
+            return null;
+        }
+
+        /**
+         * @param f a normalized formula which does not hold on the state
+         */
+        List<S> counterexample(StateFormula f, S state) {
+            List<S> path = new ArrayList<>();
+            path.add(state);
+            if (!(f instanceof Not) || !(((Not) f).stateFormula instanceof ThereExists))
+                return path;
+            ThereExists witnessed = (ThereExists) ((Not) f).stateFormula;
+            if (witnessed.pathFormula instanceof Next) {
+                path.add(nextWitness((Next) witnessed.pathFormula, state));
+            } else if (witnessed.pathFormula instanceof Until) {
+                List<S> witness = untilWitness(witnessed, state);
+                path.addAll(witness.subList(1, witness.size()));
+            }
+            return path;
+        }
+    }
+}
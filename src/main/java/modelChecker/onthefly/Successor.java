@@ -0,0 +1,28 @@
+package modelChecker.onthefly;
+
+/**
+ * A transition of an {@link ImplicitModel}, seen from its source.
+ * @param <S> the type of states
+ */
+public class Successor<S> {
+
+    private final S target;
+
+    private final String[] actions;
+
+    public Successor(S target, String[] actions) {
+        this.target = target;
+        this.actions = actions;
+    }
+
+    public S getTarget() {
+        return target;
+    }
+
+    /**
+     * @return the actions of the transition; this must not be modified
+     */
+    public String[] getActions() {
+        return actions;
+    }
+}
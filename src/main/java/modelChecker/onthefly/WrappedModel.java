@@ -0,0 +1,46 @@
+package modelChecker.onthefly;
+
+import modelChecker.asctl.ModelWrapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An explicit model seen as an implicit one, with states identified by their ids.
+ */
+public class WrappedModel implements ImplicitModel<Integer> {
+
+    private final ModelWrapper model;
+
+    public WrappedModel(ModelWrapper model) {
+        this.model = model;
+    }
+
+    public ModelWrapper getModel() {
+        return model;
+    }
+
+    @Override
+    public Iterable<Integer> initialStates() {
+        List<Integer> initial = new ArrayList<>();
+        for (int s = 0; s < model.getStateCount(); s++)
+            if (model.isInit(s))
+                initial.add(s);
+        return initial;
+    }
+
+    @Override
+    public Iterable<Successor<Integer>> successors(Integer state) {
+        List<Successor<Integer>> successors = new ArrayList<>(model.getOutDegree(state));
+        for (int i = 0; i < model.getOutDegree(state); i++) {
+            int t = model.getOutgoing(state, i);
+            successors.add(new Successor<>(model.getTarget(t), model.getActions(t)));
+        }
+        return successors;
+    }
+
+    @Override
+    public String[] labels(Integer state) {
+        return model.getLabels(state);
+    }
+}
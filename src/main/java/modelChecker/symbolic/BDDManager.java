@@ -0,0 +1,488 @@
+package modelChecker.symbolic;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A self-contained reduced ordered binary decision diagram package.
+ *
+ * BDDs are referred to by int handles into a node table; the handles {@link #FALSE} and {@link #TRUE} are the two
+ * terminals, and a variable's index is also its position in the (fixed) variable order. Nodes are hash-consed through
+ * a unique table, so two handles are equal exactly when they denote the same boolean function. Results of the
+ * recursive operations are memoised in a direct-mapped operation cache.
+ *
+ * Garbage collection is mark-and-sweep from the externally referenced nodes, and only ever runs on entry to a public
+ * operation (never part way through one). Any handle that is kept across calls must therefore be protected with
+ * {@link #ref(int)} and released with {@link #deref(int)}; handles passed directly as arguments are protected for the
+ * duration of the call.
+ */
+public class BDDManager {
+
+    public static final int FALSE = 0;
+
+    public static final int TRUE = 1;
+
+    private static final int OP_AND = 0;
+    private static final int OP_OR = 1;
+    private static final int OP_NOT = 2;
+    private static final int OP_EXISTS = 3;
+    private static final int OP_REL_PROD = 4;
+
+    private final int varCount;
+
+    // node table, a node is free when its level is -1
+    private int[] level;
+    private int[] low;
+    private int[] high;
+    private int[] refs;
+    private int[] next;
+    private int[] buckets;
+    private int freeList;
+    private int freeCount;
+
+    // operation cache
+    private int[] cacheOp;
+    private int[] cacheA;
+    private int[] cacheB;
+    private int[] cacheC;
+    private int[] cacheResult;
+
+    private int gcCount;
+
+    /**
+     * @param varCount the number of boolean variables, ordered by index
+     * @param initialNodes the initial capacity of the node table, rounded up to a power of two (it grows as required)
+     * @param cacheSize the number of entries in the operation cache, rounded up to a power of two
+     */
+    public BDDManager(int varCount, int initialNodes, int cacheSize) {
+        this.varCount = varCount;
+        // both tables are indexed by masking a hash, so their sizes are powers of two
+        int capacity = Integer.highestOneBit(Math.max(initialNodes, 16) - 1) << 1;
+        level = new int[capacity];
+        low = new int[capacity];
+        high = new int[capacity];
+        refs = new int[capacity];
+        next = new int[capacity];
+        buckets = new int[capacity];
+        Arrays.fill(buckets, -1);
+        // terminals sit below every variable in the order
+        level[FALSE] = varCount;
+        level[TRUE] = varCount;
+        low[TRUE] = high[TRUE] = TRUE;
+        refs[FALSE] = refs[TRUE] = Integer.MAX_VALUE;
+        freeList = -1;
+        for (int n = capacity - 1; n >= 2; n--)
+            free(n);
+        int size = Integer.highestOneBit(Math.max(cacheSize, 16) - 1) << 1;
+        cacheOp = new int[size];
+        cacheA = new int[size];
+        cacheB = new int[size];
+        cacheC = new int[size];
+        cacheResult = new int[size];
+        Arrays.fill(cacheOp, -1);
+    }
+
+    public BDDManager(int varCount) {
+        this(varCount, 1 << 14, 1 << 14);
+    }
+
+    //******** REFERENCES ********//
+
+    public int ref(int f) {
+        if (refs[f] != Integer.MAX_VALUE)
+            refs[f]++;
+        return f;
+    }
+
+    public void deref(int f) {
+        if (refs[f] != Integer.MAX_VALUE && refs[f] > 0)
+            refs[f]--;
+    }
+
+    //******** CONSTRUCTION ********//
+
+    public int getVarCount() {
+        return varCount;
+    }
+
+    /**
+     * @return the number of nodes currently allocated, including unreferenced ones awaiting collection
+     */
+    public int getNodeCount() {
+        return level.length - freeCount;
+    }
+
+    public int getGcCount() {
+        return gcCount;
+    }
+
+    public int var(int v) {
+        return mk(v, FALSE, TRUE);
+    }
+
+    public int nvar(int v) {
+        return mk(v, TRUE, FALSE);
+    }
+
+    /**
+     * @return the canonical node testing variable v, with the given cofactors
+     */
+    public int mk(int v, int lowChild, int highChild) {
+        if (lowChild == highChild)
+            return lowChild;
+        int bucket = hash(v, lowChild, highChild) & (buckets.length - 1);
+        for (int n = buckets[bucket]; n >= 0; n = next[n])
+            if (level[n] == v && low[n] == lowChild && high[n] == highChild)
+                return n;
+        if (freeList < 0) {
+            grow();
+            bucket = hash(v, lowChild, highChild) & (buckets.length - 1);
+        }
+        int n = freeList;
+        freeList = next[n];
+        freeCount--;
+        level[n] = v;
+        low[n] = lowChild;
+        high[n] = highChild;
+        refs[n] = 0;
+        next[n] = buckets[bucket];
+        buckets[bucket] = n;
+        return n;
+    }
+
+    /**
+     * @param vars variable indices
+     * @return the conjunction of the positive literals of the given variables, for use with {@link #exists} and
+     * {@link #relProd}
+     */
+    public int cube(int[] vars) {
+        int[] sorted = vars.clone();
+        Arrays.sort(sorted);
+        int f = TRUE;
+        for (int i = sorted.length - 1; i >= 0; i--)
+            f = mk(sorted[i], FALSE, f);
+        return f;
+    }
+
+    //******** OPERATIONS ********//
+
+    public int and(int a, int b) {
+        collectIfNeeded(a, b, TRUE);
+        return andRec(a, b);
+    }
+
+    public int or(int a, int b) {
+        collectIfNeeded(a, b, TRUE);
+        return orRec(a, b);
+    }
+
+    public int not(int a) {
+        collectIfNeeded(a, TRUE, TRUE);
+        return notRec(a);
+    }
+
+    /**
+     * @return a and not b
+     */
+    public int diff(int a, int b) {
+        collectIfNeeded(a, b, TRUE);
+        return andRec(a, notRec(b));
+    }
+
+    /**
+     * @return the existential quantification of f over the variables of the given cube
+     */
+    public int exists(int f, int cube) {
+        collectIfNeeded(f, cube, TRUE);
+        return existsRec(f, cube);
+    }
+
+    /**
+     * The relational product, computed in one pass without building the intermediate conjunction.
+     * @return the existential quantification of (f and g) over the variables of the given cube
+     */
+    public int relProd(int f, int g, int cube) {
+        collectIfNeeded(f, g, cube);
+        return relProdRec(f, g, cube);
+    }
+
+    /**
+     * Rename the variables of f. The renaming must preserve the relative order of the variables f depends on.
+     * @param map the new index of each variable
+     */
+    public int replace(int f, int[] map) {
+        collectIfNeeded(f, TRUE, TRUE);
+        return replaceRec(f, map, new HashMap<>());
+    }
+
+    /**
+     * Find one satisfying assignment of f.
+     * @param values (output) the value of each variable in the assignment, variables f does not depend on are false
+     * @return false if f is unsatisfiable
+     */
+    public boolean satOne(int f, boolean[] values) {
+        Arrays.fill(values, false);
+        if (f == FALSE)
+            return false;
+        while (f != TRUE) {
+            if (low[f] != FALSE) {
+                f = low[f];
+            } else {
+                values[level[f]] = true;
+                f = high[f];
+            }
+        }
+        return true;
+    }
+
+    private int andRec(int a, int b) {
+        if (a == FALSE || b == FALSE)
+            return FALSE;
+        if (a == TRUE || a == b)
+            return b;
+        if (b == TRUE)
+            return a;
+        if (a > b) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        int slot = cacheSlot(OP_AND, a, b, 0);
+        if (cacheOp[slot] == OP_AND && cacheA[slot] == a && cacheB[slot] == b)
+            return cacheResult[slot];
+        int v = Math.min(level[a], level[b]);
+        int l = andRec(level[a] == v ? low[a] : a, level[b] == v ? low[b] : b);
+        int h = andRec(level[a] == v ? high[a] : a, level[b] == v ? high[b] : b);
+        return cache(slot, OP_AND, a, b, 0, mk(v, l, h));
+    }
+
+    private int orRec(int a, int b) {
+        if (a == TRUE || b == TRUE)
+            return TRUE;
+        if (a == FALSE || a == b)
+            return b;
+        if (b == FALSE)
+            return a;
+        if (a > b) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        int slot = cacheSlot(OP_OR, a, b, 0);
+        if (cacheOp[slot] == OP_OR && cacheA[slot] == a && cacheB[slot] == b)
+            return cacheResult[slot];
+        int v = Math.min(level[a], level[b]);
+        int l = orRec(level[a] == v ? low[a] : a, level[b] == v ? low[b] : b);
+        int h = orRec(level[a] == v ? high[a] : a, level[b] == v ? high[b] : b);
+        return cache(slot, OP_OR, a, b, 0, mk(v, l, h));
+    }
+
+    private int notRec(int a) {
+        if (a == FALSE)
+            return TRUE;
+        if (a == TRUE)
+            return FALSE;
+        int slot = cacheSlot(OP_NOT, a, 0, 0);
+        if (cacheOp[slot] == OP_NOT && cacheA[slot] == a)
+            return cacheResult[slot];
+        int l = notRec(low[a]);
+        int h = notRec(high[a]);
+        return cache(slot, OP_NOT, a, 0, 0, mk(level[a], l, h));
+    }
+
+    private int existsRec(int f, int cube) {
+        while (cube != TRUE && level[cube] < level[f])
+            cube = high[cube];
+        if (f == FALSE || f == TRUE || cube == TRUE)
+            return f;
+        int slot = cacheSlot(OP_EXISTS, f, cube, 0);
+        if (cacheOp[slot] == OP_EXISTS && cacheA[slot] == f && cacheB[slot] == cube)
+            return cacheResult[slot];
+        int result;
+        if (level[f] == level[cube]) {
+            int l = existsRec(low[f], high[cube]);
+            result = l == TRUE ? TRUE : orRec(l, existsRec(high[f], high[cube]));
+        } else {
+            int l = existsRec(low[f], cube);
+            int h = existsRec(high[f], cube);
+            result = mk(level[f], l, h);
+        }
+        return cache(slot, OP_EXISTS, f, cube, 0, result);
+    }
+
+    private int relProdRec(int f, int g, int cube) {
+        if (f == FALSE || g == FALSE)
+            return FALSE;
+        if (f == TRUE && g == TRUE)
+            return TRUE;
+        int v = Math.min(level[f], level[g]);
+        while (cube != TRUE && level[cube] < v)
+            cube = high[cube];
+        if (cube == TRUE)
+            return andRec(f, g);
+        if (f == TRUE)
+            return existsRec(g, cube);
+        if (g == TRUE)
+            return existsRec(f, cube);
+        if (f > g) {
+            int t = f;
+            f = g;
+            g = t;
+        }
+        int slot = cacheSlot(OP_REL_PROD, f, g, cube);
+        if (cacheOp[slot] == OP_REL_PROD && cacheA[slot] == f && cacheB[slot] == g && cacheC[slot] == cube)
+            return cacheResult[slot];
+        int fl = level[f] == v ? low[f] : f, fh = level[f] == v ? high[f] : f;
+        int gl = level[g] == v ? low[g] : g, gh = level[g] == v ? high[g] : g;
+        int result;
+        if (level[cube] == v) {
+            int l = relProdRec(fl, gl, high[cube]);
+            result = l == TRUE ? TRUE : orRec(l, relProdRec(fh, gh, high[cube]));
+        } else {
+            int l = relProdRec(fl, gl, cube);
+            int h = relProdRec(fh, gh, cube);
+            result = mk(v, l, h);
+        }
+        return cache(slot, OP_REL_PROD, f, g, cube, result);
+    }
+
+    private int replaceRec(int f, int[] map, Map<Integer, Integer> memo) {
+        if (f == FALSE || f == TRUE)
+            return f;
+        Integer known = memo.get(f);
+        if (known != null)
+            return known;
+        int l = replaceRec(low[f], map, memo);
+        int h = replaceRec(high[f], map, memo);
+        int result = mk(map[level[f]], l, h);
+        memo.put(f, result);
+        return result;
+    }
+
+    //******** CACHE ********//
+
+    private int cacheSlot(int op, int a, int b, int c) {
+        return hash(op, a, b * 31 + c) & (cacheOp.length - 1);
+    }
+
+    private int cache(int slot, int op, int a, int b, int c, int result) {
+        cacheOp[slot] = op;
+        cacheA[slot] = a;
+        cacheB[slot] = b;
+        cacheC[slot] = c;
+        cacheResult[slot] = result;
+        return result;
+    }
+
+    private static int hash(int a, int b, int c) {
+        int h = a * 0x9E3779B1 + b;
+        h = h * 0x85EBCA6B + c;
+        return h ^ (h >>> 15);
+    }
+
+    //******** MEMORY MANAGEMENT ********//
+
+    /**
+     * Collect garbage before an operation if less than an eighth of the node table is free, protecting the
+     * operation's arguments. If collection does not free a quarter of the table, it is grown instead.
+     */
+    private void collectIfNeeded(int a, int b, int c) {
+        if (freeCount >= level.length / 8)
+            return;
+        ref(a);
+        ref(b);
+        ref(c);
+        gc();
+        deref(a);
+        deref(b);
+        deref(c);
+        if (freeCount < level.length / 4)
+            grow();
+    }
+
+    /**
+     * Free every node not reachable from an externally referenced node, and clear the operation cache.
+     */
+    public void gc() {
+        gcCount++;
+        boolean[] marked = new boolean[level.length];
+        marked[FALSE] = marked[TRUE] = true;
+        int[] stack = new int[64];
+        for (int n = 2; n < level.length; n++) {
+            if (level[n] < 0 || refs[n] <= 0 || marked[n])
+                continue;
+            int top = 0;
+            stack[top++] = n;
+            marked[n] = true;
+            while (top > 0) {
+                int m = stack[--top];
+                if (stack.length < top + 2)
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                if (!marked[low[m]]) {
+                    marked[low[m]] = true;
+                    stack[top++] = low[m];
+                }
+                if (!marked[high[m]]) {
+                    marked[high[m]] = true;
+                    stack[top++] = high[m];
+                }
+            }
+        }
+        Arrays.fill(buckets, -1);
+        freeList = -1;
+        freeCount = 0;
+        for (int n = level.length - 1; n >= 2; n--) {
+            if (level[n] >= 0 && marked[n]) {
+                int bucket = hash(level[n], low[n], high[n]) & (buckets.length - 1);
+                next[n] = buckets[bucket];
+                buckets[bucket] = n;
+            } else {
+                free(n);
+            }
+        }
+        Arrays.fill(cacheOp, -1);
+    }
+
+    private void free(int n) {
+        level[n] = -1;
+        refs[n] = 0;
+        next[n] = freeList;
+        freeList = n;
+        freeCount++;
+    }
+
+    /**
+     * Double the node table and rehash every live node. The operation cache stays valid, as no node moves.
+     */
+    private void grow() {
+        int oldCapacity = level.length;
+        int capacity = oldCapacity * 2;
+        level = Arrays.copyOf(level, capacity);
+        low = Arrays.copyOf(low, capacity);
+        high = Arrays.copyOf(high, capacity);
+        refs = Arrays.copyOf(refs, capacity);
+        next = Arrays.copyOf(next, capacity);
+        buckets = new int[capacity];
+        Arrays.fill(buckets, -1);
+        for (int n = 2; n < oldCapacity; n++) {
+            if (level[n] >= 0) {
+                int bucket = hash(level[n], low[n], high[n]) & (buckets.length - 1);
+                next[n] = buckets[bucket];
+                buckets[bucket] = n;
+            }
+        }
+        // the free list only threads through free nodes, so rebuild it over the old and new free nodes
+        freeList = -1;
+        freeCount = 0;
+        for (int n = capacity - 1; n >= oldCapacity; n--)
+            free(n);
+        for (int n = oldCapacity - 1; n >= 2; n--) {
+            if (level[n] < 0) {
+                next[n] = freeList;
+                freeList = n;
+                freeCount++;
+            }
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package modelChecker.symbolic;
+
+import formula.pathFormula.Always;
+import formula.pathFormula.Next;
+import formula.pathFormula.Until;
+import formula.stateFormula.*;
+
+import java.util.*;
+
+/**
+ * Marks normalized formulae on a {@link SymbolicModel}, computing the set of states satisfying each subformula as a
+ * BDD. The temporal operators are the same as those of {@link modelChecker.asctl.ModelMarker}, expressed as
+ * relational products and symbolic fixpoints, where pre_B(Z) is the set of states with a transition labelled by an
+ * action in B into Z, and Ok is the set of states satisfying the constraint or initial:
+ *
+ * EX_B p = pre_B(p and Ok)
+ * E(p aUb q) = Seeds or (mu Z. Ok and p and (pre_b(Seeds) or pre_a(Z))), where Seeds = q and post_b(true)
+ * A(p aUb q) = mu Z. Seeds or (p and pre(C) and not Bad(Z)), where Seeds = C and q and post_b(true), and Bad(Z) is
+ *              the set of states with a transition into C that neither enters Seeds by b nor enters Z by a
+ * EG_B p = nu Z. p and Ok and pre_B(Z)
+ */
+public class SymbolicMarker {
+
+    private final SymbolicModel model;
+
+    private final BDDManager bdd;
+
+    /**
+     * A mapping from each marked state formula to the (referenced) BDD of the states on which it is satisfied.
+     */
+    private Map<StateFormula, Integer> marked;
+
+    private int constraintStates;
+
+    public SymbolicMarker(SymbolicModel model) {
+        this.model = model;
+        this.bdd = model.getBDD();
+        marked = new HashMap<>();
+        constraintStates = BDDManager.FALSE;
+    }
+
+    /**
+     * @param f a normalized formula
+     * @param constraint a normalized constraint
+     * @return true if every initial state satisfies f under the constraint
+     */
+    public boolean isModelSatisfied(StateFormula f, StateFormula constraint) {
+        clear();
+        bdd.deref(constraintStates);
+        // as in ModelMarker, the constraint is marked without restricting any paths
+        constraintStates = bdd.ref(model.getAllStates());
+        int satisfyingConstraint = bdd.ref(mark(constraint));
+        clear();
+        bdd.deref(constraintStates);
+        constraintStates = satisfyingConstraint;
+        marked.put(constraint, bdd.ref(constraintStates));
+        int satisfying = mark(f);
+        return bdd.diff(model.getInitialStates(), satisfying) == BDDManager.FALSE;
+    }
+
+    public SymbolicModel getModel() {
+        return model;
+    }
+
+    /**
+     * @return the set of states satisfying the constraint
+     */
+    public int getConstraintStates() {
+        return constraintStates;
+    }
+
+    /**
+     * @return the set of states which satisfy the constraint or are initial
+     */
+    public int getUnconstrainedStates() {
+        return bdd.or(constraintStates, model.getInitialStates());
+    }
+
+    /**
+     * @param f a marked state formula
+     * @return the set of states on which f is satisfied
+     */
+    public int getSatisfying(StateFormula f) {
+        Integer satisfied = marked.get(f);
+        return satisfied != null ? satisfied : BDDManager.FALSE;
+    }
+
+    private void clear() {
+        for (int f : marked.values())
+            bdd.deref(f);
+        marked = new HashMap<>();
+    }
+
+    //******** STATE MARKING ********//
+
+    /**
+     * @return the set of states satisfying f, which stays referenced for the lifetime of this marking
+     */
+    private int mark(StateFormula f) {
+        Integer known = marked.get(f);
+        if (known != null)
+            return known;
+        int satisfied;
+        if (f instanceof BoolProp) satisfied = ((BoolProp) f).value ? model.getAllStates() : BDDManager.FALSE;
+        else if (f instanceof AtomicProp) satisfied = model.getLabel(((AtomicProp) f).label);
+        else if (f instanceof Not) satisfied = bdd.diff(model.getAllStates(), mark(((Not) f).stateFormula));
+        else if (f instanceof And) satisfied = markFor((And) f);
+        else if (f instanceof Or) satisfied = markFor((Or) f);
+        else if (f instanceof ThereExists) satisfied = markFor((ThereExists) f);
+        else if (f instanceof ForAll) satisfied = markFor((ForAll) f);
+        else
+            throw new IllegalArgumentException("unknown formula type: " + f.toString());
+        marked.put(f, bdd.ref(satisfied));
+        return satisfied;
+    }
+
+    private int markFor(And f) {
+        int left = mark(f.left);
+        int right = mark(f.right);
+        return bdd.and(left, right);
+    }
+
+    private int markFor(Or f) {
+        int left = mark(f.left);
+        int right = mark(f.right);
+        return bdd.or(left, right);
+    }
+
+    private int markFor(ThereExists f) {
+        if (f.pathFormula instanceof Next) {
+            Next next = (Next) f.pathFormula;
+            int psi = mark(next.stateFormula);
+            int ok = bdd.ref(getUnconstrainedStates());
+            int target = bdd.ref(bdd.and(psi, ok));
+            int result = model.predecessors(next.getActions(), target);
+            bdd.deref(target);
+            bdd.deref(ok);
+            return result;
+        } else if (f.pathFormula instanceof Always) {
+            return markForThereExistsAlways((Always) f.pathFormula);
+        } else if (f.pathFormula instanceof Until) {
+            return markForThereExistsUntil((Until) f.pathFormula);
+        }
+        throw new IllegalArgumentException("reduction incomplete in formula: " + f.toString() + " - only forms EX p and E(p U q) are accepted");
+    }
+
+    private int markFor(ForAll f) {
+        if (f.pathFormula instanceof Until)
+            return markForForAllUntil((Until) f.pathFormula);
+        throw new IllegalArgumentException("reduction incomplete on formula: " + f.toString() + " - only formulae of the form A(p U q) are accepted");
+    }
+
+    /**
+     * @return the states satisfying the right of the until, which can be entered by an action in the right action set
+     */
+    private int untilSeeds(Until until) {
+        int right = mark(until.right);
+        int entered = bdd.ref(model.successors(until.getRightActions(), model.getAllStates()));
+        int seeds = bdd.and(right, entered);
+        bdd.deref(entered);
+        return seeds;
+    }
+
+    /**
+     * @return the states satisfying the left of the until (and the constraint, or initial) from which a transition
+     * in the right action set enters one of the seeds
+     */
+    private int untilBase(Until until, int seeds) {
+        int left = mark(until.left);
+        int ok = bdd.ref(getUnconstrainedStates());
+        int okLeft = bdd.ref(bdd.and(ok, left));
+        int base = bdd.and(okLeft, model.predecessors(until.getRightActions(), seeds));
+        bdd.deref(okLeft);
+        bdd.deref(ok);
+        return base;
+    }
+
+    /**
+     * @return the states from which a path through the left of the until reaches the given set, in one step in the
+     * left action set
+     */
+    private int untilStep(Until until, int reached) {
+        int left = mark(until.left);
+        int ok = bdd.ref(getUnconstrainedStates());
+        int okLeft = bdd.ref(bdd.and(ok, left));
+        int step = bdd.and(okLeft, model.predecessors(until.getLeftActions(), reached));
+        bdd.deref(okLeft);
+        bdd.deref(ok);
+        return step;
+    }
+
+    private int markForThereExistsUntil(Until until) {
+        int seeds = bdd.ref(untilSeeds(until));
+        int z = bdd.ref(untilBase(until, seeds));
+        while (true) {
+            int next = bdd.ref(bdd.or(z, untilStep(until, z)));
+            bdd.deref(z);
+            if (next == z)
+                break;
+            z = next;
+        }
+        int result = bdd.or(seeds, z);
+        bdd.deref(z);
+        bdd.deref(seeds);
+        return result;
+    }
+
+    private int markForForAllUntil(Until until) {
+        int left = mark(until.left);
+        int right = mark(until.right);
+        int entered = bdd.ref(model.successors(until.getRightActions(), model.getAllStates()));
+        int seeds = bdd.ref(bdd.and(constraintStates, bdd.and(right, entered)));
+        bdd.deref(entered);
+        // states satisfying the left with at least one transition into the constraint
+        int hasSuccessor = bdd.ref(bdd.and(left, model.predecessors(Collections.emptySet(), constraintStates)));
+        int constraintNext = bdd.ref(model.toNext(constraintStates));
+        int seedsNext = bdd.ref(model.toNext(seeds));
+        int rightActions = bdd.ref(model.getActions(until.getRightActions()));
+        int leftActions = bdd.ref(model.getActions(until.getLeftActions()));
+        int seedsByRight = bdd.ref(bdd.and(seedsNext, rightActions));
+        int z = bdd.ref(seeds);
+        while (true) {
+            int zNext = bdd.ref(model.toNext(z));
+            int allowed = bdd.ref(bdd.or(seedsByRight, bdd.and(zNext, leftActions)));
+            int disallowed = bdd.ref(bdd.diff(constraintNext, allowed));
+            int bad = bdd.ref(bdd.relProd(model.getTransitions(), disallowed, model.getActionAndNextCube()));
+            int next = bdd.ref(bdd.or(seeds, bdd.diff(hasSuccessor, bad)));
+            bdd.deref(bad);
+            bdd.deref(disallowed);
+            bdd.deref(allowed);
+            bdd.deref(zNext);
+            bdd.deref(z);
+            if (next == z)
+                break;
+            z = next;
+        }
+        bdd.deref(seedsByRight);
+        bdd.deref(leftActions);
+        bdd.deref(rightActions);
+        bdd.deref(seedsNext);
+        bdd.deref(constraintNext);
+        bdd.deref(hasSuccessor);
+        bdd.deref(seeds);
+        bdd.deref(z);
+        return z;
+    }
+
+    private int markForThereExistsAlways(Always always) {
+        int psi = mark(always.stateFormula);
+        int ok = bdd.ref(getUnconstrainedStates());
+        int candidates = bdd.ref(bdd.and(psi, ok));
+        int z = bdd.ref(candidates);
+        while (true) {
+            int next = bdd.ref(bdd.and(candidates, model.predecessors(always.getActions(), z)));
+            bdd.deref(z);
+            if (next == z)
+                break;
+            z = next;
+        }
+        bdd.deref(candidates);
+        bdd.deref(ok);
+        bdd.deref(z);
+        return z;
+    }
+}
@@ -0,0 +1,318 @@
+package modelChecker.symbolic;
+
+import modelChecker.asctl.ModelWrapper;
+
+import java.util.*;
+
+/**
+ * A model encoded as binary decision diagrams.
+ *
+ * A state is encoded by the binary representation of its integer id over the current-state variables x, most
+ * significant bit first, and the transition relation T(x, a, y) relates a current state x to a next state y over
+ * one variable per action, true when the action is in the transition's action set. The action variables come first
+ * in the order, then the current- and next-state bits are interleaved (x0 y0 x1 y1 ...), which keeps the relation
+ * small and makes renaming between x and y order-preserving.
+ */
+public class SymbolicModel {
+
+    private final ModelWrapper model;
+
+    private final BDDManager bdd;
+
+    private final int stateBits;
+
+    private final Map<String, Integer> actionVars;
+
+    private final List<String> actionNames;
+
+    private final int[] currentVars;
+
+    private final int[] nextVars;
+
+    private final int[] toNext;
+
+    private final int[] toCurrent;
+
+    private final int currentCube;
+
+    private final int nextCube;
+
+    private final int actionCube;
+
+    private final int actionAndNextCube;
+
+    private final int allStates;
+
+    private final int initialStates;
+
+    private final int transitions;
+
+    /**
+     * The transition relation with the actions quantified away, restricted to each action set used by an operator
+     */
+    private final Map<Set<String>, Integer> edges = new HashMap<>();
+
+    private final Map<String, Integer> labels = new HashMap<>();
+
+    public SymbolicModel(ModelWrapper model) {
+        this.model = model;
+        stateBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(model.getStateCount() - 1, 0)));
+        actionVars = new HashMap<>();
+        actionNames = new ArrayList<>();
+        for (int t = 0; t < model.getTransitionCount(); t++) {
+            for (String action : model.getActions(t)) {
+                if (!actionVars.containsKey(action)) {
+                    actionVars.put(action, actionNames.size());
+                    actionNames.add(action);
+                }
+            }
+        }
+        int actionCount = actionVars.size();
+        bdd = new BDDManager(actionCount + 2 * stateBits);
+        currentVars = new int[stateBits];
+        nextVars = new int[stateBits];
+        toNext = new int[bdd.getVarCount()];
+        toCurrent = new int[bdd.getVarCount()];
+        for (int v = 0; v < bdd.getVarCount(); v++)
+            toNext[v] = toCurrent[v] = v;
+        for (int bit = 0; bit < stateBits; bit++) {
+            currentVars[bit] = actionCount + 2 * bit;
+            nextVars[bit] = actionCount + 2 * bit + 1;
+            toNext[currentVars[bit]] = nextVars[bit];
+            toCurrent[nextVars[bit]] = currentVars[bit];
+        }
+        int[] actionVarIndices = new int[actionCount];
+        for (int i = 0; i < actionCount; i++)
+            actionVarIndices[i] = i;
+        currentCube = bdd.ref(bdd.cube(currentVars));
+        nextCube = bdd.ref(bdd.cube(nextVars));
+        actionCube = bdd.ref(bdd.cube(actionVarIndices));
+        int[] actionAndNextVars = Arrays.copyOf(actionVarIndices, actionCount + stateBits);
+        System.arraycopy(nextVars, 0, actionAndNextVars, actionCount, stateBits);
+        actionAndNextCube = bdd.ref(bdd.cube(actionAndNextVars));
+
+        BitSet all = new BitSet(model.getStateCount());
+        all.set(0, model.getStateCount());
+        allStates = bdd.ref(encode(all));
+        BitSet initial = new BitSet(model.getStateCount());
+        for (int s = 0; s < model.getStateCount(); s++)
+            if (model.isInit(s))
+                initial.set(s);
+        initialStates = bdd.ref(encode(initial));
+        transitions = bdd.ref(encodeTransitions());
+    }
+
+    //******** ENCODING ********//
+
+    /**
+     * @param states a set of state ids
+     * @return the set as a BDD over the current-state variables
+     */
+    public int encode(BitSet states) {
+        long[] keys = new long[states.cardinality()];
+        int i = 0;
+        for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1))
+            keys[i++] = s;
+        return build(keys, 0, keys.length, 0, currentVars);
+    }
+
+    /**
+     * The relation is built one action set at a time: the (source, target) pairs sharing an action set are encoded as
+     * a sorted array of interleaved keys, built into a BDD bottom-up, then prefixed with the action set's literals.
+     */
+    private int encodeTransitions() {
+        Map<Set<String>, List<Integer>> byActions = new HashMap<>();
+        for (int t = 0; t < model.getTransitionCount(); t++)
+            byActions.computeIfAbsent(new HashSet<>(Arrays.asList(model.getActions(t))), k -> new ArrayList<>()).add(t);
+        int[] pairVars = new int[2 * stateBits];
+        for (int bit = 0; bit < stateBits; bit++) {
+            pairVars[2 * bit] = currentVars[bit];
+            pairVars[2 * bit + 1] = nextVars[bit];
+        }
+        int relation = bdd.ref(BDDManager.FALSE);
+        for (Map.Entry<Set<String>, List<Integer>> group : byActions.entrySet()) {
+            long[] keys = new long[group.getValue().size()];
+            for (int i = 0; i < keys.length; i++) {
+                int t = group.getValue().get(i);
+                keys[i] = interleave(model.getSource(t), model.getTarget(t));
+            }
+            Arrays.sort(keys);
+            // the action literals lie above the state variables, so they can be added directly with mk
+            int groupRelation = build(keys, 0, keys.length, 0, pairVars);
+            for (int v = actionVars.size() - 1; v >= 0; v--)
+                groupRelation = group.getKey().contains(actionNames.get(v))
+                        ? bdd.mk(v, BDDManager.FALSE, groupRelation)
+                        : bdd.mk(v, groupRelation, BDDManager.FALSE);
+            int updated = bdd.ref(bdd.or(relation, groupRelation));
+            bdd.deref(relation);
+            relation = updated;
+        }
+        bdd.deref(relation);
+        return relation;
+    }
+
+    /**
+     * @return the bits of source and target interleaved, most significant first, source before target
+     */
+    private long interleave(int source, int target) {
+        long key = 0;
+        for (int bit = stateBits - 1; bit >= 0; bit--)
+            key = (key << 2) | (((source >>> bit) & 1L) << 1) | ((target >>> bit) & 1L);
+        return key;
+    }
+
+    /**
+     * Build the BDD of a set of keys, whose bits are tested most significant first by the given variables.
+     * @param keys sorted keys, of which those in [from, to) agree on their first depth bits
+     */
+    private int build(long[] keys, int from, int to, int depth, int[] vars) {
+        if (from >= to)
+            return BDDManager.FALSE;
+        if (depth == vars.length)
+            return BDDManager.TRUE;
+        long mask = 1L << (vars.length - 1 - depth);
+        int split = from;
+        while (split < to && (keys[split] & mask) == 0)
+            split++;
+        int lowChild = build(keys, from, split, depth + 1, vars);
+        int highChild = build(keys, split, to, depth + 1, vars);
+        return bdd.mk(vars[depth], lowChild, highChild);
+    }
+
+    //******** QUERIES ********//
+
+    public BDDManager getBDD() {
+        return bdd;
+    }
+
+    public ModelWrapper getModel() {
+        return model;
+    }
+
+    public int getAllStates() {
+        return allStates;
+    }
+
+    public int getInitialStates() {
+        return initialStates;
+    }
+
+    public int getTransitions() {
+        return transitions;
+    }
+
+    public int getActionCube() {
+        return actionCube;
+    }
+
+    /**
+     * @return the cube of the action and next-state variables, for taking preimages under the full relation
+     */
+    public int getActionAndNextCube() {
+        return actionAndNextCube;
+    }
+
+    /**
+     * @return the set of states labelled with the given atomic proposition
+     */
+    public int getLabel(String label) {
+        Integer known = labels.get(label);
+        if (known != null)
+            return known;
+        BitSet states = new BitSet(model.getStateCount());
+        for (int s = 0; s < model.getStateCount(); s++)
+            if (Arrays.asList(model.getLabels(s)).contains(label))
+                states.set(s);
+        int encoded = bdd.ref(encode(states));
+        labels.put(label, encoded);
+        return encoded;
+    }
+
+    /**
+     * @param actions the set of actions allowed by an operator, where an empty set allows every action
+     * @return the actions as a BDD over the action variables, true where some action in the set is taken
+     */
+    public int getActions(Set<String> actions) {
+        if (actions == null || actions.isEmpty())
+            return BDDManager.TRUE;
+        int result = bdd.ref(BDDManager.FALSE);
+        for (String action : actions) {
+            Integer var = actionVars.get(action);
+            if (var == null)
+                continue;
+            int updated = bdd.ref(bdd.or(result, bdd.var(var)));
+            bdd.deref(result);
+            result = updated;
+        }
+        bdd.deref(result);
+        return result;
+    }
+
+    /**
+     * @param actions the set of actions allowed by an operator, where an empty set allows every action
+     * @return E(x, y), true where some transition with an action from the set leads from x to y
+     */
+    public int getEdges(Set<String> actions) {
+        Set<String> key = actions == null ? Collections.emptySet() : actions;
+        Integer known = edges.get(key);
+        if (known != null)
+            return known;
+        int e = bdd.ref(bdd.relProd(transitions, getActions(key), actionCube));
+        edges.put(key, e);
+        return e;
+    }
+
+    /**
+     * @return the given set of states, moved onto the next-state variables
+     */
+    public int toNext(int states) {
+        return bdd.replace(states, toNext);
+    }
+
+    /**
+     * @return the given set of states, moved from the next-state variables back onto the current-state variables
+     */
+    public int toCurrent(int states) {
+        return bdd.replace(states, toCurrent);
+    }
+
+    /**
+     * @return the states with a transition (with an action in the set) into the given set of states
+     */
+    public int predecessors(Set<String> actions, int states) {
+        bdd.ref(states);
+        int e = getEdges(actions);
+        int next = bdd.ref(toNext(states));
+        bdd.deref(states);
+        int result = bdd.relProd(e, next, nextCube);
+        bdd.deref(next);
+        return result;
+    }
+
+    /**
+     * @return the states reached by a transition (with an action in the set) from the given set of states
+     */
+    public int successors(Set<String> actions, int states) {
+        bdd.ref(states);
+        int e = getEdges(actions);
+        int image = bdd.ref(bdd.relProd(e, states, currentCube));
+        bdd.deref(states);
+        int result = toCurrent(image);
+        bdd.deref(image);
+        return result;
+    }
+
+    /**
+     * @param states a non-empty set of states
+     * @return the id of one state in the set, or -1 if it is empty
+     */
+    public int pickState(int states) {
+        boolean[] values = new boolean[bdd.getVarCount()];
+        if (!bdd.satOne(bdd.and(states, allStates), values))
+            return -1;
+        int id = 0;
+        for (int bit = 0; bit < stateBits; bit++)
+            id = (id << 1) | (values[currentVars[bit]] ? 1 : 0);
+        return id;
+    }
+}
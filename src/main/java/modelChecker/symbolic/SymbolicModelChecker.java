@@ -0,0 +1,55 @@
+package modelChecker.symbolic;
+
+import formula.stateFormula.StateFormula;
+import model.Model;
+import modelChecker.ModelChecker;
+import modelChecker.asctl.Normalizer;
+import modelChecker.asctl.ModelWrapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A model checker which encodes the model as binary decision diagrams and computes each operator by symbolic
+ * fixpoints, so memory use follows the regularity of the state space rather than its size.
+ */
+public class SymbolicModelChecker implements ModelChecker {
+
+    private List<String> counterexamplePath;
+
+    @Override
+    public boolean check(Model model, StateFormula constraint, StateFormula query) {
+        ModelWrapper m = new ModelWrapper(model);
+        StateFormula normalizedQuery = Normalizer.normalize(query);
+        StateFormula normalizedConstraint = Normalizer.normalize(constraint);
+        SymbolicModel symbolicModel = new SymbolicModel(m);
+        SymbolicMarker marker = new SymbolicMarker(symbolicModel);
+        if (!marker.isModelSatisfied(normalizedQuery, normalizedConstraint)) {
+            counterexamplePath = makeCounterexample(marker, normalizedQuery);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String[] getTrace() {
+        String[] array = new String[counterexamplePath.size()];
+        return counterexamplePath.toArray(array);
+    }
+
+    //******** COUNTEREXAMPLES ********//
+
+    /**
+     * The symbolic engine builds no path: its counterexample is only an initial state on which the normalized formula
+     * does not hold.
+     */
+    private List<String> makeCounterexample(SymbolicMarker marker, StateFormula f) {
+        SymbolicModel model = marker.getModel();
+        BDDManager bdd = model.getBDD();
+        List<String> path = new ArrayList<>();
+        int start = model.pickState(bdd.diff(model.getInitialStates(), marker.getSatisfying(f)));
+        if (start >= 0)
+            path.add(model.getModel().getStateName(start));
+        return path;
+    }
+}
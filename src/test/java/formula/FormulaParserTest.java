@@ -0,0 +1,69 @@
+package formula;
+
+import formula.pathFormula.Until;
+import formula.stateFormula.*;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class FormulaParserTest {
+
+    @Test
+    public void parsesRawFormulae() throws IOException {
+        assertSame(FormulaFactory.atomic("p1"), FormulaParser.parseRawFormulaString("p1"));
+        assertSame(FormulaFactory.bool(true), FormulaParser.parseRawFormulaString(" TRUE"));
+        assertSame(FormulaFactory.and(FormulaFactory.atomic("a"), FormulaFactory.or(FormulaFactory.atomic("b"), FormulaFactory.atomic("c"))),
+                FormulaParser.parseRawFormulaString("(a &&\n(b ||\tc))"));
+        StateFormula until = FormulaParser.parseRawFormulaString("A( !p U q )");
+        assertTrue(until instanceof ForAll && ((ForAll) until).pathFormula instanceof Until);
+        assertEquals(FormulaParser.parseRawFormulaString("AG !(crit1 && crit2)"),
+                FormulaParser.parseRawFormulaString("  AG!(crit1&&crit2)  "));
+    }
+
+    @Test
+    public void parsesActionSetsFromJson() throws IOException {
+        StateFormula f = new FormulaParser("src/test/resources/branch/ctl1.json").parse();
+        Until until = (Until) ((ForAll) f).pathFormula;
+        assertEquals("a", until.getLeftActionsIdentifier());
+        assertTrue(until.getLeftActions().contains("a"));
+        assertTrue(until.getRightActions().contains("b"));
+    }
+
+    @Test
+    public void reportsPositionOfUnexpectedCharacter() {
+        assertError("Q", 1);
+        assertError("(p & q)", 6);
+        assertError("E(p W q)", 5);
+        assertError("AG !(p && Q)", 11);
+    }
+
+    @Test
+    public void reportsPositionPastEnd() {
+        assertError("AF", 3);
+        assertError("(p && q", 8);
+        assertError("", 1);
+    }
+
+    @Test
+    public void readsRangeOfSequence() throws IOException {
+        Reader reader = new Reader(new StringBuilder("xx(ab1 U"), 2, 8);
+        assertEquals('(', reader.nextChar());
+        assertEquals("ab1", reader.readIdentifier(true));
+        assertNull(reader.readIdentifier(false));
+        assertEquals('U', reader.nextChar());
+        assertEquals(6, reader.getPosition());
+        assertFalse(reader.ready());
+        assertEquals(Reader.EOF, reader.rawRead());
+    }
+
+    private static void assertError(String formula, int position) {
+        try {
+            FormulaParser.parseRawFormulaString(formula);
+            fail("parsed " + formula);
+        } catch (IOException e) {
+            assertTrue(formula + ": " + e.getMessage(), e.getMessage().startsWith("Error at character position " + position + ":"));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package model.generator;
+
+import formula.FormulaParser;
+import formula.stateFormula.BoolProp;
+import model.Model;
+import modelChecker.asctl.ModelLoader;
+import modelChecker.asctl.ModelMarker;
+import modelChecker.asctl.ModelWrapper;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ModelGeneratorTest {
+
+    @Test
+    public void generatesStructuralFamilies() {
+        ModelWrapper chain = new ModelWrapper(ModelGenerator.chain(10).toModel());
+        assertEquals(10, chain.getStateCount());
+        assertEquals(10, chain.getTransitionCount());
+        assertTrue(chain.isInit(0));
+        assertEquals(9, chain.getTarget(chain.getOutgoing(9, 0)));
+
+        ModelWrapper ring = new ModelWrapper(ModelGenerator.ring(10).toModel());
+        assertEquals(0, ring.getTarget(ring.getOutgoing(9, 0)));
+
+        // 3 x 4: 3 * 3 steps along rows, 2 * 4 down columns and the loop on the last state
+        ModelWrapper grid = new ModelWrapper(ModelGenerator.grid(3, 4).toModel());
+        assertEquals(12, grid.getStateCount());
+        assertEquals(18, grid.getTransitionCount());
+
+        ModelWrapper random = new ModelWrapper(ModelGenerator.random(100, 2, 4).toModel());
+        for (int s = 0; s < random.getStateCount(); s++)
+            assertTrue(random.getOutDegree(s) >= 2 && random.getOutDegree(s) <= 4);
+    }
+
+    @Test
+    public void usesAlphabetsAndSeed() throws IOException {
+        ModelGenerator generator = ModelGenerator.random(50, 1, 3).labels("x", "y", "z").actions("go").seed(3);
+        assertEquals(json(generator), json(generator));
+        assertNotEquals(json(generator), json(ModelGenerator.random(50, 1, 3).labels("x", "y", "z").actions("go").seed(4)));
+        ModelWrapper model = new ModelWrapper(generator.toModel());
+        for (int s = 0; s < model.getStateCount(); s++)
+            for (String label : model.getLabels(s))
+                assertTrue(Arrays.asList("x", "y", "z").contains(label));
+        for (int t = 0; t < model.getTransitionCount(); t++)
+            assertArrayEquals(new String[]{"go"}, model.getActions(t));
+
+        ModelWrapper unlabelled = new ModelWrapper(ModelGenerator.chain(5).labelProbability(0).actions().toModel());
+        for (int s = 0; s < unlabelled.getStateCount(); s++)
+            assertEquals(0, unlabelled.getLabels(s).length);
+        assertEquals(0, unlabelled.getActions(0).length);
+    }
+
+    @Test
+    public void writesModelAsLoaded() throws IOException {
+        for (ModelGenerator generator : Arrays.asList(ModelGenerator.grid(5, 7), ModelGenerator.mutex(3),
+                ModelGenerator.diningPhilosophers(3))) {
+            ModelWrapper built = new ModelWrapper(generator.toModel());
+            ModelWrapper loaded = ModelLoader.load(new StringReader(json(generator)));
+            assertEquals(built.getStateCount(), loaded.getStateCount());
+            assertEquals(built.getTransitionCount(), loaded.getTransitionCount());
+            for (int s = 0; s < built.getStateCount(); s++) {
+                assertEquals(built.getStateName(s), loaded.getStateName(s));
+                assertEquals(built.isInit(s), loaded.isInit(s));
+                assertArrayEquals(built.getLabels(s), loaded.getLabels(s));
+            }
+            for (int t = 0; t < built.getTransitionCount(); t++) {
+                assertEquals(built.getSource(t), loaded.getSource(t));
+                assertEquals(built.getTarget(t), loaded.getTarget(t));
+                assertArrayEquals(built.getActions(t), loaded.getActions(t));
+            }
+        }
+    }
+
+    @Test
+    public void generatesMutualExclusion() throws IOException {
+        // either no process is critical, or one of them is: 2^n + n * 2^(n - 1) states
+        Model model = ModelGenerator.mutex(4).labels().toModel();
+        assertEquals(16 + 4 * 8, model.getStates().length);
+        ModelMarker marker = new ModelMarker(new ModelWrapper(model));
+        assertTrue(marker.isModelSatisfied(FormulaParser.parseRawFormulaString("AG !(crit0 && crit1)"), new BoolProp(true)));
+        assertTrue(marker.isModelSatisfied(FormulaParser.parseRawFormulaString("AG (!wait2 || EF crit2)"), new BoolProp(true)));
+    }
+
+    @Test
+    public void generatesDiningPhilosophers() throws IOException {
+        ModelWrapper model = new ModelWrapper(ModelGenerator.diningPhilosophers(5).labels().toModel());
+        int deadlock = model.getStateId("hhhhh");
+        assertTrue(deadlock >= 0);
+        assertEquals(0, model.getOutDegree(deadlock));
+        ModelMarker marker = new ModelMarker(model);
+        assertTrue(marker.isModelSatisfied(FormulaParser.parseRawFormulaString("AG !(eating0 && eating1)"), new BoolProp(true)));
+        assertTrue(marker.isModelSatisfied(FormulaParser.parseRawFormulaString("EF (eating0 && eating2)"), new BoolProp(true)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyModel() {
+        ModelGenerator.chain(0);
+    }
+
+    private static String json(ModelGenerator generator) throws IOException {
+        StringWriter out = new StringWriter();
+        generator.write(out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,20 @@
+package modelChecker;
+
+import modelChecker.asctl.ASCTLModelChecker;
+import modelChecker.asctl.SubformulaCache;
+
+/**
+ * Runs the model checker tests with a cache shared by every test, so that later tests reuse the satisfaction sets of
+ * earlier ones.
+ */
+public class CachedModelCheckerTest extends ModelCheckerTest {
+
+    private static final SubformulaCache CACHE = new SubformulaCache();
+
+    @Override
+    protected ModelChecker createChecker() {
+        ASCTLModelChecker checker = new ASCTLModelChecker();
+        checker.setCache(CACHE);
+        return checker;
+    }
+}
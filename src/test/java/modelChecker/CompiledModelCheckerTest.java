@@ -0,0 +1,19 @@
+package modelChecker;
+
+import modelChecker.asctl.ASCTLModelChecker;
+import modelChecker.asctl.ProgramCache;
+
+/**
+ * Runs the model checker test suite with every query compiled into a program, shared by the checkers of all tests.
+ */
+public class CompiledModelCheckerTest extends ModelCheckerTest {
+
+    private static final ProgramCache PROGRAMS = new ProgramCache();
+
+    @Override
+    protected ModelChecker createChecker() {
+        ASCTLModelChecker checker = new ASCTLModelChecker();
+        checker.setProgramCache(PROGRAMS);
+        return checker;
+    }
+}
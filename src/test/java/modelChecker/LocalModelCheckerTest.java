@@ -0,0 +1,16 @@
+package modelChecker;
+
+import modelChecker.asctl.ASCTLModelChecker;
+
+/**
+ * Runs the model checker test suite deciding each query from the initial states only.
+ */
+public class LocalModelCheckerTest extends ModelCheckerTest {
+
+    @Override
+    protected ModelChecker createChecker() {
+        ASCTLModelChecker checker = new ASCTLModelChecker();
+        checker.setLocal(true);
+        return checker;
+    }
+}
@@ -18,9 +18,16 @@ public class ModelCheckerTest {
 
     private ModelChecker checker;
 
+    /**
+     * @return the model checker implementation under test
+     */
+    protected ModelChecker createChecker() {
+        return new ASCTLModelChecker();
+    }
+
     @Before
     public void setup() {
-        checker = new ASCTLModelChecker();
+        checker = createChecker();
     }
 
     @Test
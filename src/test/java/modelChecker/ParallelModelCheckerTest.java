@@ -0,0 +1,18 @@
+package modelChecker;
+
+import modelChecker.asctl.ASCTLModelChecker;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs the model checker test suite with subformulae, and the states of every model, marked in parallel.
+ */
+public class ParallelModelCheckerTest extends ModelCheckerTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @Override
+    protected ModelChecker createChecker() {
+        return new ASCTLModelChecker(POOL, 0);
+    }
+}
@@ -0,0 +1,14 @@
+package modelChecker;
+
+import modelChecker.symbolic.SymbolicModelChecker;
+
+/**
+ * Runs the model checker test suite against the BDD-based implementation.
+ */
+public class SymbolicModelCheckerTest extends ModelCheckerTest {
+
+    @Override
+    protected ModelChecker createChecker() {
+        return new SymbolicModelChecker();
+    }
+}
@@ -0,0 +1,86 @@
+package modelChecker.asctl;
+
+import formula.FormulaParser;
+import formula.stateFormula.BoolProp;
+import formula.stateFormula.StateFormula;
+import model.generator.ModelGenerator;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class ASCTLModelCheckerTest {
+
+    private static final String[] QUERIES = {
+            "AG !(crit1 && crit2)", "AG (!wait1 || AF crit1)", "EG !crit1", "AG !crit1", "EF (crit1 && crit2)"
+    };
+
+    @Test
+    public void resultMatchesCheck() throws IOException {
+        ModelWrapper model = ModelLoader.load("src/test/resources/customComplex/complexModel.json");
+        ASCTLModelChecker checker = new ASCTLModelChecker();
+        for (String query : QUERIES) {
+            StateFormula formula = FormulaParser.parseRawFormulaString(query);
+            CheckResult result = checker.evaluate(model, new BoolProp(true), formula);
+            assertEquals(query, checker.check(model, new BoolProp(true), formula), result.holds());
+            assertSame(formula, result.getQuery());
+            if (result.holds())
+                assertTrue(result.getTrace().isEmpty());
+            else
+                assertEquals(Arrays.asList(checker.getTrace()), result.getTrace());
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void traceIsImmutable() throws IOException {
+        ModelWrapper model = ModelLoader.load("src/test/resources/customComplex/complexModel.json");
+        CheckResult result = new ASCTLModelChecker().evaluate(model, new BoolProp(true),
+                FormulaParser.parseRawFormulaString("AG !crit1"));
+        assertFalse(result.holds());
+        result.getTrace().clear();
+    }
+
+    @Test
+    public void sharedCheckerIsThreadSafe() throws Exception {
+        ModelWrapper model = new ModelWrapper(ModelGenerator.mutex(6).toModel());
+        ASCTLModelChecker checker = new ASCTLModelChecker();
+        checker.setCache(new SubformulaCache());
+        String[] queries = {"AG !(crit0 && crit1)", "AG !crit3", "EF crit5", "AG (!wait2 || AF crit2)", "EG !crit0"};
+        List<CheckResult> expected = new ArrayList<>();
+        for (String query : queries)
+            expected.add(new ASCTLModelChecker().evaluate(model, new BoolProp(true), FormulaParser.parseRawFormulaString(query)));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<CheckResult>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                StateFormula query = FormulaParser.parseRawFormulaString(queries[i % queries.length]);
+                futures.add(executor.submit(() -> checker.evaluate(model, new BoolProp(true), query)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                CheckResult result = futures.get(i).get();
+                assertEquals(expected.get(i % queries.length).holds(), result.holds());
+                assertEquals(expected.get(i % queries.length).getTrace(), result.getTrace());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void fansOutAsynchronously() throws Exception {
+        StateFormula query = FormulaParser.parseRawFormulaString("AG !(crit0 && crit1)");
+        ASCTLModelChecker checker = new ASCTLModelChecker();
+        List<CompletableFuture<CheckResult>> futures = new ArrayList<>();
+        for (int processes = 2; processes <= 6; processes++)
+            futures.add(checker.evaluateAsync(new ModelWrapper(ModelGenerator.mutex(processes).toModel()),
+                    new BoolProp(true), query));
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(1, TimeUnit.MINUTES);
+        for (CompletableFuture<CheckResult> future : futures)
+            assertTrue(future.get().holds());
+    }
+}
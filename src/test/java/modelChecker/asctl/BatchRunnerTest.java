@@ -0,0 +1,113 @@
+package modelChecker.asctl;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import formula.FormulaParser;
+import formula.stateFormula.BoolProp;
+import formula.stateFormula.StateFormula;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class BatchRunnerTest {
+
+    @Test
+    public void scansDirectoryLayout() throws IOException {
+        List<BatchRunner.Check> checks = BatchRunner.scanDirectory(Paths.get("src/test/resources/branch"));
+        // 8 queries, each without a constraint and under each of 2 constraints
+        assertEquals(24, checks.size());
+        for (BatchRunner.Check check : checks)
+            assertEquals("model1.json", check.getModel().getFileName().toString());
+        assertTrue(BatchRunner.scanDirectory(Paths.get("src/test/resources/other-examples")).isEmpty());
+    }
+
+    @Test
+    public void checksAsChecker() throws Exception {
+        List<BatchRunner.Check> checks = new ArrayList<>();
+        checks.addAll(BatchRunner.scanDirectory(Paths.get("src/test/resources/branch")));
+        checks.addAll(BatchRunner.scanDirectory(Paths.get("src/test/resources/colour")));
+        StringWriter out = new StringWriter();
+        BatchRunner runner = new BatchRunner(new ASCTLModelChecker(), 4, out);
+        runner.run(checks);
+
+        Map<String, JsonObject> lines = lines(out.toString());
+        assertEquals(checks.size(), lines.size());
+        assertEquals(0, runner.getErrorCount());
+        assertEquals(checks.size(), runner.getHoldingCount() + runner.getFailingCount());
+        for (BatchRunner.Check check : checks) {
+            JsonObject line = lines.get(key(check.getModel(), check.getConstraint(), check.getQuery()));
+            ASCTLModelChecker checker = new ASCTLModelChecker();
+            StateFormula constraint = check.getConstraint() == null
+                    ? new BoolProp(true) : new FormulaParser(check.getConstraint().toString()).parse();
+            boolean holds = checker.check(ModelLoader.load(check.getModel().toString()), constraint,
+                    new FormulaParser(check.getQuery().toString()).parse());
+            assertEquals(check.getQuery().toString(), holds, line.get("holds").getAsBoolean());
+            assertEquals(!holds, line.has("trace"));
+            assertTrue(line.get("nanos").getAsLong() > 0);
+        }
+    }
+
+    @Test
+    public void readsManifestAndReportsErrors() throws Exception {
+        Path manifest = Files.createTempFile("batch", ".txt");
+        try {
+            Path resources = Paths.get("src/test/resources/branch").toAbsolutePath();
+            Files.write(manifest, Arrays.asList(
+                    "# model query constraint",
+                    resources.resolve("model1.json") + " " + resources.resolve("ctl1.json") + " " + resources.resolve("constraint1.json"),
+                    "",
+                    resources.resolve("model1.json") + " " + resources.resolve("ctl2.json"),
+                    resources.resolve("missing.json") + " " + resources.resolve("ctl2.json"),
+                    resources.resolve("model1.json") + " " + resources.resolve("missing.json")),
+                    StandardCharsets.UTF_8);
+            List<BatchRunner.Check> checks = BatchRunner.readManifest(manifest);
+            assertEquals(4, checks.size());
+            assertNull(checks.get(1).getConstraint());
+
+            StringWriter out = new StringWriter();
+            BatchRunner runner = new BatchRunner(new ASCTLModelChecker(), 2, out);
+            runner.run(checks);
+            Map<String, JsonObject> lines = lines(out.toString());
+            assertEquals(4, lines.size());
+            assertEquals(2, runner.getErrorCount());
+            assertTrue(lines.get(key(resources.resolve("missing.json"), null, resources.resolve("ctl2.json"))).has("error"));
+            assertTrue(lines.get(key(resources.resolve("model1.json"), null, resources.resolve("missing.json"))).has("error"));
+            assertTrue(lines.get(key(resources.resolve("model1.json"), null, resources.resolve("ctl2.json"))).has("holds"));
+        } finally {
+            Files.delete(manifest);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsMalformedManifest() throws IOException {
+        Path manifest = Files.createTempFile("batch", ".txt");
+        try {
+            Files.write(manifest, Collections.singletonList("model.json"), StandardCharsets.UTF_8);
+            BatchRunner.readManifest(manifest);
+        } finally {
+            Files.delete(manifest);
+        }
+    }
+
+    private static Map<String, JsonObject> lines(String output) {
+        Map<String, JsonObject> lines = new HashMap<>();
+        for (String line : output.split("\n")) {
+            JsonObject json = new JsonParser().parse(line).getAsJsonObject();
+            lines.put(json.get("model").getAsString() + " " + (json.has("constraint") ? json.get("constraint").getAsString() : null)
+                    + " " + json.get("query").getAsString(), json);
+        }
+        return lines;
+    }
+
+    private static String key(Path model, Path constraint, Path query) {
+        return model + " " + constraint + " " + query;
+    }
+}
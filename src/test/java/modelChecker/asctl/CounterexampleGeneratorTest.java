@@ -0,0 +1,132 @@
+package modelChecker.asctl;
+
+import formula.FormulaParser;
+import formula.pathFormula.Until;
+import formula.stateFormula.AtomicProp;
+import formula.stateFormula.BoolProp;
+import formula.stateFormula.ForAll;
+import formula.stateFormula.StateFormula;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class CounterexampleGeneratorTest {
+
+    /**
+     * @param transitions pairs of state names, each pair a transition
+     * @return a model of the states s0 .. s(count - 1), with s0 initial and the given states labelled "bad"
+     */
+    private static ModelWrapper model(int count, int[] bad, String... transitions) throws IOException {
+        StringBuilder json = new StringBuilder("{\"states\": [");
+        for (int s = 0; s < count; s++) {
+            boolean isBad = false;
+            for (int b : bad)
+                isBad |= b == s;
+            json.append(s > 0 ? "," : "").append("{\"init\": ").append(s == 0).append(", \"name\": \"s").append(s)
+                    .append("\", \"label\": [").append(isBad ? "\"bad\"" : "").append("]}");
+        }
+        json.append("], \"transitions\": [");
+        for (int i = 0; i < transitions.length; i += 2)
+            json.append(i > 0 ? "," : "").append("{\"source\": \"").append(transitions[i]).append("\", \"target\": \"")
+                    .append(transitions[i + 1]).append("\", \"actions\": [\"a\"]}");
+        return ModelLoader.load(new StringReader(json.append("]}").toString()));
+    }
+
+    /**
+     * @param labels the labels of the states s0 .. s(labels.length - 1), with s0 initial
+     * @param transitions triples of a source, an action and a target, each triple a transition
+     */
+    private static ModelWrapper actionModel(String[][] labels, String... transitions) throws IOException {
+        StringBuilder json = new StringBuilder("{\"states\": [");
+        for (int s = 0; s < labels.length; s++) {
+            json.append(s > 0 ? "," : "").append("{\"init\": ").append(s == 0).append(", \"name\": \"s").append(s)
+                    .append("\", \"label\": [");
+            for (int i = 0; i < labels[s].length; i++)
+                json.append(i > 0 ? "," : "").append('"').append(labels[s][i]).append('"');
+            json.append("]}");
+        }
+        json.append("], \"transitions\": [");
+        for (int i = 0; i < transitions.length; i += 3)
+            json.append(i > 0 ? "," : "").append("{\"source\": \"").append(transitions[i]).append("\", \"target\": \"")
+                    .append(transitions[i + 2]).append("\", \"actions\": [\"").append(transitions[i + 1]).append("\"]}");
+        return ModelLoader.load(new StringReader(json.append("]}").toString()));
+    }
+
+    private static String[] trace(ModelWrapper model, String query) throws IOException {
+        return trace(model, FormulaParser.parseRawFormulaString(query));
+    }
+
+    private static String[] trace(ModelWrapper model, StateFormula query) {
+        ASCTLModelChecker checker = new ASCTLModelChecker();
+        assertFalse(checker.check(model, new BoolProp(true), query));
+        return checker.getTrace();
+    }
+
+    private static StateFormula forAllUntil(String leftAction, String rightAction) {
+        return new ForAll(new Until(new AtomicProp("p"), new AtomicProp("q"),
+                leftAction, Collections.singleton(leftAction), rightAction, Collections.singleton(rightAction)));
+    }
+
+    @Test
+    public void findsShortestPathToViolation() throws IOException {
+        ModelWrapper model = model(5, new int[]{4},
+                "s0", "s1", "s1", "s0", "s1", "s2", "s2", "s3", "s3", "s4", "s0", "s3", "s4", "s4");
+        assertArrayEquals(new String[]{"s0", "s3", "s4"}, trace(model, "AG !bad"));
+    }
+
+    @Test
+    public void findsLassoAvoidingGoal() throws IOException {
+        // s0 can loop through s1 forever without reaching the goal
+        ModelWrapper model = model(4, new int[]{3},
+                "s0", "s1", "s1", "s0", "s1", "s2", "s2", "s3", "s3", "s3");
+        assertArrayEquals(new String[]{"s0", "s1", "s0"}, trace(model, "AF bad"));
+    }
+
+    @Test
+    public void findsLassoWitnessingAlways() throws IOException {
+        ModelWrapper model = model(4, new int[]{3},
+                "s0", "s1", "s1", "s2", "s2", "s1", "s0", "s3", "s3", "s3");
+        assertArrayEquals(new String[]{"s0", "s1", "s2", "s1"}, trace(model, "!EG !bad"));
+    }
+
+    @Test
+    public void searchesLongPathsIteratively() throws IOException {
+        int length = 100000;
+        String[] transitions = new String[2 * length];
+        for (int s = 0; s < length; s++) {
+            transitions[2 * s] = "s" + s;
+            transitions[2 * s + 1] = "s" + ((s + 1) % length);
+        }
+        String[] trace = trace(model(length, new int[]{length - 1}, transitions), "AG !bad");
+        assertEquals(length, trace.length);
+        assertEquals("s" + (length - 1), trace[length - 1]);
+    }
+
+    @Test
+    public void endsForAllUntilWithStepOutsideActions() throws IOException {
+        // the step from s0 into s2 is neither an a-step nor a b-step, though s2 satisfies q
+        ModelWrapper model = actionModel(new String[][]{{"p"}, {"q"}, {"q"}},
+                "s0", "b", "s1", "s0", "c", "s2", "s2", "b", "s2");
+        assertArrayEquals(new String[]{"s0", "s2"}, trace(model, forAllUntil("a", "b")));
+    }
+
+    @Test
+    public void endsForAllUntilWithRightStepIntoLeftState() throws IOException {
+        // s3 satisfies A(p aUb q), but the b-step from s0 into it must reach q at once
+        ModelWrapper model = actionModel(new String[][]{{"p"}, {"p"}, {"q"}, {"p"}},
+                "s0", "a", "s1", "s1", "b", "s2", "s0", "b", "s3", "s3", "b", "s2");
+        assertArrayEquals(new String[]{"s0", "s3"}, trace(model, forAllUntil("a", "b")));
+    }
+
+    @Test
+    public void followsLeftStepsInForAllUntil() throws IOException {
+        // b-steps from s0 and s1 reach q, but the a-steps go on through s1 to s2 and loop there
+        ModelWrapper model = actionModel(new String[][]{{"p"}, {"p"}, {"p"}, {"q"}},
+                "s0", "b", "s3", "s0", "a", "s1", "s1", "b", "s3", "s1", "a", "s2", "s2", "a", "s2");
+        assertArrayEquals(new String[]{"s0", "s1", "s2", "s2"}, trace(model, forAllUntil("a", "b")));
+    }
+}
@@ -0,0 +1,125 @@
+package modelChecker.asctl;
+
+import formula.FormulaFactory;
+import formula.FormulaParser;
+import formula.stateFormula.AtomicProp;
+import formula.stateFormula.BoolProp;
+import formula.stateFormula.StateFormula;
+import model.generator.ModelGenerator;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class FormulaProgramTest {
+
+    private static final String[][] CASES = {
+            {"src/test/resources/branch/model1.json", "src/test/resources/branch/ctl1.json", "src/test/resources/branch/constraint1.json"},
+            {"src/test/resources/branch/model1.json", "src/test/resources/branch/ctl2.json", "src/test/resources/branch/constraint2.json"},
+            {"src/test/resources/branch/model1.json", "src/test/resources/branch/ctl3.json", null},
+            {"src/test/resources/branch/model1.json", "src/test/resources/branch/ctl4.json", null},
+            {"src/test/resources/branch/model1.json", "src/test/resources/branch/ctl7.json", "src/test/resources/branch/constraint1.json"},
+            {"src/test/resources/colour/model1.json", "src/test/resources/colour/ctl1.json", null},
+            {"src/test/resources/colour/model1.json", "src/test/resources/colour/ctl2.json", null},
+            {"src/test/resources/customComplex/complexModel.json", "AG !(crit1 && crit2)", null},
+            {"src/test/resources/customComplex/complexModel.json", "AG (!wait1 || AF crit1)", "!crit2"},
+            {"src/test/resources/customComplex/complexModel.json", "EG !crit1", "AF crit1"}
+    };
+
+    private static final Set<String> A = Collections.singleton("a");
+
+    private static final Set<String> B = Collections.singleton("b");
+
+    @Test
+    public void marksAsModelMarker() throws IOException {
+        for (String[] c : CASES) {
+            ModelWrapper model = ModelLoader.load(c[0]);
+            assertSameMarking(c[1], model, formula(c[1]), c[2] == null ? new BoolProp(true) : formula(c[2]));
+        }
+    }
+
+    @Test
+    public void marksActionsAsModelMarkerOnRandomModels() {
+        AtomicProp p = FormulaFactory.atomic("p");
+        AtomicProp q = FormulaFactory.atomic("q");
+        StateFormula[] queries = {
+                FormulaFactory.thereExists(FormulaFactory.next(q, "a", A)),
+                FormulaFactory.forAll(FormulaFactory.until(p, q, "a", A, "b", B)),
+                FormulaFactory.not(FormulaFactory.thereExists(FormulaFactory.always(p, "b", B))),
+                FormulaFactory.and(FormulaFactory.thereExists(FormulaFactory.until(p, q, "a", A, "b", B)),
+                        FormulaFactory.thereExists(FormulaFactory.next(FormulaFactory.or(p, q), "b", B)))
+        };
+        StateFormula[] constraints = {FormulaFactory.bool(true), p, FormulaFactory.thereExists(FormulaFactory.next(q, "a", A))};
+        for (int seed = 0; seed < 10; seed++) {
+            ModelWrapper model = new ModelWrapper(ModelGenerator.random(80, 0, 3).actions("a", "b").seed(seed).toModel());
+            for (StateFormula query : queries)
+                for (StateFormula constraint : constraints)
+                    assertSameMarking("seed " + seed + ": " + query + " under " + constraint, model, query, constraint);
+        }
+    }
+
+    @Test
+    public void computesSharedSubformulaeOnce() throws IOException {
+        FormulaProgram program = FormulaProgram.compile(new BoolProp(true),
+                FormulaParser.parseRawFormulaString("(EX p && (EX p || p))"));
+        // CONST true, then p, EX p, OR and AND
+        assertEquals(5, program.length());
+        assertEquals(1, program.getConstraintLength());
+        assertEquals(FormulaProgram.LOAD_LABEL, program.getOpcode(1));
+        assertEquals(FormulaProgram.AND, program.getOpcode(program.getQueryRegister()));
+    }
+
+    @Test
+    public void sharesConstraintWithQuery() throws IOException {
+        StateFormula constraint = FormulaParser.parseRawFormulaString("EX p");
+        FormulaProgram program = FormulaProgram.compile(constraint, constraint);
+        assertEquals(program.getConstraintLength(), program.length());
+        assertEquals(program.getConstraintLength() - 1, program.getQueryRegister());
+    }
+
+    @Test
+    public void runsOnModelsOfAnyAlphabet() throws IOException {
+        ProgramCache programs = new ProgramCache(2);
+        StateFormula query = FormulaParser.parseRawFormulaString("AG !(crit0 && crit1)");
+        for (int processes = 2; processes <= 5; processes++) {
+            ModelWrapper model = new ModelWrapper(ModelGenerator.mutex(processes).toModel());
+            assertTrue(programs.get(new BoolProp(true), FormulaParser.parseRawFormulaString("AG !(crit0 && crit1)"))
+                    .isModelSatisfied(model));
+            assertFalse(programs.get(new BoolProp(true), FormulaParser.parseRawFormulaString("AG !crit1"))
+                    .isModelSatisfied(model));
+        }
+        assertEquals(2, programs.getMissCount());
+        assertEquals(6, programs.getHitCount());
+        programs.get(new BoolProp(true), FormulaParser.parseRawFormulaString("EF crit0"));
+        assertEquals(2, programs.size());
+        assertNotNull(programs.get(new BoolProp(true), query));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeCacheSize() {
+        new ProgramCache(-1);
+    }
+
+    private static StateFormula formula(String source) throws IOException {
+        return source.endsWith(".json") ? new FormulaParser(source).parse() : FormulaParser.parseRawFormulaString(source);
+    }
+
+    /**
+     * Check that each register of the query holds the set the marker marks for its formula.
+     */
+    private static void assertSameMarking(String message, ModelWrapper model, StateFormula query, StateFormula constraint) {
+        ModelMarker marker = new ModelMarker(model);
+        boolean holds = marker.isModelSatisfied(query, constraint);
+        FormulaProgram program = FormulaProgram.compile(constraint, query);
+        BitSet[] registers = program.run(model);
+        assertEquals(message, holds, program.holds(model, registers));
+        for (int i = program.getConstraintLength(); i < program.length(); i++)
+            assertEquals(message + " at " + program.getFormula(i), marker.getSatisfying(program.getFormula(i)), registers[i]);
+        assertEquals(message, marker.getSatisfying(program.getFormula(program.getQueryRegister())),
+                registers[program.getQueryRegister()]);
+    }
+}
@@ -0,0 +1,257 @@
+package modelChecker.asctl;
+
+import formula.FormulaParser;
+import formula.stateFormula.*;
+import model.Model;
+import model.generator.ModelGenerator;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static modelChecker.asctl.MarkerFixtures.*;
+import static org.junit.Assert.*;
+
+public class IncrementalMarkerTest {
+
+    @Test
+    public void marksAsSymbolicChecker() throws IOException {
+        for (String[] c : CASES) {
+            ModelWrapper model = ModelLoader.load(c[0]);
+            StateFormula query = formula(c[1]);
+            StateFormula constraint = constraint(c[2]);
+            assertSameMarking(c[1], new IncrementalMarker(model, constraint, query), constraint, query);
+        }
+    }
+
+    @Test
+    public void updatesAfterRandomDeltas() throws IOException {
+        Random random = new Random(7);
+        for (String[] c : CASES) {
+            StateFormula query = formula(c[1]);
+            StateFormula constraint = constraint(c[2]);
+            IncrementalMarker marker = new IncrementalMarker(ModelLoader.load(c[0]), constraint, query);
+            for (int round = 0; round < 30; round++) {
+                marker.apply(randomDelta(marker.getModel(), random, round));
+                assertSameMarking(c[1] + " after delta " + round, marker, constraint, query);
+                IncrementalMarker fresh = new IncrementalMarker(marker.getModel(), constraint, query);
+                assertEquals(fresh.getSatisfying(), marker.getSatisfying());
+                assertEquals(fresh.getConstraintStates(), marker.getConstraintStates());
+            }
+        }
+    }
+
+    @Test
+    public void updatesAsModelMarkerAfterRandomDeltas() throws IOException {
+        Random random = new Random(11);
+        for (String[] c : CASES) {
+            StateFormula query = formula(c[1]);
+            StateFormula constraint = constraint(c[2]);
+            IncrementalMarker marker = new IncrementalMarker(ModelLoader.load(c[0]), constraint, query);
+            assertSameAsModelMarker(c[1], marker, constraint, query);
+            for (int round = 0; round < 30; round++) {
+                marker.apply(randomDelta(marker.getModel(), random, round));
+                assertSameAsModelMarker(c[1] + " after delta " + round, marker, constraint, query);
+            }
+        }
+        for (int seed = 0; seed < 4; seed++) {
+            ModelWrapper model = randomModel(40, seed);
+            for (StateFormula query : QUERIES) {
+                for (StateFormula constraint : CONSTRAINTS) {
+                    String message = "seed " + seed + ": " + query + " under " + constraint;
+                    IncrementalMarker marker = new IncrementalMarker(model, constraint, query);
+                    assertSameAsModelMarker(message, marker, constraint, query);
+                    for (int round = 0; round < 10; round++) {
+                        marker.apply(randomDelta(marker.getModel(), random, round));
+                        assertSameAsModelMarker(message + " after delta " + round, marker, constraint, query);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adding the self-loop on s0 last makes AF q fail on it, which it held on before.
+     */
+    @Test
+    public void updatesForAllUntilAsModelMarkerOnSelfLoop() throws IOException {
+        ModelWrapper model = selfLoopModel();
+        StateFormula query = FormulaParser.parseRawFormulaString("AF q");
+        IncrementalMarker marker = new IncrementalMarker(model, new BoolProp(true), query);
+        assertFalse(marker.isModelSatisfied());
+        assertSameAsModelMarker("AF q", marker, new BoolProp(true), query);
+        marker.apply(new ModelDelta().removeTransition("s0", "s0", "a"));
+        assertTrue(marker.isModelSatisfied());
+        assertSameAsModelMarker("AF q without the self-loop", marker, new BoolProp(true), query);
+        marker.apply(new ModelDelta().addTransition("s0", "s0", "a"));
+        assertFalse(marker.isModelSatisfied());
+        assertSameAsModelMarker("AF q with the self-loop again", marker, new BoolProp(true), query);
+    }
+
+    @Test
+    public void reusesIdsOfRemovedStates() throws IOException {
+        ModelWrapper model = ModelLoader.load("src/test/resources/branch/model1.json");
+        StateFormula query = FormulaParser.parseRawFormulaString("EF q");
+        IncrementalMarker marker = new IncrementalMarker(model, new BoolProp(true), query);
+        String name = model.getStateName(1);
+        marker.apply(new ModelDelta().removeState(name).addState("extra", false, "q")
+                .addTransition(model.getStateName(0), "extra"));
+        ModelWrapper changed = marker.getModel();
+        assertEquals(model.getStateCount(), changed.getStateCount());
+        assertEquals(-1, changed.getStateId(name));
+        assertEquals(1, changed.getStateId("extra"));
+        assertEquals(1, changed.getInDegree(1));
+        assertEquals(0, changed.getOutDegree(1));
+        assertTrue(marker.getSatisfying().get(1));
+        // the model given is not changed
+        assertEquals(1, model.getStateId(name));
+        assertEquals(-1, model.getStateId("extra"));
+    }
+
+    @Test
+    public void replacesStateInOneDelta() throws IOException {
+        ModelWrapper model = selfLoopModel();
+        StateFormula query = FormulaParser.parseRawFormulaString("AF q");
+        IncrementalMarker marker = new IncrementalMarker(model, new BoolProp(true), query);
+        assertFalse(marker.isModelSatisfied());
+        // s0 without its self-loop, so AF q now holds on it
+        marker.apply(new ModelDelta().removeState("s0").addState("s0", true)
+                .addTransition("s0", "s3", "a").addTransition("s1", "s0", "a"));
+        assertEquals(0, marker.getModel().getStateId("s0"));
+        assertEquals(4, marker.getModel().getStateCount());
+        assertTrue(marker.isModelSatisfied());
+        assertSameAsModelMarker("AF q with s0 replaced", marker, new BoolProp(true), query);
+    }
+
+    @Test
+    public void doesNotGrowWhenStatesAreReplaced() throws IOException {
+        ModelWrapper model = ModelLoader.load("src/test/resources/branch/model1.json");
+        StateFormula query = FormulaParser.parseRawFormulaString("EF q");
+        IncrementalMarker marker = new IncrementalMarker(model, new BoolProp(true), query);
+        String previous = model.getStateName(2);
+        for (int round = 0; round < 50; round++) {
+            String next = "replacement" + round;
+            marker.apply(new ModelDelta().removeState(previous).addState(next, false, "q")
+                    .addTransition(model.getStateName(0), next));
+            previous = next;
+            assertSameAsModelMarker("round " + round, marker, new BoolProp(true), query);
+        }
+        assertEquals(model.getStateCount(), marker.getModel().getStateCount());
+    }
+
+    @Test
+    public void leavesModelUnchangedOnError() throws IOException {
+        ModelWrapper model = ModelLoader.load("src/test/resources/branch/model1.json").edit();
+        int transitions = model.getTransitionCount();
+        String name = model.getStateName(1);
+        try {
+            new ModelDelta().removeState(name).addTransition(name, model.getStateName(0)).applyTo(model, new BitSet());
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(1, model.getStateId(name));
+            assertEquals(transitions, model.getTransitionCount());
+        }
+    }
+
+    /**
+     * Each delta used to rebuild the whole model, so that a thousand of them cost a thousand times as much as
+     * indexing it once.
+     */
+    @Test
+    public void appliesDeltasWithoutRebuildingModel() {
+        int stateCount = 300000;
+        Model chain = ModelGenerator.chain(stateCount).toModel();
+        long start = System.nanoTime();
+        ModelWrapper model = new ModelWrapper(chain);
+        long indexing = System.nanoTime() - start;
+        ModelWrapper edited = model.edit();
+        Random random = new Random(3);
+        start = System.nanoTime();
+        for (int round = 0; round < 1000; round++) {
+            String source = edited.getStateName(random.nextInt(stateCount));
+            String target = edited.getStateName(random.nextInt(stateCount));
+            edited = new ModelDelta().addTransition(source, target, "x").applyTo(edited, new BitSet());
+            edited = new ModelDelta().removeTransition(source, target, "x").applyTo(edited, new BitSet());
+        }
+        long applying = System.nanoTime() - start;
+        assertEquals(model.getTransitionCount(), edited.getTransitionCount());
+        assertTrue("1000 deltas took " + applying / 1000000 + " ms, indexing " + indexing / 1000000 + " ms",
+                applying < indexing);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownTransition() throws IOException {
+        ModelWrapper model = ModelLoader.load("src/test/resources/branch/model1.json");
+        new ModelDelta().removeTransition(model.getStateName(0), model.getStateName(0), "none")
+                .applyTo(model, new BitSet());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsExistingState() throws IOException {
+        ModelWrapper model = ModelLoader.load("src/test/resources/branch/model1.json");
+        new ModelDelta().addState(model.getStateName(0), false).applyTo(model, new BitSet());
+    }
+
+    private static void assertSameMarking(String message, IncrementalMarker marker, StateFormula constraint, StateFormula query) {
+        assertSameAsSymbolicMarker(message, marker.getModel(), query, constraint, marker.isModelSatisfied(),
+                marker.getSatisfying()::get);
+    }
+
+    /**
+     * Check the incremental marking against a full re-mark of the changed model with the default engine.
+     */
+    private static void assertSameAsModelMarker(String message, IncrementalMarker marker, StateFormula constraint,
+                                                StateFormula query) {
+        MarkerFixtures.assertSameAsModelMarker(message, marker.getModel(), query, constraint, marker.isModelSatisfied(),
+                marker.getSatisfying()::get);
+    }
+
+    /**
+     * @return a change of one kind, chosen by the round, to random states of the model
+     */
+    private static ModelDelta randomDelta(ModelWrapper model, Random random, int round) {
+        List<String> live = new ArrayList<>();
+        Set<String> labels = new TreeSet<>();
+        for (int s = 0; s < model.getStateCount(); s++) {
+            if (model.getStateId(model.getStateName(s)) == s)
+                live.add(model.getStateName(s));
+            labels.addAll(Arrays.asList(model.getLabels(s)));
+        }
+        List<String> labelList = new ArrayList<>(labels);
+        ModelDelta delta = new ModelDelta();
+        String state = live.get(random.nextInt(live.size()));
+        switch (round % 5) {
+            case 0:
+                if (model.getTransitionCount() > 0) {
+                    int t = random.nextInt(model.getTransitionCount());
+                    delta.removeTransition(model.getStateName(model.getSource(t)), model.getStateName(model.getTarget(t)),
+                            model.getActions(t));
+                }
+                break;
+            case 1:
+                String[] actions = model.getActionSetCount() > 0
+                        ? model.getActionSet(random.nextInt(model.getActionSetCount())) : new String[0];
+                delta.addTransition(state, live.get(random.nextInt(live.size())), actions);
+                break;
+            case 2:
+                List<String> subset = new ArrayList<>();
+                for (String label : labelList)
+                    if (random.nextBoolean())
+                        subset.add(label);
+                delta.setLabels(state, subset.toArray(new String[subset.size()]));
+                break;
+            case 3:
+                String added = "added" + round;
+                delta.addState(added, random.nextBoolean(), labelList.isEmpty() ? new String[0]
+                        : new String[]{labelList.get(random.nextInt(labelList.size()))});
+                delta.addTransition(state, added, model.getActionSetCount() > 0 ? model.getActionSet(0) : new String[0]);
+                delta.addTransition(added, live.get(random.nextInt(live.size())));
+                break;
+            default:
+                if (live.size() > 2 && !model.isInit(model.getStateId(state)))
+                    delta.removeState(state);
+                break;
+        }
+        return delta;
+    }
+}
@@ -0,0 +1,87 @@
+package modelChecker.asctl;
+
+import formula.FormulaParser;
+import formula.stateFormula.BoolProp;
+import formula.stateFormula.StateFormula;
+import model.generator.ModelGenerator;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static modelChecker.asctl.MarkerFixtures.*;
+import static org.junit.Assert.*;
+
+public class LocalMarkerTest {
+
+    @Test
+    public void decidesAsSymbolicMarker() throws IOException {
+        for (String[] c : CASES) {
+            ModelWrapper model = ModelLoader.load(c[0]);
+            assertSameValues(c[1], model, formula(c[1]), constraint(c[2]));
+        }
+    }
+
+    @Test
+    public void decidesActionsAsSymbolicMarkerOnRandomModels() {
+        for (int seed = 0; seed < 20; seed++) {
+            ModelWrapper model = randomModel(60, seed);
+            for (StateFormula query : QUERIES)
+                for (StateFormula constraint : CONSTRAINTS)
+                    assertSameValues("seed " + seed + ": " + query + " under " + constraint, model, query, constraint);
+        }
+    }
+
+    @Test
+    public void decidesAsModelMarkerOnRandomModels() {
+        for (int seed = 0; seed < 30; seed++) {
+            ModelWrapper model = randomModel(60, seed);
+            for (StateFormula query : QUERIES)
+                for (StateFormula constraint : CONSTRAINTS)
+                    assertSameValuesAsModelMarker("seed " + seed + ": " + query + " under " + constraint, model, query, constraint);
+        }
+    }
+
+    @Test
+    public void checksAsGlobalMarkerOnSelfLoop() throws IOException {
+        ModelWrapper model = selfLoopModel();
+        StateFormula query = FormulaParser.parseRawFormulaString("AF q");
+        assertSameValuesAsModelMarker("AF q", model, query, new BoolProp(true));
+        ASCTLModelChecker checker = new ASCTLModelChecker();
+        assertFalse(checker.evaluate(model, new BoolProp(true), query).holds());
+        checker.setLocal(true);
+        assertFalse(checker.evaluate(model, new BoolProp(true), query).holds());
+    }
+
+    @Test
+    public void stopsOnceInitialStatesAreDecided() throws IOException {
+        ModelWrapper chain = new ModelWrapper(ModelGenerator.chain(100000).toModel());
+        LocalMarker marker = new LocalMarker(chain);
+        marker.isModelSatisfied(FormulaParser.parseRawFormulaString("EX p"), new BoolProp(true));
+        assertEquals(1, marker.getExpandedStateCount());
+
+        // s0 .. s3 are not all labelled p with the default seed, so the search ends long before the end of the chain
+        assertFalse(marker.isModelSatisfied(FormulaParser.parseRawFormulaString("AG p"), new BoolProp(true)));
+        assertTrue(marker.getExpandedStateCount() < 100);
+    }
+
+    @Test
+    public void stopsAtFirstViolationInProtocol() throws IOException {
+        ModelWrapper philosophers = new ModelWrapper(ModelGenerator.diningPhilosophers(10).toModel());
+        LocalMarker marker = new LocalMarker(philosophers);
+        assertFalse(marker.isModelSatisfied(FormulaParser.parseRawFormulaString("AG !eating0"), new BoolProp(true)));
+        assertTrue(marker.getExpandedStateCount() < philosophers.getStateCount() / 10);
+    }
+
+    private static void assertSameValuesAsModelMarker(String message, ModelWrapper model, StateFormula query,
+                                                      StateFormula constraint) {
+        LocalMarker local = new LocalMarker(model);
+        assertSameAsModelMarker(message, model, query, constraint, local.isModelSatisfied(query, constraint),
+                s -> local.isSatisfied(s, query));
+    }
+
+    private static void assertSameValues(String message, ModelWrapper model, StateFormula query, StateFormula constraint) {
+        LocalMarker local = new LocalMarker(model);
+        assertSameAsSymbolicMarker(message, model, query, constraint, local.isModelSatisfied(query, constraint),
+                s -> local.isSatisfied(s, query));
+    }
+}
@@ -0,0 +1,162 @@
+package modelChecker.asctl;
+
+import formula.FormulaParser;
+import formula.pathFormula.Always;
+import formula.pathFormula.Next;
+import formula.pathFormula.Until;
+import formula.stateFormula.*;
+import model.generator.ModelGenerator;
+import modelChecker.symbolic.BDDManager;
+import modelChecker.symbolic.SymbolicMarker;
+import modelChecker.symbolic.SymbolicModel;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The models and queries the markers are tested on, and the checks of a marker against the symbolic marker and the
+ * default engine.
+ */
+final class MarkerFixtures {
+
+    /**
+     * A model, a query and a constraint (null for none), each a file or a formula
+     */
+    static final String[][] CASES = {
+            {"src/test/resources/branch/model1.json", "src/test/resources/branch/ctl1.json", "src/test/resources/branch/constraint1.json"},
+            {"src/test/resources/branch/model1.json", "src/test/resources/branch/ctl2.json", "src/test/resources/branch/constraint2.json"},
+            {"src/test/resources/branch/model1.json", "src/test/resources/branch/ctl3.json", null},
+            {"src/test/resources/branch/model1.json", "src/test/resources/branch/ctl4.json", null},
+            {"src/test/resources/branch/model1.json", "src/test/resources/branch/ctl7.json", "src/test/resources/branch/constraint1.json"},
+            {"src/test/resources/colour/model1.json", "src/test/resources/colour/ctl1.json", null},
+            {"src/test/resources/colour/model1.json", "src/test/resources/colour/ctl2.json", null},
+            {"src/test/resources/customSimple/simpleModel.json", "src/test/resources/customSimple/ctlFail2.json", "src/test/resources/customSimple/simpleConstraint.json"},
+            {"src/test/resources/customSimple/simpleModel.json", "src/test/resources/customSimple/ctlFail2.json", null},
+            {"src/test/resources/customComplex/complexModel.json", "AG !(crit1 && crit2)", null},
+            {"src/test/resources/customComplex/complexModel.json", "AG (!wait1 || AF crit1)", "!crit2"},
+            {"src/test/resources/customComplex/complexModel.json", "EG !crit1", null}
+    };
+
+    static final Set<String> A = Collections.singleton("a");
+
+    static final Set<String> B = Collections.singleton("b");
+
+    static final Set<String> ANY = Collections.emptySet();
+
+    private static final AtomicProp P = new AtomicProp("p");
+
+    private static final AtomicProp Q = new AtomicProp("q");
+
+    /**
+     * Queries over p and q exercising every operator, with and without the action sets a and b
+     */
+    static final StateFormula[] QUERIES = {
+            new ThereExists(new Next(Q, "a", A)),
+            new ThereExists(new Next(P, null, ANY)),
+            new ThereExists(new Until(P, Q, "a", A, "b", B)),
+            new ThereExists(new Until(P, Q, null, ANY, null, ANY)),
+            new ForAll(new Until(P, Q, "a", A, "b", B)),
+            new ForAll(new Until(P, Q, "b", B, "a", A)),
+            new ForAll(new Until(new BoolProp(true), Q, null, ANY, null, ANY)),
+            new ForAll(new Until(new BoolProp(true), Q, "a", A, "b", B)),
+            new ForAll(new Until(P, new ThereExists(new Next(P, "b", B)), "a", A, "b", B)),
+            new ForAll(new Until(P, Q, "a", A, null, ANY)),
+            new ForAll(new Until(P, Q, null, ANY, "b", B)),
+            new ThereExists(new Always(P, "b", B)),
+            new Not(new ThereExists(new Always(new Or(P, Q), null, ANY))),
+            new ThereExists(new Until(new Not(Q), new ForAll(new Until(P, Q, null, ANY, null, ANY)), "a", A, null, ANY)),
+            new Not(new ForAll(new Until(new Not(P), Q, null, ANY, "a", A))),
+            new And(new ForAll(new Until(P, Q, "b", B, "a", A)), new Not(new ThereExists(new Next(Q, "b", B))))
+    };
+
+    /**
+     * Constraints over p and q, the last one temporal (and not a subformula of any of the queries)
+     */
+    static final StateFormula[] CONSTRAINTS = {
+            new BoolProp(true), P, new Not(Q), new ThereExists(new Until(new BoolProp(true), Q, null, ANY, null, ANY))
+    };
+
+    private MarkerFixtures() {
+    }
+
+    /**
+     * @return a random model of the given number of states, each with three successors, over the actions a and b
+     */
+    static ModelWrapper randomModel(int stateCount, int seed) {
+        return new ModelWrapper(ModelGenerator.random(stateCount, 0, 3).actions("a", "b").seed(seed).toModel());
+    }
+
+    /**
+     * s0 is initial and unlabelled, s1, s2 and s3 are labelled q, with transitions s0-a->s0, s0-a->s3, s1-a->s0,
+     * s1-a->s2 and s3-b->s2.
+     */
+    static ModelWrapper selfLoopModel() {
+        String[] names = {"s0", "s1", "s2", "s3"};
+        Map<String, Integer> ids = new HashMap<>();
+        for (int s = 0; s < names.length; s++)
+            ids.put(names[s], s);
+        BitSet init = new BitSet();
+        init.set(0);
+        return new ModelWrapper(names, ids, init, new int[]{0, 1, 1, 1}, new String[][]{{}, {"q"}},
+                new int[]{0, 0, 1, 1, 3}, new int[]{0, 3, 0, 2, 2}, new int[]{0, 0, 0, 0, 1},
+                new String[][]{{"a"}, {"b"}});
+    }
+
+    /**
+     * @param source the path of a formula file, or a formula
+     */
+    static StateFormula formula(String source) throws IOException {
+        return source.endsWith(".json") ? new FormulaParser(source).parse() : FormulaParser.parseRawFormulaString(source);
+    }
+
+    /**
+     * @param source the path of a formula file, a formula, or null for no constraint
+     */
+    static StateFormula constraint(String source) throws IOException {
+        return source == null ? new BoolProp(true) : formula(source);
+    }
+
+    /**
+     * Check a marking against the symbolic marker.
+     * @param modelSatisfied whether the marker found the query to hold on the initial states
+     * @param satisfied whether the marker found the query to hold on each state
+     */
+    static void assertSameAsSymbolicMarker(String message, ModelWrapper model, StateFormula query,
+                                           StateFormula constraint, boolean modelSatisfied, IntPredicate satisfied) {
+        StateFormula normalizedQuery = Normalizer.normalize(query);
+        SymbolicModel symbolicModel = new SymbolicModel(model);
+        SymbolicMarker symbolic = new SymbolicMarker(symbolicModel);
+        assertEquals(message, symbolic.isModelSatisfied(normalizedQuery, Normalizer.normalize(constraint)),
+                modelSatisfied);
+        BDDManager bdd = symbolicModel.getBDD();
+        int satisfying = symbolic.getSatisfying(normalizedQuery);
+        for (int s = 0; s < model.getStateCount(); s++) {
+            BitSet state = new BitSet();
+            state.set(s);
+            boolean holds = bdd.and(symbolicModel.encode(state), satisfying) != BDDManager.FALSE;
+            assertEquals(message + " on state " + s, holds, satisfied.test(s));
+        }
+    }
+
+    /**
+     * Check a marking against a full marking of the model with the default engine.
+     * @param modelSatisfied whether the marker found the query to hold on the initial states
+     * @param satisfied whether the marker found the query to hold on each state
+     */
+    static void assertSameAsModelMarker(String message, ModelWrapper model, StateFormula query,
+                                        StateFormula constraint, boolean modelSatisfied, IntPredicate satisfied) {
+        StateFormula normalizedQuery = Normalizer.normalize(query);
+        ModelMarker marker = new ModelMarker(model);
+        assertEquals(message, marker.isModelSatisfied(normalizedQuery, Normalizer.normalize(constraint)),
+                modelSatisfied);
+        for (int s = 0; s < model.getStateCount(); s++)
+            assertEquals(message + " on state " + s, marker.isSatisfied(s, normalizedQuery), satisfied.test(s));
+    }
+}
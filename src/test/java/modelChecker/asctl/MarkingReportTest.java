@@ -0,0 +1,118 @@
+package modelChecker.asctl;
+
+import formula.FormulaParser;
+import formula.stateFormula.BoolProp;
+import formula.stateFormula.StateFormula;
+import model.generator.ModelGenerator;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class MarkingReportTest {
+
+    private static final String QUERY = "(AG (!wait0 || A (wait0 U crit0)) && (EG !crit1 && E (idle0 U EX crit2)))";
+
+    /**
+     * Collects every report, from any thread.
+     */
+    private static class Recorder implements MarkingListener {
+
+        final List<OperatorStats> marked = Collections.synchronizedList(new ArrayList<>());
+        final List<OperatorStats> counterexamples = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void subformulaMarked(OperatorStats stats) {
+            marked.add(stats);
+        }
+
+        @Override
+        public void counterexampleBuilt(OperatorStats stats) {
+            counterexamples.add(stats);
+        }
+    }
+
+    @Test
+    public void reportsEachSubformulaOnce() throws IOException {
+        ModelWrapper model = new ModelWrapper(ModelGenerator.mutex(4).toModel());
+        StateFormula query = FormulaParser.parseRawFormulaString(QUERY);
+        Recorder recorder = new Recorder();
+        ModelMarker marker = new ModelMarker(model);
+        marker.setListener(recorder);
+        boolean holds = marker.isModelSatisfied(query, new BoolProp(true));
+        assertEquals(new ModelMarker(model).isModelSatisfied(query, new BoolProp(true)), holds);
+        Set<StateFormula> reported = new HashSet<>();
+        Set<String> operators = new HashSet<>();
+        for (OperatorStats stats : recorder.marked) {
+            assertTrue(stats.toString(), reported.add(stats.getFormula()));
+            operators.add(stats.getOperator());
+            assertEquals(marker.getSatisfying(stats.getFormula()).cardinality(), stats.getStates());
+            assertTrue(stats.getNanos() >= 0);
+            assertFalse(stats.isCached());
+            if (stats.getOperator().equals("EU") || stats.getOperator().equals("AU") || stats.getOperator().equals("EG"))
+                assertTrue(stats.toString(), stats.getIterations() > 0 && stats.getTransitionsScanned() > 0);
+        }
+        assertTrue(operators.containsAll(Arrays.asList("AP", "NOT", "AND", "EX", "EU", "AU", "EG")));
+        // each subformula is reported after its own subformulae
+        assertTrue(reported.contains(marker.normalize(query)));
+        assertEquals(marker.normalize(query), recorder.marked.get(recorder.marked.size() - 1).getFormula());
+    }
+
+    @Test
+    public void reportsInParallel() throws IOException {
+        ModelWrapper model = new ModelWrapper(ModelGenerator.mutex(4).toModel());
+        StateFormula query = FormulaParser.parseRawFormulaString(QUERY);
+        Recorder sequential = new Recorder();
+        ModelMarker marker = new ModelMarker(model);
+        marker.setListener(sequential);
+        marker.isModelSatisfied(query, new BoolProp(true));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Recorder parallel = new Recorder();
+            ModelMarker parallelMarker = new ModelMarker(model, pool);
+            parallelMarker.setParallelThreshold(0);
+            parallelMarker.setListener(parallel);
+            parallelMarker.isModelSatisfied(query, new BoolProp(true));
+            assertEquals(formulae(sequential.marked), formulae(parallel.marked));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void reportsCacheHitsAndCounterexamples() throws IOException {
+        ModelWrapper model = new ModelWrapper(ModelGenerator.diningPhilosophers(3).toModel());
+        StateFormula query = FormulaParser.parseRawFormulaString("AG !(hungry0 && (hungry1 && hungry2))");
+        ASCTLModelChecker checker = new ASCTLModelChecker();
+        checker.setCache(new SubformulaCache());
+        MarkingReport report = new MarkingReport();
+        checker.setListener(report);
+        // the deadlock, in which every philosopher is hungry, is reachable
+        assertFalse(checker.check(model, new BoolProp(true), query));
+        assertFalse(checker.check(model, new BoolProp(true), query));
+        MarkingReport.Total counterexamples = report.getCounterexamples();
+        assertEquals(2, counterexamples.getCount());
+        assertEquals(2 * checker.getTrace().length, counterexamples.getStates());
+        assertTrue(counterexamples.getIterations() > 0);
+        int cached = 0;
+        for (MarkingReport.Total total : report.getOperators()) {
+            assertEquals(total.getName(), 2 * (total.getCount() / 2), total.getCount());
+            cached += total.getCachedCount();
+        }
+        assertTrue(cached > 0);
+        assertFalse(report.getSlowest(3).isEmpty());
+        assertTrue(report.toString().contains(OperatorStats.COUNTEREXAMPLE));
+        report.clear();
+        assertTrue(report.getOperators().isEmpty());
+    }
+
+    private static Set<StateFormula> formulae(List<OperatorStats> stats) {
+        Set<StateFormula> formulae = new HashSet<>();
+        for (OperatorStats s : stats)
+            formulae.add(s.getFormula());
+        return formulae;
+    }
+}
@@ -0,0 +1,81 @@
+package modelChecker.asctl;
+
+import formula.FormulaParser;
+import formula.stateFormula.BoolProp;
+import formula.stateFormula.StateFormula;
+import model.Model;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class ModelFileTest {
+
+    private static final String[] MODELS = {
+            "src/test/resources/model1.json",
+            "src/test/resources/branch/model1.json",
+            "src/test/resources/colour/model1.json",
+            "src/test/resources/customComplex/complexModel.json",
+            "src/test/resources/customSimple/simpleModel.json"
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void mapsWrittenModel() throws IOException {
+        for (String path : MODELS) {
+            ModelWrapper loaded = ModelLoader.load(path);
+            String file = new File(folder.getRoot(), new File(path).getName() + ".bin").getPath();
+            ModelFile.write(loaded, file);
+            ModelWrapper mapped = ModelFile.map(file);
+            assertEquals(path, loaded.getStateCount(), mapped.getStateCount());
+            assertEquals(path, loaded.getTransitionCount(), mapped.getTransitionCount());
+            for (int s = 0; s < loaded.getStateCount(); s++) {
+                assertEquals(loaded.getStateName(s), mapped.getStateName(s));
+                assertEquals(s, mapped.getStateId(loaded.getStateName(s)));
+                assertEquals(loaded.isInit(s), mapped.isInit(s));
+                assertArrayEquals(loaded.getLabels(s), mapped.getLabels(s));
+                assertEquals(loaded.getOutDegree(s), mapped.getOutDegree(s));
+                for (int i = 0; i < loaded.getOutDegree(s); i++)
+                    assertEquals(loaded.getOutgoing(s, i), mapped.getOutgoing(s, i));
+                assertEquals(loaded.getInDegree(s), mapped.getInDegree(s));
+                for (int i = 0; i < loaded.getInDegree(s); i++)
+                    assertEquals(loaded.getIncoming(s, i), mapped.getIncoming(s, i));
+            }
+            for (int t = 0; t < loaded.getTransitionCount(); t++) {
+                assertEquals(loaded.getSource(t), mapped.getSource(t));
+                assertEquals(loaded.getTarget(t), mapped.getTarget(t));
+                assertArrayEquals(loaded.getActions(t), mapped.getActions(t));
+            }
+        }
+    }
+
+    @Test
+    public void checksMappedModel() throws IOException {
+        String file = folder.newFile().getPath();
+        ModelFile.main(new String[]{"src/test/resources/colour/model1.json", file});
+        ASCTLModelChecker checker = new ASCTLModelChecker();
+        Model model = Model.parseModel("src/test/resources/colour/model1.json");
+        for (int i = 1; i <= 4; i++) {
+            StateFormula f = new FormulaParser("src/test/resources/colour/ctl" + i + ".json").parse();
+            boolean expected = checker.check(model, new BoolProp(true), f);
+            String[] expectedTrace = expected ? null : checker.getTrace();
+            assertEquals(expected, checker.check(ModelFile.map(file), new BoolProp(true), f));
+            if (!expected)
+                assertArrayEquals(expectedTrace, checker.getTrace());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), "{\"states\": [], \"transitions\": []}".getBytes("UTF-8"));
+        ModelFile.map(file.getPath());
+    }
+}
@@ -0,0 +1,108 @@
+package modelChecker.asctl;
+
+import formula.FormulaParser;
+import formula.stateFormula.BoolProp;
+import formula.stateFormula.StateFormula;
+import model.Model;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ModelLoaderTest {
+
+    private static final String[] MODELS = {
+            "src/test/resources/model1.json",
+            "src/test/resources/branch/model1.json",
+            "src/test/resources/colour/model1.json",
+            "src/test/resources/customComplex/complexModel.json",
+            "src/test/resources/customSimple/simpleModel.json"
+    };
+
+    @Test
+    public void loadsSameModelAsParser() throws IOException {
+        for (String path : MODELS) {
+            ModelWrapper parsed = new ModelWrapper(Model.parseModel(path));
+            ModelWrapper loaded = ModelLoader.load(path);
+            assertEquals(path, parsed.getStateCount(), loaded.getStateCount());
+            assertEquals(path, parsed.getTransitionCount(), loaded.getTransitionCount());
+            for (int s = 0; s < parsed.getStateCount(); s++) {
+                assertEquals(parsed.getStateName(s), loaded.getStateName(s));
+                assertEquals(parsed.isInit(s), loaded.isInit(s));
+                assertArrayEquals(parsed.getLabels(s), loaded.getLabels(s));
+            }
+            for (int t = 0; t < parsed.getTransitionCount(); t++) {
+                assertEquals(parsed.getSource(t), loaded.getSource(t));
+                assertEquals(parsed.getTarget(t), loaded.getTarget(t));
+                assertArrayEquals(parsed.getActions(t), loaded.getActions(t));
+            }
+        }
+    }
+
+    @Test
+    public void internsLabelAndActionSets() throws IOException {
+        ModelWrapper model = ModelLoader.load(new StringReader("{\"states\": ["
+                + "{\"init\": true, \"name\": \"a\", \"label\": [\"p\"]},"
+                + "{\"init\": false, \"name\": \"b\", \"label\": [\"p\"]},"
+                + "{\"init\": false, \"name\": \"c\", \"label\": []}],"
+                + "\"transitions\": ["
+                + "{\"source\": \"a\", \"target\": \"b\", \"actions\": [\"x\"]},"
+                + "{\"source\": \"b\", \"target\": \"c\", \"actions\": [\"x\"]}]}"));
+        assertEquals(2, model.getLabelSetCount());
+        assertEquals(model.getLabelSetOf(0), model.getLabelSetOf(1));
+        assertEquals(1, model.getActionSetCount());
+        assertSame(model.getActions(0), model.getActions(1));
+        assertEquals("b", model.getState(1).getName());
+        assertTrue(Arrays.asList(model.getState(1).getLabel()).contains("p"));
+    }
+
+    @Test
+    public void loadsTransitionsBeforeStates() throws IOException {
+        ModelWrapper model = ModelLoader.load(new StringReader("{\"transitions\": ["
+                + "{\"source\": \"b\", \"target\": \"a\", \"actions\": [\"x\"]}],"
+                + "\"states\": ["
+                + "{\"init\": true, \"name\": \"a\", \"label\": []},"
+                + "{\"init\": false, \"name\": \"b\", \"label\": []}]}"));
+        assertEquals(2, model.getStateCount());
+        assertTrue(model.isInit(model.getStateId("a")));
+        assertEquals(model.getStateId("b"), model.getSource(0));
+    }
+
+    @Test
+    public void rejectsUnknownState() {
+        assertMalformed("{\"states\": [{\"init\": true, \"name\": \"a\", \"label\": []}],"
+                + "\"transitions\": [{\"source\": \"a\", \"target\": \"b\", \"actions\": []}]}");
+    }
+
+    @Test
+    public void rejectsDuplicateState() {
+        assertMalformed("{\"states\": [{\"init\": true, \"name\": \"a\", \"label\": []},"
+                + "{\"init\": false, \"name\": \"a\", \"label\": []}], \"transitions\": []}");
+    }
+
+    private static void assertMalformed(String json) {
+        try {
+            ModelLoader.load(new StringReader(json));
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("malformed model: "));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsMalformedModel() throws IOException {
+        ModelLoader.load(new StringReader("{\"states\": {}}"));
+    }
+
+    @Test
+    public void checksLoadedModel() throws IOException {
+        ModelWrapper model = ModelLoader.load("src/test/resources/branch/model1.json");
+        StateFormula f = new FormulaParser("src/test/resources/branch/ctl1.json").parse();
+        ASCTLModelChecker checker = new ASCTLModelChecker();
+        assertEquals(checker.check(Model.parseModel("src/test/resources/branch/model1.json"), new BoolProp(true), f),
+                checker.check(model, new BoolProp(true), f));
+    }
+}
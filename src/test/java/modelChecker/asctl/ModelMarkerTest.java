@@ -0,0 +1,108 @@
+package modelChecker.asctl;
+
+import formula.FormulaParser;
+import formula.stateFormula.BoolProp;
+import formula.stateFormula.StateFormula;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import static modelChecker.asctl.MarkerFixtures.*;
+import static org.junit.Assert.*;
+
+public class ModelMarkerTest {
+
+    private static final String[] MODELS = {
+            "src/test/resources/branch/model1.json",
+            "src/test/resources/colour/model1.json",
+            "src/test/resources/customComplex/complexModel.json",
+            "src/test/resources/customSimple/simpleModel.json"
+    };
+
+    private static final String[] ALWAYS = {"EG p", "EG !q", "EG !white", "EG !crit1", "EG (wait1 || wait2)", "EG true"};
+
+    private static final String[] CONSTRAINTS = {"true", "!q", "!crit2", "!red"};
+
+    @Test
+    public void marksAlwaysAsSymbolicMarker() throws IOException {
+        for (String path : MODELS) {
+            ModelWrapper model = ModelLoader.load(path);
+            for (String constraintText : CONSTRAINTS) {
+                for (String queryText : ALWAYS)
+                    assertSameValues(path + " " + queryText + " under " + constraintText, model,
+                            FormulaParser.parseRawFormulaString(queryText), FormulaParser.parseRawFormulaString(constraintText));
+            }
+        }
+    }
+
+    @Test
+    public void marksEveryOperatorAsSymbolicMarkerOnRandomModels() {
+        for (int seed = 0; seed < 30; seed++) {
+            ModelWrapper model = randomModel(60, seed);
+            for (StateFormula query : QUERIES)
+                for (StateFormula constraint : MarkerFixtures.CONSTRAINTS)
+                    assertSameValues("seed " + seed + ": " + query + " under " + constraint, model, query, constraint);
+        }
+    }
+
+    /**
+     * s0 loops on itself, so AF q fails on it although its other successor satisfies q and is reached again from the
+     * seeds.
+     */
+    @Test
+    public void marksForAllUntilThroughEachTransitionOnce() throws IOException {
+        ModelWrapper model = selfLoopModel();
+        StateFormula query = Normalizer.normalize(FormulaParser.parseRawFormulaString("AF q"));
+        ModelMarker marker = new ModelMarker(model);
+        assertFalse(marker.isModelSatisfied(query, new BoolProp(true)));
+        assertFalse(marker.isSatisfied(0, query));
+        assertFalse(marker.isSatisfied(1, query));
+        assertTrue(marker.isSatisfied(2, query));
+        assertTrue(marker.isSatisfied(3, query));
+        assertSameValues("AF q", model, query, new BoolProp(true));
+    }
+
+    private static void assertSameValues(String message, ModelWrapper model, StateFormula query, StateFormula constraint) {
+        StateFormula normalizedQuery = Normalizer.normalize(query);
+        ModelMarker marker = new ModelMarker(model);
+        assertSameAsSymbolicMarker(message, model, query, constraint,
+                marker.isModelSatisfied(normalizedQuery, Normalizer.normalize(constraint)),
+                s -> marker.isSatisfied(s, normalizedQuery));
+    }
+
+    /**
+     * A long chain into a cycle, labelled p except for the last state of the chain, would overflow a recursive
+     * search of its components.
+     */
+    @Test
+    public void marksAlwaysOnLongChains() throws IOException {
+        int length = 200000;
+        String[] names = new String[length];
+        Map<String, Integer> ids = new HashMap<>();
+        int[] labels = new int[length];
+        int[] sources = new int[length];
+        int[] targets = new int[length];
+        int[] actions = new int[length];
+        for (int s = 0; s < length; s++) {
+            names[s] = "s" + s;
+            ids.put(names[s], s);
+            sources[s] = s;
+            // the last state loops back to the middle of the chain
+            targets[s] = s + 1 < length ? s + 1 : length / 2;
+        }
+        labels[length / 4] = 1;
+        BitSet init = new BitSet();
+        init.set(0);
+        ModelWrapper model = new ModelWrapper(names, ids, init, labels, new String[][]{{"p"}, {}},
+                sources, targets, actions, new String[][]{{}});
+        ModelMarker marker = new ModelMarker(model);
+        StateFormula query = Normalizer.normalize(FormulaParser.parseRawFormulaString("EG p"));
+        assertFalse(marker.isModelSatisfied(query, new BoolProp(true)));
+        assertFalse(marker.isSatisfied(length / 4, query));
+        assertTrue(marker.isSatisfied(length / 4 + 1, query));
+        assertTrue(marker.isSatisfied(length - 1, query));
+    }
+}
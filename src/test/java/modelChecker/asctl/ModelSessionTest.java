@@ -0,0 +1,89 @@
+package modelChecker.asctl;
+
+import formula.FormulaParser;
+import formula.stateFormula.BoolProp;
+import formula.stateFormula.StateFormula;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class ModelSessionTest {
+
+    private static final String BRANCH = "src/test/resources/branch/";
+
+    private static List<StateFormula> branchQueries() throws IOException {
+        List<StateFormula> queries = new ArrayList<>();
+        for (int i = 1; i <= 8; i++)
+            queries.add(new FormulaParser(BRANCH + "ctl" + i + ".json").parse());
+        return queries;
+    }
+
+    private static List<StateFormula> branchConstraints() throws IOException {
+        return Arrays.asList(new BoolProp(true), new FormulaParser(BRANCH + "constraint1.json").parse(),
+                new FormulaParser(BRANCH + "constraint2.json").parse());
+    }
+
+    @Test
+    public void checksAsModelChecker() throws IOException {
+        ModelWrapper model = ModelLoader.load(BRANCH + "model1.json");
+        checkAsModelChecker(model, new ModelSession(model));
+    }
+
+    @Test
+    public void checksInParallelAsModelChecker() throws IOException {
+        ModelWrapper model = ModelLoader.load(BRANCH + "model1.json");
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            checkAsModelChecker(model, new ModelSession(model, pool, 0));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void checkAsModelChecker(ModelWrapper model, ModelSession session) throws IOException {
+        // every pair twice, so that the second round reuses the marking of the first
+        for (int round = 0; round < 2; round++) {
+            for (StateFormula constraint : branchConstraints()) {
+                for (StateFormula query : branchQueries()) {
+                    ASCTLModelChecker checker = new ASCTLModelChecker();
+                    boolean expected = checker.check(model, constraint, query);
+                    assertEquals(query.toString(), expected, session.check(constraint, query));
+                    if (!expected)
+                        assertArrayEquals(checker.getTrace(), session.getTrace());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void checksBatchInOrder() throws IOException {
+        ModelWrapper model = ModelLoader.load(BRANCH + "model1.json");
+        List<StateFormula> constraints = new ArrayList<>();
+        List<StateFormula> queries = new ArrayList<>();
+        for (StateFormula query : branchQueries()) {
+            for (StateFormula constraint : branchConstraints()) {
+                constraints.add(constraint);
+                queries.add(query);
+            }
+        }
+        ModelSession session = new ModelSession(model);
+        boolean[] results = session.checkAll(constraints, queries);
+        assertEquals(queries.size(), results.length);
+        for (int i = 0; i < results.length; i++) {
+            assertEquals(new ASCTLModelChecker().check(model, constraints.get(i), queries.get(i)), results[i]);
+            assertEquals(results[i], session.getTraces().get(i) == null);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnpairedBatch() throws IOException {
+        ModelSession session = new ModelSession(ModelLoader.load(BRANCH + "model1.json"));
+        session.checkAll(branchConstraints(), branchQueries());
+    }
+}
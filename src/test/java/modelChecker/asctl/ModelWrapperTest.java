@@ -0,0 +1,55 @@
+package modelChecker.asctl;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class ModelWrapperTest {
+
+    /**
+     * @return a two state model with one transition per action count, the i-th labelled with actions a0 .. a(i-1)
+     */
+    private static ModelWrapper chain(int actionCount) throws IOException {
+        StringBuilder json = new StringBuilder("{\"states\": [{\"init\": true, \"name\": \"s\", \"label\": []},"
+                + "{\"init\": false, \"name\": \"t\", \"label\": []}], \"transitions\": [");
+        for (int i = 0; i < actionCount; i++) {
+            json.append(i > 0 ? "," : "").append("{\"source\": \"s\", \"target\": \"t\", \"actions\": [");
+            for (int a = 0; a <= i; a++)
+                json.append(a > 0 ? "," : "").append("\"a").append(a).append("\"");
+            json.append("]}");
+        }
+        return ModelLoader.load(new StringReader(json.append("]}").toString()));
+    }
+
+    @Test
+    public void masksActions() throws IOException {
+        ModelWrapper model = chain(3);
+        assertEquals(3, model.getActionCount());
+        assertNull(model.getActionMask(Collections.emptySet()));
+        long[] a2 = model.getActionMask(Collections.singleton("a2"));
+        assertFalse(model.actionsSatisfied(0, a2));
+        assertTrue(model.actionsSatisfied(2, a2));
+        assertTrue(model.actionsSatisfied(0, null));
+        long[] unknown = model.getActionMask(Collections.singleton("missing"));
+        for (int t = 0; t < model.getTransitionCount(); t++)
+            assertFalse(model.actionsSatisfied(t, unknown));
+    }
+
+    @Test
+    public void masksMoreThan64Actions() throws IOException {
+        ModelWrapper model = chain(130);
+        assertEquals(130, model.getActionCount());
+        for (String action : Arrays.asList("a0", "a63", "a64", "a129")) {
+            long[] mask = model.getActionMask(new HashSet<>(Collections.singleton(action)));
+            for (int t = 0; t < model.getTransitionCount(); t++)
+                assertEquals(action + " on " + t, ModelMarker.actionsSatisfied(model.getActions(t), Collections.singleton(action)),
+                        model.actionsSatisfied(t, mask));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package modelChecker.asctl;
+
+import formula.FormulaParser;
+import formula.stateFormula.AtomicProp;
+import formula.stateFormula.BoolProp;
+import formula.stateFormula.StateFormula;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.BitSet;
+
+import static org.junit.Assert.*;
+
+public class SubformulaCacheTest {
+
+    private static final StateFormula TRUE = new BoolProp(true);
+
+    private static BitSet states(int count) {
+        BitSet states = new BitSet(count);
+        states.set(0, count);
+        return states;
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedBySize() {
+        BitSet set = states(640);
+        long size = SubformulaCache.footprint(set);
+        SubformulaCache cache = new SubformulaCache(2 * size);
+        cache.put(1, TRUE, new AtomicProp("a"), set);
+        cache.put(1, TRUE, new AtomicProp("b"), set);
+        assertNotNull(cache.get(1, TRUE, new AtomicProp("a")));
+        cache.put(1, TRUE, new AtomicProp("c"), set);
+        assertEquals(2, cache.size());
+        assertEquals(2 * size, cache.getFootprint());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get(1, TRUE, new AtomicProp("b")));
+        assertNotNull(cache.get(1, TRUE, new AtomicProp("a")));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void keysByModelAndConstraint() {
+        SubformulaCache cache = new SubformulaCache();
+        cache.put(1, TRUE, new AtomicProp("a"), states(4));
+        assertNull(cache.get(2, TRUE, new AtomicProp("a")));
+        assertNull(cache.get(1, new AtomicProp("c"), new AtomicProp("a")));
+        assertNotNull(cache.get(1, new BoolProp(true), new AtomicProp("a")));
+    }
+
+    @Test
+    public void skipsSetsLargerThanCache() {
+        SubformulaCache cache = new SubformulaCache(16);
+        cache.put(1, TRUE, new AtomicProp("a"), states(1024));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getFootprint());
+    }
+
+    @Test
+    public void reusesResultsAcrossChecks() throws IOException {
+        ModelWrapper model = ModelLoader.load("src/test/resources/branch/model1.json");
+        StateFormula query = new FormulaParser("src/test/resources/branch/ctl1.json").parse();
+        StateFormula constraint = new FormulaParser("src/test/resources/branch/constraint1.json").parse();
+        SubformulaCache cache = new SubformulaCache();
+        ASCTLModelChecker checker = new ASCTLModelChecker();
+        checker.setCache(cache);
+        boolean expected = new ASCTLModelChecker().check(model, constraint, query);
+        assertEquals(expected, checker.check(model, constraint, query));
+        assertEquals(0, cache.getHitCount());
+        long misses = cache.getMissCount();
+        assertEquals(expected, checker.check(model, constraint, query));
+        assertTrue(cache.getHitCount() > 0);
+        assertEquals(misses, cache.getMissCount());
+        // the fingerprint depends on the structure, not on the instance
+        assertEquals(model.getFingerprint(), ModelLoader.load("src/test/resources/branch/model1.json").getFingerprint());
+        ModelWrapper relabelled = new ModelDelta().setLabels(model.getStateName(0)).applyTo(model, new BitSet());
+        assertNotEquals(model.getFingerprint(), relabelled.getFingerprint());
+    }
+}
@@ -0,0 +1,93 @@
+package modelChecker.onthefly;
+
+import formula.FormulaParser;
+import formula.stateFormula.BoolProp;
+import formula.stateFormula.StateFormula;
+import model.Model;
+import modelChecker.asctl.ASCTLModelChecker;
+import modelChecker.asctl.ModelWrapper;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OnTheFlyCheckerTest {
+
+    /**
+     * An unbounded counter, stepping from n to n + 1 by "inc" and back to 0 by "reset".
+     */
+    private static class Counter implements ImplicitModel<Integer> {
+
+        @Override
+        public Iterable<Integer> initialStates() {
+            return Collections.singletonList(0);
+        }
+
+        @Override
+        public Iterable<Successor<Integer>> successors(Integer state) {
+            return java.util.Arrays.asList(new Successor<>(state + 1, new String[]{"inc"}),
+                    new Successor<>(0, new String[]{"reset"}));
+        }
+
+        @Override
+        public String[] labels(Integer state) {
+            return state >= 1000 ? new String[]{"big"} : new String[]{state % 2 == 0 ? "even" : "odd"};
+        }
+    }
+
+    @Test
+    public void invariantStopsAtFirstViolation() throws IOException {
+        OnTheFlyChecker<Integer> checker = new OnTheFlyChecker<>(new Counter());
+        assertFalse(checker.check(new BoolProp(true), FormulaParser.parseRawFormulaString("AG !big")));
+        List<Integer> trace = checker.getTrace();
+        assertEquals(1001, trace.size());
+        assertEquals(0, (int) trace.get(0));
+        assertEquals(1000, (int) trace.get(1000));
+        assertTrue(checker.getExpandedStateCount() <= 1000);
+    }
+
+    @Test
+    public void existentialOperatorsExploreOnlyWhatTheyNeed() throws IOException {
+        OnTheFlyChecker<Integer> checker = new OnTheFlyChecker<>(new Counter());
+        assertTrue(checker.check(new BoolProp(true), FormulaParser.parseRawFormulaString("EX odd")));
+        assertEquals(1, checker.getExpandedStateCount());
+        assertTrue(checker.check(new BoolProp(true), FormulaParser.parseRawFormulaString("EF big")));
+        assertTrue(checker.check(new BoolProp(true), FormulaParser.parseRawFormulaString("E (!big U big)")));
+        assertFalse(checker.check(new BoolProp(true), FormulaParser.parseRawFormulaString("E (even U big)")));
+    }
+
+    @Test
+    public void constraintRestrictsSteps() throws IOException {
+        OnTheFlyChecker<Integer> checker = new OnTheFlyChecker<>(new Counter());
+        // only even states can be entered, so the counter can never pass 1
+        assertFalse(checker.check(FormulaParser.parseRawFormulaString("even"), FormulaParser.parseRawFormulaString("EX odd")));
+        assertTrue(checker.check(FormulaParser.parseRawFormulaString("even"), FormulaParser.parseRawFormulaString("AG !big")));
+        assertTrue(checker.getExpandedStateCount() <= 1);
+    }
+
+    @Test
+    public void agreesWithMarker() throws IOException {
+        String[] queries = {
+                "src/test/resources/branch/ctl2.json",
+                "src/test/resources/branch/ctl3.json",
+                "src/test/resources/branch/ctl5.json",
+                "src/test/resources/branch/ctl6.json",
+                "src/test/resources/branch/ctl7.json",
+                "src/test/resources/branch/ctl8.json"
+        };
+        Model model = Model.parseModel("src/test/resources/branch/model1.json");
+        for (String query : queries) {
+            StateFormula f = new FormulaParser(query).parse();
+            OnTheFlyChecker<Integer> checker = new OnTheFlyChecker<>(new WrappedModel(new ModelWrapper(model)));
+            assertEquals(query, new ASCTLModelChecker().check(model, new BoolProp(true), f), checker.check(new BoolProp(true), f));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnsupportedOperators() throws IOException {
+        new OnTheFlyChecker<>(new Counter()).check(new BoolProp(true), FormulaParser.parseRawFormulaString("AF big"));
+    }
+}